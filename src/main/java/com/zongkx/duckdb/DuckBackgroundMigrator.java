@@ -0,0 +1,237 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Migrates on a background thread, so that an application can start while its migrations run, and tells which schema
+ * version has been reached, so that only the code paths depending on a newer schema have to wait. Use
+ * {@code new DuckBackgroundMigrator(flyway).start()} in place of {@code flyway.migrate()}:
+ * <pre>{@code
+ * DuckBackgroundMigrator migrator = new DuckBackgroundMigrator(flyway);
+ * migrator.start();
+ * ...
+ * if (migrator.isReady("42")) {
+ *     // query the tables created by V42
+ * }
+ * migrator.whenReady("42").get(30, TimeUnit.SECONDS);
+ * }</pre>
+ * The migrations are run by {@link DuckParallelMigrator}, exactly as a synchronous migrate would run them: each in its
+ * own transaction, under the same file lock, with failed migrations rolled back. A version is only reported as reached
+ * once the transaction that applied it has been committed, so code it gates never sees a half-applied migration, and a
+ * crash during the migrate leaves the database as a crash during a synchronous one would. The thread is not a daemon,
+ * so a JVM shutting down normally waits for the migrate to complete.
+ * <p>
+ * With {@code flyway.group}, all migrations are committed together, and versions are only reported as reached once the
+ * migrate has completed.
+ */
+public class DuckBackgroundMigrator {
+    private static final Log LOG = LogFactory.getLog(DuckBackgroundMigrator.class);
+
+    private final Flyway flyway;
+    private final List<Consumer<DuckMigrateProgress>> listeners = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Integer> result = new CompletableFuture<>();
+    private final List<Map.Entry<MigrationVersion, CompletableFuture<Void>>> waiters = new ArrayList<>();
+    private boolean started;
+    private MigrationVersion reached;
+    private int completed;
+    private int total;
+
+    public DuckBackgroundMigrator(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    /**
+     * Registers a listener called on the migrate thread once each migration has been committed. Exceptions thrown by a
+     * listener are logged and do not fail the migration.
+     */
+    public DuckBackgroundMigrator addListener(Consumer<DuckMigrateProgress> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Starts the migrate, unless it has already been started.
+     *
+     * @return The number of migrations executed, or the exception the migrate failed with.
+     */
+    public synchronized CompletableFuture<Integer> start() {
+        if (!started) {
+            started = true;
+            Thread thread = new Thread(this::run, "flyway-duckdb-background-migrate");
+            thread.start();
+        }
+        return result;
+    }
+
+    /**
+     * @return Whether the migrate has completed successfully.
+     */
+    public boolean isReady() {
+        return result.isDone() && !result.isCompletedExceptionally();
+    }
+
+    /**
+     * @return Whether the migration of the given version has been committed, or the migrate has completed
+     * successfully.
+     */
+    public synchronized boolean isReady(String version) {
+        return isReady() || reached != null && reached.compareTo(MigrationVersion.fromVersion(version)) >= 0;
+    }
+
+    /**
+     * @return A future completed once the migrate has completed successfully, or with the exception it failed with.
+     */
+    public CompletableFuture<Void> whenReady() {
+        return result.thenApply(executed -> null);
+    }
+
+    /**
+     * @return A future completed once the migration of the given version has been committed or the migrate has
+     * completed successfully, or with the exception the migrate failed with before.
+     */
+    public synchronized CompletableFuture<Void> whenReady(String version) {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (isReady(version)) {
+            ready.complete(null);
+        } else if (result.isCompletedExceptionally()) {
+            result.whenComplete((executed, e) -> ready.completeExceptionally(e));
+        } else {
+            waiters.add(new AbstractMap.SimpleImmutableEntry<>(MigrationVersion.fromVersion(version), ready));
+        }
+        return ready;
+    }
+
+    private void run() {
+        try {
+            Configuration configuration = flyway.getConfiguration();
+            MigrationInfoService info = flyway.info();
+            MigrationInfo current = info.current();
+            synchronized (this) {
+                reached = current != null ? current.getVersion() : null;
+                total = info.pending().length;
+            }
+            LOG.info("Migrating " + total + " pending migrations in the background");
+
+            ProgressCallback callback = new ProgressCallback(configuration.isGroup());
+            List<Callback> callbacks = new ArrayList<>(Arrays.asList(configuration.getCallbacks()));
+            callbacks.add(callback);
+            Flyway progressFlyway = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .callbacks(callbacks.toArray(new Callback[0]))
+                    .load();
+            int executed = new DuckParallelMigrator(progressFlyway, this::committed).migrate();
+            callback.publish();
+            synchronized (this) {
+                result.complete(executed);
+                for (Map.Entry<MigrationVersion, CompletableFuture<Void>> waiter : waiters) {
+                    waiter.getValue().complete(null);
+                }
+                waiters.clear();
+            }
+            LOG.info("Background migrate completed with " + executed + " migrations executed");
+        } catch (RuntimeException | Error e) {
+            LOG.error("Background migrate failed: " + e.getMessage());
+            synchronized (this) {
+                result.completeExceptionally(e);
+                for (Map.Entry<MigrationVersion, CompletableFuture<Void>> waiter : waiters) {
+                    waiter.getValue().completeExceptionally(e);
+                }
+                waiters.clear();
+            }
+        }
+    }
+
+    private void committed(MigrationInfo migration) {
+        DuckMigrateProgress progress;
+        synchronized (this) {
+            MigrationVersion version = migration.getVersion();
+            if (version != null && (reached == null || version.compareTo(reached) > 0)) {
+                reached = version;
+                Iterator<Map.Entry<MigrationVersion, CompletableFuture<Void>>> iterator = waiters.iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<MigrationVersion, CompletableFuture<Void>> waiter = iterator.next();
+                    if (reached.compareTo(waiter.getKey()) >= 0) {
+                        waiter.getValue().complete(null);
+                        iterator.remove();
+                    }
+                }
+            }
+            progress = new DuckMigrateProgress(migration, ++completed, total);
+        }
+        LOG.debug("Committed " + progress);
+        for (Consumer<DuckMigrateProgress> listener : listeners) {
+            try {
+                listener.accept(progress);
+            } catch (RuntimeException e) {
+                LOG.warn("Migrate progress listener " + listener + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reports the migrations Flyway runs itself. {@code afterEachMigrate} fires before the transaction of the migration
+     * is committed, so the migration is only reported when the next one starts, in a new transaction, or once the
+     * migrate has completed.
+     */
+    private class ProgressCallback implements Callback {
+        private final boolean group;
+        private final List<MigrationInfo> uncommitted = new ArrayList<>();
+
+        ProgressCallback(boolean group) {
+            this.group = group;
+        }
+
+        @Override
+        public boolean supports(Event event, Context context) {
+            return event == Event.AFTER_EACH_MIGRATE || event == Event.BEFORE_EACH_MIGRATE
+                    || event == Event.AFTER_EACH_MIGRATE_ERROR || event == Event.AFTER_MIGRATE;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context context) {
+            if (event == Event.AFTER_EACH_MIGRATE) {
+                uncommitted.add(context.getMigrationInfo());
+            } else if (event == Event.AFTER_EACH_MIGRATE_ERROR) {
+                uncommitted.clear();
+            } else if (event == Event.AFTER_MIGRATE || !group) {
+                publish();
+            }
+        }
+
+        void publish() {
+            for (MigrationInfo migration : uncommitted) {
+                committed(migration);
+            }
+            uncommitted.clear();
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "duckdb-background-progress";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.zongkx.duckdb;
+
+import org.duckdb.DuckDBAppender;
+import org.duckdb.DuckDBConnection;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads rows of literal values into a table through DuckDB's native appender, which writes straight into the table's
+ * storage instead of planning and executing one INSERT per row. Values are handed over as text and converted to the
+ * column types by DuckDB, exactly as a literal in an INSERT would be.
+ */
+public class DuckBulkLoader implements AutoCloseable {
+    private final DuckDBAppender appender;
+    private final String currentSchema;
+    private final String schema;
+    private final String table;
+    private long rowCount;
+
+    /**
+     * Opens an appender on this table. Rows appended through it become part of the current transaction.
+     *
+     * @param schema The schema of the table, or {@code null} for the current schema.
+     */
+    public DuckBulkLoader(JdbcTemplate jdbcTemplate, String schema, String table) throws SQLException {
+        this.currentSchema = jdbcTemplate.queryForString("SELECT current_schema()");
+        this.schema = schema == null ? currentSchema : schema;
+        this.table = table;
+        this.appender = jdbcTemplate.getConnection().unwrap(DuckDBConnection.class).createAppender(this.schema, table);
+    }
+
+    /**
+     * @param schema The schema of the table, or {@code null} for the schema that was current when this loader was
+     *               opened.
+     * @return Whether rows for this table can be appended by this loader.
+     */
+    public boolean isFor(String schema, String table) {
+        return (schema == null ? currentSchema : schema).equals(this.schema) && this.table.equalsIgnoreCase(table);
+    }
+
+    /**
+     * Appends one row. It must contain a value, or {@code null}, for every column of the table in table order.
+     */
+    public void append(List<String> values) throws SQLException {
+        appender.beginRow();
+        for (String value : values) {
+            appender.append(value);
+        }
+        appender.endRow();
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Flushes the appended rows into the table.
+     */
+    @Override
+    public void close() throws SQLException {
+        appender.close();
+    }
+
+    /**
+     * Inserts rows for a subset of the columns of a table, which the appender does not support, as a single JDBC batch.
+     *
+     * @param qualifiedTable The quoted, possibly schema-qualified, name of the table.
+     * @param columns        The quoted names of the columns the values are for.
+     * @return The number of inserted rows.
+     */
+    public static long insert(JdbcTemplate jdbcTemplate, String qualifiedTable, List<String> columns,
+                              List<List<String>> rows) throws SQLException {
+        List<String> placeholders = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            placeholders.add("?");
+        }
+        String sql = "INSERT INTO " + qualifiedTable + " (" + String.join(", ", columns) + ")"
+                + " VALUES (" + String.join(", ", placeholders) + ")";
+        try (PreparedStatement statement = jdbcTemplate.getConnection().prepareStatement(sql)) {
+            for (List<String> row : rows) {
+                for (int i = 0; i < row.size(); i++) {
+                    statement.setString(i + 1, row.get(i));
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        return rows.size();
+    }
+}
@@ -0,0 +1,104 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints a file-backed database at points chosen by {@code flyway.duckdb.checkpoint} and
+ * {@code flyway.duckdb.checkpointWalSize} rather than whenever DuckDB's automatic checkpoint happens to fire, so that
+ * the WAL has been merged into the database file by the time the application opens it.
+ */
+class DuckCheckpointer {
+    private static final Log LOG = LogFactory.getLog(DuckCheckpointer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path wal;
+    private final DuckDBConfigurationExtension.CheckpointMode mode;
+    private final long walSize;
+    private final boolean force;
+
+    private boolean pending;
+
+    DuckCheckpointer(JdbcTemplate jdbcTemplate, Path wal, DuckDBConfigurationExtension duckConfiguration) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.wal = wal;
+        this.mode = duckConfiguration.getCheckpoint();
+        this.walSize = duckConfiguration.getCheckpointWalSize();
+        this.force = duckConfiguration.isForceCheckpoint();
+    }
+
+    /**
+     * @param databasePath The file of the database, {@code null} or empty for an in-memory database.
+     * @return The checkpointer of the database, or {@code null} for in-memory databases or when no checkpoint policy is
+     * configured.
+     */
+    static DuckCheckpointer forDatabase(String databasePath, JdbcTemplate jdbcTemplate,
+                                        DuckDBConfigurationExtension duckConfiguration) {
+        if (databasePath == null || databasePath.isEmpty()
+                || (duckConfiguration.getCheckpoint() == DuckDBConfigurationExtension.CheckpointMode.AUTO
+                && duckConfiguration.getCheckpointWalSize() <= 0)) {
+            return null;
+        }
+        return new DuckCheckpointer(jdbcTemplate, Paths.get(databasePath + ".wal"), duckConfiguration);
+    }
+
+    /**
+     * Checkpoints after a committed migration if the policy asks for it.
+     */
+    synchronized void afterMigration() {
+        pending = true;
+        if (mode == DuckDBConfigurationExtension.CheckpointMode.MIGRATION || (walSize > 0 && getWalSize() >= walSize)) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Checkpoints once more if the policy asks for it.
+     */
+    synchronized void close() {
+        if (pending && mode == DuckDBConfigurationExtension.CheckpointMode.END) {
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        long walBytes = getWalSize();
+        long started = System.nanoTime();
+        try {
+            jdbcTemplate.execute(force ? "FORCE CHECKPOINT" : "CHECKPOINT");
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to checkpoint DuckDB database", e);
+        }
+        pending = false;
+        LOG.info("Checkpointed " + formatSize(walBytes) + " of WAL in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms"
+                + (getWalSize() > 0 ? " (" + formatSize(getWalSize()) + " of WAL left)" : ""));
+    }
+
+    private long getWalSize() {
+        try {
+            return Files.exists(wal) ? Files.size(wal) : 0;
+        } catch (IOException e) {
+            LOG.debug("Unable to determine size of " + wal + ": " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+        return String.format(Locale.ROOT, "%.1f %ciB", bytes / (double) (1L << (unit * 10)), "KMGTPE".charAt(unit - 1));
+    }
+}
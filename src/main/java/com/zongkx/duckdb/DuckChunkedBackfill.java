@@ -0,0 +1,540 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.jdbc.Result;
+import org.flywaydb.core.internal.jdbc.Results;
+import org.flywaydb.core.internal.resource.ResourceName;
+import org.flywaydb.core.internal.resource.ResourceNameParser;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.util.StopWatch;
+import org.flywaydb.core.internal.util.TimeFormat;
+
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes an {@code UPDATE} or {@code INSERT ... SELECT} marked with a {@code -- duckdb:chunk} comment as a series of
+ * transactions, each covering a range of the rowids (or of an integer key column) of the table the statement is driven
+ * by: the updated table, or the first table of the {@code FROM} clause. DuckDB keeps the changes of a transaction in
+ * memory and in the WAL until it commits, so a single statement rewriting a large table can exceed
+ * {@code memory_limit}, where a chunk at a time does not.
+ * <p>
+ * The directive takes the options {@code size=<rows>} (defaults to {@code flyway.duckdb.chunkSize}),
+ * {@code key=<column>} (defaults to {@code rowid}) and {@code checkpoint}, which checkpoints the database after every
+ * chunk. Each chunk is committed together with the position reached, kept in {@code <flyway.table>_chunks} next to
+ * the schema history table and keyed by the script, the line and the text of the statement, so that a statement
+ * interrupted by a crash or a failure resumes after the last committed chunk when its migration is retried, and does
+ * not apply any chunk twice. The position reached by the last chunk marks the statement as completed until Flyway
+ * records the migration as successful. A position belongs to one attempt at applying the migration: it also keeps the
+ * highest rank of the schema history when the attempt started, and is ignored once the schema history records the
+ * migration as successful with a higher rank, so that a repeatable migration applied again starts afresh. Such
+ * positions are removed after every migration (see {@link #clearRecorded}). A statement of a callback script is not
+ * recorded by Flyway, so its position is removed with its last chunk.
+ */
+final class DuckChunkedBackfill {
+    private static final Log LOG = LogFactory.getLog(DuckChunkedBackfill.class);
+    private static final Pattern DIRECTIVE = Pattern.compile("--\\s*duckdb:chunk\\b([^\\r\\n]*)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OPTION = Pattern.compile("(\\w+)(?:=(\\S+))?");
+    private static final String NAME = "(?:\"(?:[^\"]|\"\")+\"|\\w+)";
+    private static final String QUALIFIED_NAME = NAME + "(?:\\s*\\.\\s*" + NAME + "){0,2}";
+    private static final Pattern UPDATE = Pattern.compile("^UPDATE\\s+(" + QUALIFIED_NAME + ")"
+            + "(?:\\s+(?:AS\\s+)?(?!SET\\b)(" + NAME + "))?\\s+SET\\b", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern INSERT = Pattern.compile("^INSERT\\s+(?:OR\\s+\\w+\\s+)?INTO\\s+(" + QUALIFIED_NAME + ")",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern FROM = Pattern.compile("^FROM\\s+(" + QUALIFIED_NAME + ")"
+            + "(?:\\s+(?:AS\\s+)?(?!(?:WHERE|JOIN|LEFT|RIGHT|INNER|OUTER|FULL|CROSS|NATURAL|POSITIONAL|ASOF|ANTI|SEMI"
+            + "|USING|ON)\\b)(" + NAME + "))?", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern KEY = Pattern.compile(NAME);
+    private static final Pattern TABLE = Pattern.compile("\\s*(" + QUALIFIED_NAME + ")", Pattern.DOTALL);
+    /**
+     * Clauses after which a range predicate can not simply be appended, or that would give a different result when
+     * the statement is applied to one range at a time.
+     */
+    private static final String[] UNCHUNKABLE = {"WITH", "GROUP", "HAVING", "QUALIFY", "WINDOW", "ORDER", "OFFSET",
+            "UNION", "EXCEPT", "INTERSECT", "CONFLICT", "RETURNING"};
+    /**
+     * Clauses that give a different result when applied to one range at a time wherever they appear, including in
+     * subqueries.
+     */
+    private static final String[] UNCHUNKABLE_ANYWHERE = {"OVER", "DISTINCT", "LIMIT"};
+    /**
+     * Aggregate functions, which reduce each chunk to rows of their own when called outside a subquery.
+     */
+    private static final String[] AGGREGATES = {"count", "sum", "avg", "mean", "min", "max", "any_value", "arg_min",
+            "arg_max", "argmin", "argmax", "min_by", "max_by", "first", "last", "list", "array_agg", "string_agg",
+            "group_concat", "listagg", "histogram", "bit_and", "bit_or", "bit_xor", "bool_and", "bool_or", "every",
+            "product", "fsum", "favg", "sumkahan", "kahan_sum", "median", "mode", "quantile", "quantile_cont",
+            "quantile_disc", "approx_quantile", "approx_count_distinct", "stddev", "stddev_pop", "stddev_samp",
+            "variance", "var_pop", "var_samp", "covar_pop", "covar_samp", "corr", "entropy", "kurtosis", "skewness"};
+
+    private final String directive;
+    private final long size;
+    private final String key;
+    private final boolean checkpoint;
+
+    private DuckChunkedBackfill(String directive, long size, String key, boolean checkpoint) {
+        this.directive = directive;
+        this.size = size;
+        this.key = key;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @param comments The comments preceding a statement.
+     * @return The chunking requested by a {@code -- duckdb:chunk} comment, or {@code null} if there is none.
+     */
+    static DuckChunkedBackfill parseDirective(String comments) {
+        if (comments == null) {
+            return null;
+        }
+        Matcher matcher = DIRECTIVE.matcher(comments);
+        if (!matcher.find()) {
+            return null;
+        }
+        long size = 0;
+        String key = null;
+        boolean checkpoint = false;
+        Matcher option = OPTION.matcher(matcher.group(1));
+        while (option.find()) {
+            String name = option.group(1).toLowerCase(Locale.ENGLISH);
+            String value = option.group(2);
+            if ("size".equals(name) && value != null) {
+                try {
+                    size = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    throw new FlywayException("Invalid chunk size in " + matcher.group().trim());
+                }
+            } else if ("key".equals(name) && value != null && KEY.matcher(value).matches()) {
+                key = value;
+            } else if ("checkpoint".equals(name) && value == null) {
+                checkpoint = true;
+            } else {
+                throw new FlywayException("Unknown option " + option.group() + " in " + matcher.group().trim());
+            }
+        }
+        return new DuckChunkedBackfill(matcher.group().trim(), size, key, checkpoint);
+    }
+
+    /**
+     * @return The directive as written, so that it can be parsed again.
+     */
+    String getDirective() {
+        return directive;
+    }
+
+    /**
+     * @param sqlScript The script the statement belongs to, or {@code null} if it is not known.
+     * @param line      The line of the script the statement starts at.
+     */
+    Results execute(JdbcTemplate jdbcTemplate, Configuration config, SqlScript sqlScript, int line, String sql) {
+        Results results = new Results();
+        Connection connection = jdbcTemplate.getConnection();
+        try {
+            if (!connection.getAutoCommit()) {
+                throw new FlywayException("Chunked statements commit after every chunk and can not run inside a"
+                        + " transaction. Move the statement into a migration of its own or enable flyway.mixed.");
+            }
+            DuckDBConfigurationExtension duckConfiguration =
+                    config.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+            long chunkSize = size > 0 ? size : duckConfiguration.getChunkSize();
+            Plan plan = plan(stripComments(sql));
+            String schema = DuckParallelMigrator.getSchema(config, connection);
+            String progressTable = getProgressTable(schema, config.getTable());
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + progressTable + " (\"statement\" VARCHAR PRIMARY KEY,"
+                        + " \"script\" VARCHAR, \"history_rank\" BIGINT NOT NULL, \"next_key\" BIGINT NOT NULL,"
+                        + " \"last_key\" BIGINT NOT NULL, \"row_count\" BIGINT NOT NULL)");
+            }
+            String script = getMigrationScript(config, sqlScript);
+            String historyTable = script == null ? null : getHistoryTable(schema, config.getTable());
+            MessageDigest digest = DuckSupport.sha256();
+            DuckSupport.update(digest, script);
+            DuckSupport.update(digest, String.valueOf(line));
+            DuckSupport.update(digest, sql);
+            String id = DuckSupport.hex(digest.digest());
+
+            long next;
+            long last;
+            long rows;
+            long historyRank;
+            long[] progress = readProgress(connection, progressTable, historyTable, id);
+            if (progress != null && progress[0] > progress[1]) {
+                LOG.info("Skipping chunked statement completed by an earlier attempt, " + progress[2]
+                        + " rows affected");
+                results.addResult(new Result(progress[2], null, null, sql));
+                return results;
+            } else if (progress != null) {
+                next = progress[0];
+                last = progress[1];
+                rows = progress[2];
+                historyRank = progress[3];
+                LOG.info("Resuming chunked statement at " + plan.key + " " + next + " of " + last);
+            } else {
+                long[] bounds = readBounds(connection, plan);
+                if (bounds == null) {
+                    results.addResult(new Result(0, null, null, sql));
+                    return results;
+                }
+                next = bounds[0];
+                last = bounds[1];
+                rows = 0;
+                historyRank = historyTable == null ? 0 : Long.parseLong(DuckSupport.queryForString(connection,
+                        "SELECT coalesce(max(\"installed_rank\"), 0) FROM " + historyTable));
+            }
+
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            int chunks = 0;
+            long chunkLast = next - 1;
+            while (chunkLast < last) {
+                long first = chunkLast + 1;
+                chunkLast = last - first < chunkSize ? last : first + chunkSize - 1;
+                rows += executeChunk(connection, plan, progressTable, id, script, historyRank, first, chunkLast, last,
+                        rows);
+                chunks++;
+                LOG.debug("Committed chunk " + plan.key + " " + first + " to " + chunkLast + " of " + last);
+                if (checkpoint) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("CHECKPOINT");
+                    }
+                }
+            }
+            stopWatch.stop();
+            LOG.info("Executed chunked statement in " + chunks + " chunks of " + chunkSize + " " + plan.key
+                    + " values, " + rows + " rows affected (execution time "
+                    + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+            results.addResult(new Result(rows, null, null, sql));
+        } catch (SQLException e) {
+            jdbcTemplate.extractErrors(results, e);
+        }
+        return results;
+    }
+
+    /**
+     * @param schema       The schema of the schema history table, optionally qualified with its database.
+     * @param historyTable The name of the schema history table.
+     * @return The quoted table keeping the position reached by chunked statements, next to the schema history table.
+     */
+    private static String getProgressTable(String schema, String historyTable) {
+        return DuckSupport.quoteSchema(schema) + "." + DuckSupport.quote(historyTable + "_chunks");
+    }
+
+    private static String getHistoryTable(String schema, String historyTable) {
+        return DuckSupport.quoteSchema(schema) + "." + DuckSupport.quote(historyTable);
+    }
+
+    /**
+     * Removes the positions of the attempts the schema history table has since recorded as successful.
+     *
+     * @param schema       The schema of the schema history table, optionally qualified with its database.
+     * @param historyTable The name of the schema history table.
+     */
+    static void clearRecorded(Connection connection, String schema, String historyTable) throws SQLException {
+        int dot = schema.indexOf('.');
+        try (PreparedStatement statement = connection.prepareStatement("SELECT count(*) FROM duckdb_tables()"
+                + " WHERE database_name = " + (dot < 0 ? "current_database()" : "?")
+                + " AND schema_name = ? AND table_name = ?")) {
+            int index = 1;
+            if (dot >= 0) {
+                statement.setString(index++, schema.substring(0, dot));
+            }
+            statement.setString(index++, dot < 0 ? schema : schema.substring(dot + 1));
+            statement.setString(index, historyTable + "_chunks");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || resultSet.getInt(1) == 0) {
+                    return;
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            int removed = statement.executeUpdate("DELETE FROM " + getProgressTable(schema, historyTable) + " c"
+                    + " WHERE " + recordedSince(getHistoryTable(schema, historyTable)));
+            if (removed > 0) {
+                LOG.debug("Removed the positions of " + removed + " chunked statements of recorded migrations");
+            }
+        }
+    }
+
+    /**
+     * @return A condition on a position {@code c}, true once the schema history table records its migration as
+     * successful after the attempt that kept it.
+     */
+    private static String recordedSince(String historyTable) {
+        return "EXISTS (SELECT 1 FROM " + historyTable + " h WHERE h.\"script\" = c.\"script\" AND h.\"success\""
+                + " AND h.\"installed_rank\" > c.\"history_rank\")";
+    }
+
+    /**
+     * @return The script of the migration as recorded in the schema history table, or {@code null} if the statement
+     * does not belong to a migration, such as the statements of callback scripts.
+     */
+    private static String getMigrationScript(Configuration config, SqlScript sqlScript) {
+        if (sqlScript == null) {
+            return null;
+        }
+        ResourceName resourceName = new ResourceNameParser(config).parse(sqlScript.getResource().getFilename());
+        if (!resourceName.isValid() || Event.fromId(resourceName.getPrefix()) != null) {
+            return null;
+        }
+        return sqlScript.getResource().getRelativePath();
+    }
+
+    /**
+     * Executes the statement for the keys from {@code first} to {@code chunkLast} and records the position reached in
+     * the same transaction. The position reached by the last chunk of a migration marks the statement as completed;
+     * for a statement without migration, the record is removed with the last chunk instead.
+     */
+    private static long executeChunk(Connection connection, Plan plan, String progressTable, String id, String script,
+                                     long historyRank, long first, long chunkLast, long last, long rows)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            long affected;
+            try (Statement statement = connection.createStatement()) {
+                affected = statement.executeUpdate(plan.forRange(first, chunkLast));
+            }
+            if (chunkLast < last || script != null) {
+                try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO " + progressTable
+                        + " VALUES (?, ?, ?, ?, ?, ?)")) {
+                    statement.setString(1, id);
+                    statement.setString(2, script);
+                    statement.setLong(3, historyRank);
+                    statement.setLong(4, chunkLast + 1);
+                    statement.setLong(5, last);
+                    statement.setLong(6, rows + affected);
+                    statement.executeUpdate();
+                }
+            } else {
+                try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + progressTable
+                        + " WHERE \"statement\" = ?")) {
+                    statement.setString(1, id);
+                    statement.executeUpdate();
+                }
+            }
+            connection.commit();
+            return affected;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollback) {
+                LOG.debug("Unable to roll back chunk: " + rollback.getMessage());
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * @param historyTable The schema history table, or {@code null} if the statement does not belong to a migration.
+     * @return The next key, the last key, the rows affected so far and the history rank of the attempt, or
+     * {@code null} if no attempt is in progress.
+     */
+    private static long[] readProgress(Connection connection, String progressTable, String historyTable, String id)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT \"next_key\", \"last_key\", \"row_count\","
+                + " \"history_rank\" FROM " + progressTable + " c WHERE \"statement\" = ?"
+                + (historyTable == null ? "" : " AND NOT " + recordedSince(historyTable)))) {
+            statement.setString(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next()
+                        ? new long[]{resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3), resultSet.getLong(4)}
+                        : null;
+            }
+        }
+    }
+
+    /**
+     * @return The smallest and largest key of the driving table, or {@code null} if it is empty.
+     */
+    private static long[] readBounds(Connection connection, Plan plan) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT min(" + plan.key + "), max(" + plan.key + ") FROM "
+                     + plan.table)) {
+            if (!resultSet.next() || resultSet.getString(1) == null) {
+                return null;
+            }
+            try {
+                return new long[]{Long.parseLong(resultSet.getString(1)), Long.parseLong(resultSet.getString(2))};
+            } catch (NumberFormatException e) {
+                throw new FlywayException("Chunk key " + plan.key + " of " + plan.table + " must be an integer column");
+            }
+        }
+    }
+
+    /**
+     * Finds the table the statement is driven by and where the range predicate goes, and refuses statements that
+     * would give a different result when applied to one range at a time.
+     */
+    private Plan plan(String sql) {
+        String table;
+        String qualifier;
+        String target;
+        int fromEnd;
+        int drivingFrom = -1;
+        Matcher update = UPDATE.matcher(sql);
+        Matcher insert = INSERT.matcher(sql);
+        if (update.find()) {
+            table = update.group(1);
+            qualifier = update.group(2) != null ? update.group(2) : table;
+            target = table;
+            fromEnd = update.end();
+        } else if (insert.find()) {
+            int select = DuckSupport.findTopLevel(sql, "SELECT", 0);
+            drivingFrom = select < 0 ? -1 : DuckSupport.findTopLevel(sql, "FROM", select);
+            Matcher matcher = drivingFrom < 0 ? null : FROM.matcher(sql.substring(drivingFrom));
+            if (matcher == null || !matcher.find()) {
+                throw new FlywayException("Unable to chunk statement, INSERT must read from a table with SELECT ... FROM: "
+                        + sql);
+            }
+            table = matcher.group(1);
+            qualifier = matcher.group(2) != null ? matcher.group(2) : table;
+            target = insert.group(1);
+            fromEnd = drivingFrom + matcher.end();
+            if (tableName(table).equals(tableName(target))) {
+                throw new FlywayException("Unable to chunk statement reading the table it inserts into: " + sql);
+            }
+        } else {
+            throw new FlywayException("Unable to chunk statement, only UPDATE and INSERT ... SELECT can be chunked: "
+                    + sql);
+        }
+        for (String clause : UNCHUNKABLE) {
+            if (DuckSupport.findTopLevel(sql, clause, 0) >= 0) {
+                throw new FlywayException("Unable to chunk statement with " + clause + ": " + sql);
+            }
+        }
+        for (String clause : UNCHUNKABLE_ANYWHERE) {
+            if (DuckSupport.findAnywhere(sql, clause, 0) >= 0) {
+                throw new FlywayException("Unable to chunk statement with " + clause + ": " + sql);
+            }
+        }
+        for (String aggregate : AGGREGATES) {
+            if (findTopLevelCall(sql, aggregate)) {
+                throw new FlywayException("Unable to chunk statement with aggregate " + aggregate + " outside a"
+                        + " subquery: " + sql);
+            }
+        }
+        for (String keyword : new String[]{"FROM", "JOIN"}) {
+            for (int i = DuckSupport.findAnywhere(sql, keyword, 0); i >= 0;
+                 i = DuckSupport.findAnywhere(sql, keyword, i + keyword.length())) {
+                if (i == drivingFrom) {
+                    continue;
+                }
+                Matcher read = TABLE.matcher(sql).region(i + keyword.length(), sql.length());
+                if (read.lookingAt() && tableName(read.group(1)).equals(tableName(target))) {
+                    throw new FlywayException("Unable to chunk statement reading the table it writes in " + keyword
+                            + ": " + sql);
+                }
+            }
+        }
+        String column = key != null ? key : "rowid";
+        return new Plan(sql, table, column, qualifier + "." + column, DuckSupport.findTopLevel(sql, "WHERE", fromEnd));
+    }
+
+    /**
+     * @return Whether {@code function} is called outside parentheses.
+     */
+    private static boolean findTopLevelCall(String sql, String function) {
+        for (int i = DuckSupport.findTopLevel(sql, function, 0); i >= 0;
+             i = DuckSupport.findTopLevel(sql, function, i + function.length())) {
+            int next = i + function.length();
+            while (next < sql.length() && Character.isWhitespace(sql.charAt(next))) {
+                next++;
+            }
+            if (next < sql.length() && sql.charAt(next) == '(') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The name of a possibly qualified table, unqualified, unquoted and lower-cased.
+     */
+    private static String tableName(String name) {
+        Matcher part = KEY.matcher(name);
+        String last = name;
+        while (part.find()) {
+            last = part.group();
+        }
+        // DuckDB matches identifiers case-insensitively, quoted or not
+        String unquoted = last.startsWith("\"") ? last.substring(1, last.length() - 1).replace("\"\"", "\"") : last;
+        return unquoted.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return The comments preceding the statement, which Flyway includes in its SQL.
+     */
+    static String leadingComments(String sql) {
+        return sql.substring(0, skipComments(sql));
+    }
+
+    /**
+     * @return The statement without the comments preceding it and without a trailing semicolon.
+     */
+    private static String stripComments(String sql) {
+        String statement = sql.substring(skipComments(sql)).trim();
+        return statement.endsWith(";") ? statement.substring(0, statement.length() - 1).trim() : statement;
+    }
+
+    private static int skipComments(String sql) {
+        int start = 0;
+        while (start < sql.length()) {
+            if (Character.isWhitespace(sql.charAt(start))) {
+                start++;
+            } else if (sql.startsWith("--", start)) {
+                int end = sql.indexOf('\n', start);
+                start = end < 0 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", start)) {
+                int end = sql.indexOf("*/", start + 2);
+                start = end < 0 ? sql.length() : end + 2;
+            } else {
+                break;
+            }
+        }
+        return start;
+    }
+
+    private static final class Plan {
+        private final String sql;
+        private final String table;
+        /**
+         * The key column as read from {@link #table} when determining the range.
+         */
+        private final String key;
+        /**
+         * The key column as referred to within the statement.
+         */
+        private final String qualifiedKey;
+        private final int where;
+
+        Plan(String sql, String table, String key, String qualifiedKey, int where) {
+            this.sql = sql;
+            this.table = table;
+            this.key = key;
+            this.qualifiedKey = qualifiedKey;
+            this.where = where;
+        }
+
+        String forRange(long first, long last) {
+            String range = qualifiedKey + " BETWEEN " + first + " AND " + last;
+            if (where < 0) {
+                return sql + " WHERE " + range;
+            }
+            int condition = where + "WHERE".length();
+            return sql.substring(0, condition) + " (" + sql.substring(condition).trim() + ") AND " + range;
+        }
+    }
+}
@@ -11,23 +11,109 @@ import java.util.concurrent.Callable;
 
 public class DuckConnection extends Connection<DuckDBDatabase> {
 
+    private final DuckMetadata metadata;
+    private String currentCatalog;
+
     protected DuckConnection(DuckDBDatabase database, java.sql.Connection connection) {
         super(database, connection);
+        DuckDBConfigurationExtension duckConfiguration = database.getDuckConfiguration();
+        this.metadata = duckConfiguration.isMetadataCache()
+                ? new DuckMetadataCache(jdbcTemplate, duckConfiguration.getMetadataCacheTtl())
+                : new DuckMetadata(jdbcTemplate);
+    }
+
+    /**
+     * @return The metadata of this connection, cached if {@code flyway.duckdb.metadataCache} is enabled.
+     */
+    public DuckMetadata getMetadata() {
+        return metadata;
     }
 
+    /**
+     * @return The search path, which also determines the current database. Empty when it has not been changed.
+     */
     @Override
     protected String getCurrentSchemaNameOrSearchPath() throws SQLException {
-        return "main";
+        return jdbcTemplate.queryForString("SELECT current_setting('search_path')");
+    }
+
+    @Override
+    protected Schema<DuckDBDatabase, DuckTable> doGetCurrentSchema() throws SQLException {
+        return getSchema(jdbcTemplate.queryForString("SELECT current_schema()"));
     }
 
+    /**
+     * Sets the search path, which is either a schema from the configuration or the original search path being restored.
+     * A schema qualified with its database, as in {@code analytics.main}, makes that database the current one. A plain
+     * schema name is qualified with the current database, so that the current database does not change.
+     */
     @Override
-    public Schema getSchema(String name) {
-        return new DuckSchema(jdbcTemplate, database, name);
+    protected void doChangeCurrentSchemaOrSearchPathTo(String schema) throws SQLException {
+        jdbcTemplate.execute(DuckSupport.setSearchPath(getCurrentCatalog(), schema));
+        currentCatalog = null;
+    }
+
+    /**
+     * @param name The name of the schema, optionally qualified with the attached database it belongs to, as in
+     *             {@code analytics.main}. Otherwise it belongs to the current database.
+     */
+    @Override
+    public Schema<DuckDBDatabase, DuckTable> getSchema(String name) {
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            return new DuckSchema(jdbcTemplate, database, metadata, getCurrentCatalog(), name, name);
+        }
+        return new DuckSchema(jdbcTemplate, database, metadata, name.substring(0, dot), name.substring(dot + 1), name);
+    }
+
+    private String getCurrentCatalog() {
+        if (currentCatalog == null) {
+            try {
+                currentCatalog = jdbcTemplate.queryForString("SELECT current_database()");
+            } catch (SQLException e) {
+                throw new FlywaySqlException("Unable to determine the current DuckDB database", e);
+            }
+        }
+        return currentCatalog;
     }
 
+    /**
+     * Flyway takes this lock around every migration (or around all of them with {@code flyway.group}), after which the
+     * migration has been committed and recorded, so that the positions of its chunked statements can be removed and the
+     * database can be checkpointed. The file lock serializes Flyway instances
+     * within this JVM, which share DuckDB's database instance. Another process can not open the database until it is
+     * closed, and only waits for it when it connects through {@link DuckLockingDataSource}.
+     */
     @Override
     public <T> T lock(Table table, Callable<T> callable) {
-        return execute(callable);
+        DuckFileLock fileLock = database.getFileLock();
+        if (fileLock == null) {
+            return afterMigration(table, callable);
+        }
+        fileLock.acquire();
+        try {
+            return afterMigration(table, callable);
+        } finally {
+            fileLock.release();
+        }
+    }
+
+    private <T> T afterMigration(Table table, Callable<T> callable) {
+        T result = execute(callable);
+        if (database.takeChunkProgressKept()) {
+            DuckSchema schema = (DuckSchema) table.getSchema();
+            try {
+                DuckChunkedBackfill.clearRecorded(jdbcTemplate.getConnection(),
+                        schema.getCatalog() + "." + schema.getSchemaName(), table.getName());
+            } catch (SQLException e) {
+                throw new FlywaySqlException("Unable to remove the positions of chunked statements", e);
+            }
+        }
+        DuckCheckpointer checkpointer = database.getCheckpointer();
+        if (checkpointer != null) {
+            checkpointer.afterMigration();
+        }
+        return result;
     }
 
     private <T> T execute(Callable<T> callable) {
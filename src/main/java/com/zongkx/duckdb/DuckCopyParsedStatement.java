@@ -0,0 +1,137 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.jdbc.Result;
+import org.flywaydb.core.internal.jdbc.Results;
+import org.flywaydb.core.internal.sqlscript.Delimiter;
+import org.flywaydb.core.internal.sqlscript.ParsedSqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlScriptExecutor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@code COPY ... FROM STDIN} statement with its inline data block in Postgres text format. DuckDB has no STDIN to
+ * copy from, so the rows are loaded through {@link DuckBulkLoader} instead.
+ */
+public class DuckCopyParsedStatement extends ParsedSqlStatement {
+    private static final Pattern COPY_PATTERN = Pattern.compile(
+            "^COPY\\s+(?:(\"(?:[^\"]|\"\")+\"|\\w+)\\s*\\.\\s*)?(\"(?:[^\"]|\"\")+\"|\\w+)\\s*(?:\\((.*)\\))?\\s*FROM\\s+STDIN\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String copyData;
+
+    public DuckCopyParsedStatement(int pos, int line, int col, String sql, String copyData) {
+        super(pos, line, col, sql, Delimiter.SEMICOLON, true, false);
+        this.copyData = copyData;
+    }
+
+    /**
+     * @return The rows of the inline data block, one per line.
+     */
+    String getCopyData() {
+        return copyData;
+    }
+
+    @Override
+    public Results execute(JdbcTemplate jdbcTemplate, SqlScriptExecutor sqlScriptExecutor, Configuration config) {
+        Matcher matcher = COPY_PATTERN.matcher(getSql());
+        if (!matcher.matches()) {
+            throw new FlywayException("Unsupported COPY statement, only the text format without options is supported"
+                    + " for COPY ... FROM STDIN: " + getSql());
+        }
+        String schema = matcher.group(1);
+        String table = matcher.group(2);
+        String columns = matcher.group(3);
+
+        List<List<String>> rows = new ArrayList<>();
+        for (String line : copyData.split("\r?\n")) {
+            if (!line.isEmpty()) {
+                rows.add(parseRow(line));
+            }
+        }
+
+        Results results = new Results();
+        try {
+            long rowCount;
+            if (columns == null) {
+                try (DuckBulkLoader loader = new DuckBulkLoader(jdbcTemplate, unquote(schema), unquote(table))) {
+                    for (List<String> row : rows) {
+                        loader.append(row);
+                    }
+                    rowCount = loader.getRowCount();
+                }
+            } else {
+                String qualifiedTable = schema == null ? table : schema + "." + table;
+                rowCount = DuckBulkLoader.insert(jdbcTemplate, qualifiedTable, Arrays.asList(columns.split("\\s*,\\s*")), rows);
+            }
+            results.addResult(new Result(rowCount, null, null, getSql()));
+        } catch (SQLException e) {
+            jdbcTemplate.extractErrors(results, e);
+        }
+        return results;
+    }
+
+    private static String unquote(String identifier) {
+        if (identifier == null || !identifier.startsWith("\"")) {
+            return identifier;
+        }
+        return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+    }
+
+    /**
+     * Splits a line of Postgres text format into its values: columns are separated by tabs, {@code \N} is NULL and
+     * backslash escapes are resolved.
+     */
+    private static List<String> parseRow(String line) {
+        List<String> values = new ArrayList<>();
+        for (String field : line.split("\t", -1)) {
+            values.add("\\N".equals(field) ? null : unescape(field));
+        }
+        return values;
+    }
+
+    private static String unescape(String field) {
+        if (field.indexOf('\\') < 0) {
+            return field;
+        }
+        StringBuilder value = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c != '\\' || i == field.length() - 1) {
+                value.append(c);
+                continue;
+            }
+            char escaped = field.charAt(++i);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'v':
+                    value.append('\u000B');
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,313 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.internal.database.base.Database;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.JdbcConnectionFactory;
+import org.flywaydb.core.internal.parser.ParsingContext;
+import org.flywaydb.core.internal.resource.StringResource;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlStatementIterator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates the cost of the pending migrations before they are applied, by running every statement of every pending
+ * SQL migration, as split by {@link DuckParser}, through DuckDB's {@code EXPLAIN}. Use
+ * {@code new DuckCostAnalyzer(flyway).analyze()}.
+ * <p>
+ * For each statement the scans, joins, sorts and aggregates of its plan and the largest cardinality DuckDB estimates
+ * are collected, and statements rewriting or reading a whole table ({@code UPDATE} or {@code DELETE} without a
+ * top-level {@code WHERE}, {@code CREATE INDEX}, {@code ALTER TABLE ... ALTER COLUMN ... TYPE} and
+ * {@code ALTER TABLE ... ADD COLUMN ... DEFAULT}) are flagged with the size of that table. Statements reaching
+ * {@code flyway.duckdb.expensiveRows} rows are reported as expensive.
+ * <p>
+ * No data is changed: the statements that only change the catalog ({@code CREATE TABLE}, {@code CREATE VIEW},
+ * {@code DROP}, ...) are executed so that later statements referring to their objects can be explained, with tables
+ * created from a query created empty, in a transaction that is rolled back at the end. Java and data migrations are
+ * skipped.
+ */
+public class DuckCostAnalyzer {
+    private static final Log LOG = LogFactory.getLog(DuckCostAnalyzer.class);
+    private static final String NAME = "((?:\"(?:[^\"]|\"\")+\"|\\w+)(?:\\s*\\.\\s*(?:\"(?:[^\"]|\"\")+\"|\\w+)){0,2})";
+    private static final Pattern LEADING_COMMENTS = Pattern.compile("^(?:\\s+|--[^\\n]*(?:\\n|$)|/\\*.*?\\*/)*",
+            Pattern.DOTALL);
+    private static final Pattern EXPLAINABLE = Pattern.compile(
+            "^(?:(?:SELECT|WITH|FROM|VALUES|INSERT|UPDATE|DELETE)\\b|CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:TEMP(?:ORARY)?\\s+)?TABLE\\s.*?\\sAS\\s).*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern CATALOG_ONLY = Pattern.compile(
+            "^(?:(?:CREATE|DROP)\\s+(?:OR\\s+REPLACE\\s+)?(?:TEMP(?:ORARY)?\\s+)?(?:TABLE|VIEW|SCHEMA|SEQUENCE|TYPE|MACRO|FUNCTION)|COMMENT)\\b.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern CREATE_TABLE_AS = Pattern.compile(
+            "^(CREATE\\s+(?:OR\\s+REPLACE\\s+)?(?:TEMP(?:ORARY)?\\s+)?TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + NAME
+                    + "(?:\\s*\\([^)]*\\))?)\\s+AS\\s+(.*?)\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern UPDATE = Pattern.compile("^UPDATE\\s+(?:ONLY\\s+)?" + NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern DELETE = Pattern.compile("^DELETE\\s+FROM\\s+(?:ONLY\\s+)?" + NAME,
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_INDEX = Pattern.compile(
+            "^CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s.*?\\bON\\s+" + NAME, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ALTER_REWRITE = Pattern.compile("^ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?" + NAME
+            + "\\s+(?:ALTER\\s+(?:COLUMN\\s+)?(?:\"(?:[^\"]|\"\")+\"|\\w+)\\s+(?:SET\\s+DATA\\s+)?TYPE\\b"
+            + "|ADD\\s+(?:COLUMN\\s+)?.*\\bDEFAULT\\b)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern OPERATOR = Pattern.compile("\\b(SEQ_SCAN|TABLE_SCAN|INDEX_SCAN|READ_PARQUET"
+            + "|READ_CSV(?:_AUTO)?|PARQUET_SCAN|HASH_JOIN|NESTED_LOOP_JOIN|PIECEWISE_MERGE_JOIN|BLOCKWISE_NL_JOIN"
+            + "|CROSS_PRODUCT|ASOF_JOIN|IE_JOIN|POSITIONAL_JOIN|ORDER_BY|TOP_N|WINDOW|STREAMING_WINDOW"
+            + "|HASH_GROUP_BY|PERFECT_HASH_GROUP_BY)\\b");
+    private static final Pattern CARDINALITY = Pattern.compile("~\\s*([0-9][0-9,]*)\\s*rows?\\b|\\bEC:\\s*([0-9]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final Flyway flyway;
+
+    public DuckCostAnalyzer(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    public DuckCostReport analyze() {
+        Configuration configuration = flyway.getConfiguration();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        MigrationInfo[] pending = flyway.info().pending();
+        List<DuckCostEstimate> estimates = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+
+        ParsingContext parsingContext = createParsingContext(configuration);
+        try (Connection connection = configuration.getDataSource().getConnection()) {
+            Session session = new Session(connection, duckConfiguration.getExpensiveRows());
+            connection.setAutoCommit(false);
+            try {
+                session.useSchema(DuckParallelMigrator.getSchema(configuration, connection));
+                for (MigrationInfo migration : pending) {
+                    ResolvedMigration resolved = DuckParallelMigrator.getResolvedMigration(migration);
+                    if (resolved.getType() != CoreMigrationType.SQL) {
+                        skipped.add(migration.getScript() + ": not a SQL migration");
+                        continue;
+                    }
+                    String sql = DuckParallelMigrator.readScript(configuration, resolved);
+                    if (sql == null) {
+                        skipped.add(migration.getScript() + ": unable to read the script");
+                        continue;
+                    }
+                    List<SqlStatement> statements;
+                    try {
+                        statements = parse(configuration, parsingContext, resolved.getScript(), sql);
+                    } catch (FlywayException e) {
+                        skipped.add(migration.getScript() + ": " + e.getMessage());
+                        continue;
+                    }
+                    for (SqlStatement statement : statements) {
+                        if (statement instanceof DuckSqlStatement) {
+                            estimates.add(session.estimate(migration.getScript(), statement));
+                        }
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to analyze pending migrations", e);
+        }
+
+        DuckCostReport report = new DuckCostReport(estimates, skipped);
+        LOG.info(report.format());
+        return report;
+    }
+
+    /**
+     * @return The parsing context Flyway would parse the migrations with, holding the built-in placeholders of the
+     * configured database.
+     */
+    private static ParsingContext createParsingContext(Configuration configuration) {
+        ParsingContext parsingContext = new ParsingContext();
+        try (JdbcConnectionFactory connectionFactory =
+                     new JdbcConnectionFactory(configuration.getDataSource(), configuration, null);
+             Database<?> database = connectionFactory.getDatabaseType()
+                     .createDatabase(configuration, connectionFactory, null)) {
+            parsingContext.populate(database, configuration);
+        }
+        return parsingContext;
+    }
+
+    private static List<SqlStatement> parse(Configuration configuration, ParsingContext parsingContext, String script,
+                                            String sql) {
+        String filename = script.substring(script.lastIndexOf('/') + 1);
+        // Named after the script, so that the parser sets ${flyway:filename}
+        StringResource resource = new StringResource(sql) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+
+            @Override
+            public String getRelativePath() {
+                return script;
+            }
+        };
+        List<SqlStatement> statements = new ArrayList<>();
+        try (SqlStatementIterator iterator = new DuckParser(configuration, parsingContext).parse(resource)) {
+            while (iterator.hasNext()) {
+                statements.add(iterator.next());
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * The transaction statements are explained in. DuckDB aborts a transaction on the first error, so after a failed
+     * {@code EXPLAIN} it is rolled back and the catalog changes made so far are replayed into a new one.
+     */
+    private static final class Session {
+        private final Connection connection;
+        private final long expensiveRows;
+        private final List<String> catalogChanges = new ArrayList<>();
+
+        private Session(Connection connection, long expensiveRows) {
+            this.connection = connection;
+            this.expensiveRows = expensiveRows;
+        }
+
+        private void useSchema(String schema) throws SQLException {
+            applyCatalogChange("CREATE SCHEMA IF NOT EXISTS " + DuckSupport.quoteSchema(schema));
+            execute("SET search_path = '" + schema.replace("'", "''") + "'");
+        }
+
+        private DuckCostEstimate estimate(String migration, SqlStatement statement) throws SQLException {
+            String sql = LEADING_COMMENTS.matcher(statement.getSql()).replaceFirst("");
+            List<String> operators = new ArrayList<>();
+            long estimatedRows = -1;
+            String error = null;
+
+            String rewrittenTable = getRewrittenTable(sql);
+            long rewrittenRows = rewrittenTable == null ? -1 : getTableRows(rewrittenTable);
+
+            if (EXPLAINABLE.matcher(sql).matches()) {
+                try {
+                    String plan = explain(sql);
+                    Matcher operator = OPERATOR.matcher(plan);
+                    while (operator.find()) {
+                        operators.add(operator.group(1));
+                    }
+                    Matcher cardinality = CARDINALITY.matcher(plan);
+                    while (cardinality.find()) {
+                        String rows = cardinality.group(1) != null ? cardinality.group(1) : cardinality.group(2);
+                        estimatedRows = Math.max(estimatedRows, Long.parseLong(rows.replace(",", "")));
+                    }
+                } catch (SQLException e) {
+                    error = firstLine(e.getMessage());
+                    recover();
+                }
+            }
+            Matcher createTableAs = CREATE_TABLE_AS.matcher(sql);
+            if (createTableAs.matches()) {
+                applyCatalogChange(createTableAs.group(1) + " AS SELECT * FROM (" + createTableAs.group(3) + ") LIMIT 0");
+            } else if (CATALOG_ONLY.matcher(sql).matches()) {
+                applyCatalogChange(sql);
+            }
+
+            boolean expensive = (expensiveRows > 0)
+                    && (estimatedRows >= expensiveRows || rewrittenRows >= expensiveRows);
+            return new DuckCostEstimate(migration, statement.getLineNumber(), statement.getSql(), operators,
+                    estimatedRows, rewrittenTable, rewrittenRows, expensive, error);
+        }
+
+        private static String getRewrittenTable(String sql) {
+            Matcher matcher = UPDATE.matcher(sql);
+            if (matcher.find() || (matcher = DELETE.matcher(sql)).find()) {
+                return DuckSupport.findTopLevel(sql, "WHERE", 0) >= 0 ? null : matcher.group(1);
+            }
+            matcher = CREATE_INDEX.matcher(sql);
+            if (matcher.find() || (matcher = ALTER_REWRITE.matcher(sql)).find()) {
+                return matcher.group(1);
+            }
+            return null;
+        }
+
+        /**
+         * @return DuckDB's estimate of the number of rows of a table, or {@code -1} if it is not known.
+         */
+        private long getTableRows(String table) throws SQLException {
+            List<String> parts = new ArrayList<>();
+            for (String part : table.split("\\s*\\.\\s*(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")) {
+                parts.add(part.startsWith("\"") ? part.substring(1, part.length() - 1).replace("\"\"", "\"") : part);
+            }
+            String query = "SELECT estimated_size FROM duckdb_tables() WHERE table_name = ?"
+                    + (parts.size() > 1 ? " AND schema_name = ?" : " AND schema_name = current_schema()")
+                    + (parts.size() > 2 ? " AND database_name = ?" : " AND database_name = current_database()");
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                statement.setString(1, parts.get(parts.size() - 1));
+                if (parts.size() > 1) {
+                    statement.setString(2, parts.get(parts.size() - 2));
+                }
+                if (parts.size() > 2) {
+                    statement.setString(3, parts.get(0));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : -1;
+                }
+            } catch (SQLException e) {
+                LOG.debug("Unable to estimate the size of " + table + ": " + e.getMessage());
+                recover();
+                return -1;
+            }
+        }
+
+        private String explain(String sql) throws SQLException {
+            StringBuilder plan = new StringBuilder();
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+                int column = resultSet.getMetaData().getColumnCount();
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(column)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+
+        private void applyCatalogChange(String sql) throws SQLException {
+            try {
+                execute(sql);
+                catalogChanges.add(sql);
+            } catch (SQLException e) {
+                LOG.debug("Unable to apply catalog change for analysis: " + e.getMessage());
+                recover();
+            }
+        }
+
+        private void recover() throws SQLException {
+            connection.rollback();
+            for (String sql : catalogChanges) {
+                execute(sql);
+            }
+        }
+
+        private void execute(String sql) throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        }
+
+        private static String firstLine(String message) {
+            if (message == null) {
+                return "unknown error";
+            }
+            int newLine = message.indexOf('\n');
+            return newLine < 0 ? message : message.substring(0, newLine);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.zongkx.duckdb;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What DuckDB's {@code EXPLAIN} tells about a statement of a pending migration, without executing it.
+ */
+public final class DuckCostEstimate {
+    private final String migration;
+    private final int lineNumber;
+    private final String sql;
+    private final List<String> operators;
+    private final long estimatedRows;
+    private final String rewrittenTable;
+    private final long rewrittenRows;
+    private final boolean expensive;
+    private final String error;
+
+    DuckCostEstimate(String migration, int lineNumber, String sql, List<String> operators, long estimatedRows,
+                     String rewrittenTable, long rewrittenRows, boolean expensive, String error) {
+        this.migration = migration;
+        this.lineNumber = lineNumber;
+        this.sql = sql;
+        this.operators = Collections.unmodifiableList(operators);
+        this.estimatedRows = estimatedRows;
+        this.rewrittenTable = rewrittenTable;
+        this.rewrittenRows = rewrittenRows;
+        this.expensive = expensive;
+        this.error = error;
+    }
+
+    /**
+     * @return The file name of the migration script.
+     */
+    public String getMigration() {
+        return migration;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The scans, joins, sorts and aggregates of the plan, e.g. {@code SEQ_SCAN} or {@code HASH_JOIN}, in the
+     * order they appear in the plan.
+     */
+    public List<String> getOperators() {
+        return operators;
+    }
+
+    /**
+     * @return The largest cardinality DuckDB estimates for any operator of the plan, or {@code -1} if the plan has
+     * none.
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * @return The table the statement rewrites or reads as a whole, e.g. an {@code UPDATE} without {@code WHERE} or a
+     * {@code CREATE INDEX}, or {@code null} if it does not.
+     */
+    public String getRewrittenTable() {
+        return rewrittenTable;
+    }
+
+    /**
+     * @return The estimated number of rows of the rewritten table, or {@code -1} if unknown.
+     */
+    public long getRewrittenRows() {
+        return rewrittenRows;
+    }
+
+    /**
+     * @return Whether the plan or the rewritten table reaches {@code flyway.duckdb.expensiveRows} rows.
+     */
+    public boolean isExpensive() {
+        return expensive;
+    }
+
+    /**
+     * @return Why the statement could not be explained, e.g. because it depends on objects an earlier statement
+     * creates from data, or {@code null} if it was.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return migration + ":" + lineNumber + " (" + (error != null ? "not explained"
+                : "~" + estimatedRows + " rows" + (rewrittenTable != null ? ", rewrites " + rewrittenTable : ""))
+                + (expensive ? ", expensive" : "") + ")";
+    }
+}
@@ -0,0 +1,82 @@
+package com.zongkx.duckdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a {@link DuckCostAnalyzer} run: an estimate for every statement of every pending SQL migration, in
+ * the order they would be executed, and the migrations that could not be analyzed.
+ */
+public final class DuckCostReport {
+    private final List<DuckCostEstimate> estimates;
+    private final List<String> skipped;
+
+    DuckCostReport(List<DuckCostEstimate> estimates, List<String> skipped) {
+        this.estimates = Collections.unmodifiableList(estimates);
+        this.skipped = Collections.unmodifiableList(skipped);
+    }
+
+    public List<DuckCostEstimate> getEstimates() {
+        return estimates;
+    }
+
+    /**
+     * @return The estimates of the statements that are likely to be expensive.
+     */
+    public List<DuckCostEstimate> getExpensive() {
+        List<DuckCostEstimate> expensive = new ArrayList<>();
+        for (DuckCostEstimate estimate : estimates) {
+            if (estimate.isExpensive()) {
+                expensive.add(estimate);
+            }
+        }
+        return expensive;
+    }
+
+    /**
+     * @return The pending migrations that were not analyzed, such as Java and data migrations, with the reason.
+     */
+    public List<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return A human-readable summary listing, per migration, the statements that are likely to be expensive or
+     * that could not be explained.
+     */
+    public String format() {
+        List<DuckCostEstimate> expensive = getExpensive();
+        StringBuilder report = new StringBuilder("Analyzed ").append(estimates.size()).append(" statements, ")
+                .append(expensive.size()).append(" likely to be expensive");
+        String migration = null;
+        for (DuckCostEstimate estimate : estimates) {
+            if (!estimate.isExpensive() && estimate.getError() == null) {
+                continue;
+            }
+            if (!estimate.getMigration().equals(migration)) {
+                migration = estimate.getMigration();
+                report.append("\n  ").append(migration);
+            }
+            report.append("\n    line ").append(estimate.getLineNumber()).append(": ");
+            if (estimate.getError() != null) {
+                report.append("not explained (").append(estimate.getError()).append(')');
+                continue;
+            }
+            report.append('~').append(estimate.getEstimatedRows()).append(" rows");
+            if (estimate.getRewrittenTable() != null) {
+                report.append(", rewrites ").append(estimate.getRewrittenTable());
+                if (estimate.getRewrittenRows() >= 0) {
+                    report.append(" (~").append(estimate.getRewrittenRows()).append(" rows)");
+                }
+            }
+            if (!estimate.getOperators().isEmpty()) {
+                report.append(", ").append(String.join(" ", estimate.getOperators()));
+            }
+        }
+        for (String skip : skipped) {
+            report.append("\n  ").append(skip);
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,325 @@
+package com.zongkx.duckdb;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.flywaydb.core.extensibility.ConfigurationExtension;
+
+/**
+ * DuckDB specific configuration, bound from the {@code flyway.duckdb.*} properties.
+ */
+@Getter
+@Setter
+public class DuckDBConfigurationExtension implements ConfigurationExtension {
+    private static final String CLEAN_MODE = "flyway.duckdb.cleanMode";
+    private static final String METADATA_CACHE = "flyway.duckdb.metadataCache";
+    private static final String METADATA_CACHE_TTL = "flyway.duckdb.metadataCacheTtl";
+    private static final String STREAM = "flyway.duckdb.stream";
+    private static final String MAP_RESOURCES = "flyway.duckdb.mapResources";
+    private static final String PARSE_CACHE = "flyway.duckdb.parseCache";
+    private static final String APPENDER = "flyway.duckdb.appender";
+    private static final String BATCH = "flyway.duckdb.batch";
+    private static final String BATCH_SIZE = "flyway.duckdb.batchSize";
+    private static final String CHUNK_SIZE = "flyway.duckdb.chunkSize";
+    private static final String LOCK_TIMEOUT = "flyway.duckdb.lockTimeout";
+    private static final String LOCK_STALE_TIMEOUT = "flyway.duckdb.lockStaleTimeout";
+    private static final String LOAD_THREADS = "flyway.duckdb.loadThreads";
+    private static final String PARALLELISM = "flyway.duckdb.parallelism";
+    private static final String SHADOW_COPY = "flyway.duckdb.shadowCopy";
+    private static final String FLEET_PARALLELISM = "flyway.duckdb.fleetParallelism";
+    private static final String EXPENSIVE_ROWS = "flyway.duckdb.expensiveRows";
+    private static final String TEMPLATE_DIRECTORY = "flyway.duckdb.templateDirectory";
+    private static final String INSTRUMENT = "flyway.duckdb.instrument";
+    private static final String PROFILE = "flyway.duckdb.profile";
+    private static final String SLOW_STATEMENTS = "flyway.duckdb.slowStatements";
+    private static final String CHECKPOINT = "flyway.duckdb.checkpoint";
+    private static final String CHECKPOINT_WAL_SIZE = "flyway.duckdb.checkpointWalSize";
+    private static final String FORCE_CHECKPOINT = "flyway.duckdb.forceCheckpoint";
+    private static final String CHECKPOINT_THRESHOLD = "flyway.duckdb.checkpointThreshold";
+    private static final String THREADS = "flyway.duckdb.threads";
+    private static final String MEMORY_LIMIT = "flyway.duckdb.memoryLimit";
+    private static final String PRESERVE_INSERTION_ORDER = "flyway.duckdb.preserveInsertionOrder";
+    private static final String TEMP_DIRECTORY = "flyway.duckdb.tempDirectory";
+    private static final String MAX_TEMP_DIRECTORY_SIZE = "flyway.duckdb.maxTempDirectorySize";
+
+    /**
+     * How {@code clean} drops the objects of a schema.
+     */
+    private CleanMode cleanMode = CleanMode.STATEMENT;
+    /**
+     * Whether schema metadata is cached per connection and only re-read after DDL.
+     */
+    private boolean metadataCache = false;
+    /**
+     * Seconds after which cached schema metadata is re-read regardless of DDL. {@code 0} disables expiry.
+     */
+    private long metadataCacheTtl = 0;
+    /**
+     * Whether SQL migrations are parsed and executed one statement at a time, regardless of their size, so that
+     * memory use does not grow with the script.
+     */
+    private boolean stream = false;
+    /**
+     * Whether SQL migrations on disk are parsed from memory mappings of their files rather than through a buffered
+     * stream. Ignored when {@code flyway.detectEncoding} is set.
+     */
+    private boolean mapResources = false;
+    /**
+     * A directory in which the statements SQL migrations are split into are cached across runs, so that unchanged
+     * scripts are not parsed again. {@code null} disables the cache.
+     */
+    private String parseCache;
+    /**
+     * Whether runs of consecutive single-row {@code INSERT ... VALUES} statements into the same table are loaded
+     * through DuckDB's native appender.
+     */
+    private boolean appender = false;
+    /**
+     * Whether consecutive {@code INSERT}, {@code UPDATE} and {@code DELETE} statements are sent to DuckDB as JDBC
+     * batches, even when {@code flyway.batch} is not set.
+     */
+    private boolean batch = false;
+    /**
+     * The maximum number of statements sent to DuckDB in a single JDBC batch.
+     */
+    private int batchSize = 100;
+    /**
+     * The number of rowids or key values each transaction of a statement marked with {@code -- duckdb:chunk} covers,
+     * unless the directive sets its own {@code size}.
+     */
+    private long chunkSize = 100000;
+    /**
+     * Seconds to wait for the lock on a file-backed database held by another Flyway instance. {@code 0}, the default,
+     * disables the lock.
+     */
+    private long lockTimeout = 0;
+    /**
+     * Seconds after which a lock that is still held but no longer refreshed by its holder is reported as possibly hung.
+     * {@code 0} disables the report.
+     */
+    private long lockStaleTimeout = 60;
+    /**
+     * The number of threads DuckDB may use to load Parquet and CSV data migrations. {@code 0} keeps the current
+     * setting.
+     */
+    private int loadThreads = 0;
+    /**
+     * The number of migrations {@link DuckParallelMigrator} runs concurrently. {@code 1} migrates sequentially.
+     */
+    private int parallelism = 1;
+    /**
+     * How {@link DuckShadowMigrator} copies the database before migrating the copy.
+     */
+    private ShadowCopy shadowCopy = ShadowCopy.DATABASE;
+    /**
+     * The number of databases {@link DuckFleetMigrator} migrates concurrently. {@code 0} uses one thread per
+     * available processor.
+     */
+    private int fleetParallelism = 0;
+    /**
+     * The estimated number of rows from which {@link DuckCostAnalyzer} reports a statement as expensive. {@code 0}
+     * reports none.
+     */
+    private long expensiveRows = 1000000;
+    /**
+     * The directory in which {@link DuckMigrationTemplate} keeps its migrated templates. {@code null} uses
+     * {@code flyway-duckdb-templates} in the system temporary directory.
+     */
+    private String templateDirectory;
+    /**
+     * Whether the wall time and affected rows of every statement are recorded and reported to the
+     * {@link DuckStatementListener}s.
+     */
+    private boolean instrument = false;
+    /**
+     * Whether DuckDB's JSON query profile is captured for every statement. Implies {@code instrument}.
+     */
+    private boolean profile = false;
+    /**
+     * The number of slowest statements kept by {@link DuckStatementReport}.
+     */
+    private int slowStatements = 10;
+    /**
+     * When a file-backed database is checkpointed during {@code migrate}.
+     */
+    private CheckpointMode checkpoint = CheckpointMode.AUTO;
+    /**
+     * Bytes of WAL after which the database is checkpointed following a migration. {@code 0} disables the check.
+     */
+    private long checkpointWalSize = 0;
+    /**
+     * Whether {@code FORCE CHECKPOINT} is used instead of {@code CHECKPOINT}.
+     */
+    private boolean forceCheckpoint = false;
+    /**
+     * DuckDB's {@code checkpoint_threshold} while Flyway is connected, e.g. {@code 1GB}. {@code null} keeps the
+     * current setting.
+     */
+    private String checkpointThreshold;
+    /**
+     * DuckDB's {@code threads} while Flyway is connected. {@code 0} keeps the current setting.
+     */
+    private int threads = 0;
+    /**
+     * DuckDB's {@code memory_limit} while Flyway is connected, e.g. {@code 8GB}. {@code null} keeps the current
+     * setting.
+     */
+    private String memoryLimit;
+    /**
+     * DuckDB's {@code preserve_insertion_order} while Flyway is connected. {@code false} lets large
+     * {@code INSERT ... SELECT} and {@code CREATE TABLE ... AS} statements run in parallel with less memory.
+     * {@code null} keeps the current setting.
+     */
+    private Boolean preserveInsertionOrder;
+    /**
+     * DuckDB's {@code temp_directory}, where operators spill when they exceed the memory limit, while Flyway is
+     * connected. {@code null} keeps the current setting.
+     */
+    private String tempDirectory;
+    /**
+     * DuckDB's {@code max_temp_directory_size} while Flyway is connected, e.g. {@code 100GB}. {@code null} keeps the
+     * current setting.
+     */
+    private String maxTempDirectorySize;
+
+    @Override
+    public String getNamespace() {
+        return "duckdb";
+    }
+
+    @Override
+    public String getConfigurationParameterFromEnvironmentVariable(String environmentVariable) {
+        if ("FLYWAY_DUCKDB_CLEAN_MODE".equals(environmentVariable)) {
+            return CLEAN_MODE;
+        }
+        if ("FLYWAY_DUCKDB_METADATA_CACHE".equals(environmentVariable)) {
+            return METADATA_CACHE;
+        }
+        if ("FLYWAY_DUCKDB_METADATA_CACHE_TTL".equals(environmentVariable)) {
+            return METADATA_CACHE_TTL;
+        }
+        if ("FLYWAY_DUCKDB_STREAM".equals(environmentVariable)) {
+            return STREAM;
+        }
+        if ("FLYWAY_DUCKDB_MAP_RESOURCES".equals(environmentVariable)) {
+            return MAP_RESOURCES;
+        }
+        if ("FLYWAY_DUCKDB_PARSE_CACHE".equals(environmentVariable)) {
+            return PARSE_CACHE;
+        }
+        if ("FLYWAY_DUCKDB_APPENDER".equals(environmentVariable)) {
+            return APPENDER;
+        }
+        if ("FLYWAY_DUCKDB_BATCH".equals(environmentVariable)) {
+            return BATCH;
+        }
+        if ("FLYWAY_DUCKDB_BATCH_SIZE".equals(environmentVariable)) {
+            return BATCH_SIZE;
+        }
+        if ("FLYWAY_DUCKDB_CHUNK_SIZE".equals(environmentVariable)) {
+            return CHUNK_SIZE;
+        }
+        if ("FLYWAY_DUCKDB_LOCK_TIMEOUT".equals(environmentVariable)) {
+            return LOCK_TIMEOUT;
+        }
+        if ("FLYWAY_DUCKDB_LOCK_STALE_TIMEOUT".equals(environmentVariable)) {
+            return LOCK_STALE_TIMEOUT;
+        }
+        if ("FLYWAY_DUCKDB_LOAD_THREADS".equals(environmentVariable)) {
+            return LOAD_THREADS;
+        }
+        if ("FLYWAY_DUCKDB_PARALLELISM".equals(environmentVariable)) {
+            return PARALLELISM;
+        }
+        if ("FLYWAY_DUCKDB_SHADOW_COPY".equals(environmentVariable)) {
+            return SHADOW_COPY;
+        }
+        if ("FLYWAY_DUCKDB_FLEET_PARALLELISM".equals(environmentVariable)) {
+            return FLEET_PARALLELISM;
+        }
+        if ("FLYWAY_DUCKDB_EXPENSIVE_ROWS".equals(environmentVariable)) {
+            return EXPENSIVE_ROWS;
+        }
+        if ("FLYWAY_DUCKDB_TEMPLATE_DIRECTORY".equals(environmentVariable)) {
+            return TEMPLATE_DIRECTORY;
+        }
+        if ("FLYWAY_DUCKDB_INSTRUMENT".equals(environmentVariable)) {
+            return INSTRUMENT;
+        }
+        if ("FLYWAY_DUCKDB_PROFILE".equals(environmentVariable)) {
+            return PROFILE;
+        }
+        if ("FLYWAY_DUCKDB_SLOW_STATEMENTS".equals(environmentVariable)) {
+            return SLOW_STATEMENTS;
+        }
+        if ("FLYWAY_DUCKDB_CHECKPOINT".equals(environmentVariable)) {
+            return CHECKPOINT;
+        }
+        if ("FLYWAY_DUCKDB_CHECKPOINT_WAL_SIZE".equals(environmentVariable)) {
+            return CHECKPOINT_WAL_SIZE;
+        }
+        if ("FLYWAY_DUCKDB_FORCE_CHECKPOINT".equals(environmentVariable)) {
+            return FORCE_CHECKPOINT;
+        }
+        if ("FLYWAY_DUCKDB_CHECKPOINT_THRESHOLD".equals(environmentVariable)) {
+            return CHECKPOINT_THRESHOLD;
+        }
+        if ("FLYWAY_DUCKDB_THREADS".equals(environmentVariable)) {
+            return THREADS;
+        }
+        if ("FLYWAY_DUCKDB_MEMORY_LIMIT".equals(environmentVariable)) {
+            return MEMORY_LIMIT;
+        }
+        if ("FLYWAY_DUCKDB_PRESERVE_INSERTION_ORDER".equals(environmentVariable)) {
+            return PRESERVE_INSERTION_ORDER;
+        }
+        if ("FLYWAY_DUCKDB_TEMP_DIRECTORY".equals(environmentVariable)) {
+            return TEMP_DIRECTORY;
+        }
+        if ("FLYWAY_DUCKDB_MAX_TEMP_DIRECTORY_SIZE".equals(environmentVariable)) {
+            return MAX_TEMP_DIRECTORY_SIZE;
+        }
+        return null;
+    }
+
+    public enum CleanMode {
+        /**
+         * Drop every object with its own statement.
+         */
+        STATEMENT,
+        /**
+         * Read the catalog once and drop every object in a single JDBC batch.
+         */
+        BATCH,
+        /**
+         * Replace the file of a file-backed database with a fresh one when cleaning through
+         * {@link DuckRecreateCleaner}. Otherwise the same as {@link #BATCH}.
+         */
+        RECREATE
+    }
+
+    public enum CheckpointMode {
+        /**
+         * Leave checkpointing to DuckDB.
+         */
+        AUTO,
+        /**
+         * Checkpoint after every migration.
+         */
+        MIGRATION,
+        /**
+         * Checkpoint once, after the last migration.
+         */
+        END
+    }
+
+    public enum ShadowCopy {
+        /**
+         * Copy schema and data with {@code COPY FROM DATABASE}, which also compacts the copy.
+         */
+        DATABASE,
+        /**
+         * Copy the checkpointed database file as it is, which is faster for large databases.
+         */
+        FILE
+    }
+}
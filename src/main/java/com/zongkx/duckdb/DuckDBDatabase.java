@@ -2,6 +2,7 @@ package com.zongkx.duckdb;
 
 import org.flywaydb.core.api.configuration.Configuration;
 import org.flywaydb.core.internal.database.base.Database;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
 import org.flywaydb.core.internal.database.base.Table;
 import org.flywaydb.core.internal.jdbc.JdbcConnectionFactory;
 import org.flywaydb.core.internal.jdbc.StatementInterceptor;
@@ -11,13 +12,134 @@ import java.sql.Connection;
 import java.sql.SQLException;
 
 public class DuckDBDatabase extends Database<DuckConnection> {
+    private String databasePath;
+    private boolean databasePathResolved;
+    private DuckFileLock fileLock;
+    private boolean fileLockResolved;
+    private DuckCheckpointer checkpointer;
+    private boolean checkpointerResolved;
+    private DuckSessionSettings sessionSettings;
+    private boolean chunkProgressKept;
+
     public DuckDBDatabase(Configuration configuration, JdbcConnectionFactory jdbcConnectionFactory, StatementInterceptor statementInterceptor) {
         super(configuration, jdbcConnectionFactory, statementInterceptor);
+        DuckStatementReport report = configuration.getPluginRegister().getPlugin(DuckStatementReport.class);
+        if (report != null) {
+            report.reset(getDuckConfiguration().getSlowStatements());
+        }
     }
 
+    /**
+     * Applies the DuckDB settings of {@code flyway.duckdb.*} when the first connection opens. They are database-wide, so
+     * once is enough, and they are restored by {@link #close()}.
+     */
     @Override
     protected DuckConnection doGetConnection(Connection connection) {
-        return new DuckConnection(this, connection);
+        DuckConnection duckConnection = new DuckConnection(this, connection);
+        synchronized (this) {
+            if (sessionSettings == null) {
+                sessionSettings = DuckSessionSettings.apply(duckConnection.getJdbcTemplate(), getDuckConfiguration());
+            }
+        }
+        return duckConnection;
+    }
+
+    /**
+     * @return The DuckDB specific configuration of this database.
+     */
+    public DuckDBConfigurationExtension getDuckConfiguration() {
+        return configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+    }
+
+    /**
+     * Discards the cached metadata after DDL has been executed.
+     */
+    public void invalidateMetadata() {
+        getMainConnection().getMetadata().invalidate();
+        getMigrationConnection().getMetadata().invalidate();
+    }
+
+    /**
+     * Notes that a chunked statement has kept its position, to be removed once its migration has been recorded.
+     */
+    synchronized void chunkProgressKept() {
+        chunkProgressKept = true;
+    }
+
+    /**
+     * @return Whether a chunked statement has kept its position since the last call.
+     */
+    synchronized boolean takeChunkProgressKept() {
+        boolean kept = chunkProgressKept;
+        chunkProgressKept = false;
+        return kept;
+    }
+
+    /**
+     * @return The file of the database, or {@code null} for an in-memory database.
+     */
+    synchronized String getDatabasePath() {
+        if (!databasePathResolved) {
+            try {
+                databasePath = getMainConnection().getJdbcTemplate().queryForString(DuckFileLock.DATABASE_PATH_QUERY);
+            } catch (SQLException e) {
+                throw new FlywaySqlException("Unable to determine DuckDB database file", e);
+            }
+            databasePathResolved = true;
+        }
+        return databasePath;
+    }
+
+    /**
+     * @return The cross-process lock on the database file, or {@code null} for in-memory databases or when
+     * {@code flyway.duckdb.lockTimeout} is {@code 0}.
+     */
+    synchronized DuckFileLock getFileLock() {
+        if (!fileLockResolved) {
+            DuckDBConfigurationExtension duckConfiguration = getDuckConfiguration();
+            if (duckConfiguration.getLockTimeout() > 0) {
+                fileLock = DuckFileLock.forDatabase(getDatabasePath(), duckConfiguration);
+            }
+            fileLockResolved = true;
+        }
+        return fileLock;
+    }
+
+    /**
+     * @return The checkpoint policy of the database file, or {@code null} for in-memory databases or when no policy is
+     * configured.
+     */
+    synchronized DuckCheckpointer getCheckpointer() {
+        if (!checkpointerResolved) {
+            DuckDBConfigurationExtension duckConfiguration = getDuckConfiguration();
+            if (duckConfiguration.getCheckpoint() != DuckDBConfigurationExtension.CheckpointMode.AUTO
+                    || duckConfiguration.getCheckpointWalSize() > 0) {
+                checkpointer = DuckCheckpointer.forDatabase(getDatabasePath(),
+                        getMainConnection().getJdbcTemplate(), duckConfiguration);
+            }
+            checkpointerResolved = true;
+        }
+        return checkpointer;
+    }
+
+    /**
+     * Runs the final checkpoint, restores the DuckDB settings replaced when the first connection opened and logs the
+     * slowest statements of the command if instrumentation is enabled.
+     */
+    @Override
+    public void close() {
+        try {
+            if (checkpointer != null) {
+                checkpointer.close();
+            }
+        } finally {
+            if (sessionSettings != null) {
+                sessionSettings.restore();
+                sessionSettings = null;
+            }
+            super.close();
+            DuckStatementReport.log(configuration);
+        }
     }
 
     @Override
@@ -25,14 +147,16 @@ public class DuckDBDatabase extends Database<DuckConnection> {
         //doNothing
     }
 
+    /**
+     * DuckDB has neither tablespaces nor {@code ALTER TABLE ... ADD CONSTRAINT}, so the primary key is declared inline.
+     * There is no index on {@code success}: DuckDB would maintain it on every insert without it helping a boolean
+     * filter. Ranks are inserted in ascending order, so the min/max zone maps let the incremental
+     * {@code installed_rank > ?} read of {@link #getSelectStatement} skip every row group before the last known rank.
+     */
     @Override
     public String getRawCreateScript(Table table, boolean baseline) {
-        String tablespace = configuration.getTablespace() == null
-                ? ""
-                : " TABLESPACE \"" + configuration.getTablespace() + "\"";
-
         return "CREATE TABLE " + table + " (\n" +
-                "    \"installed_rank\" INT NOT NULL,\n" +
+                "    \"installed_rank\" INT NOT NULL PRIMARY KEY,\n" +
                 "    \"version\" VARCHAR(50),\n" +
                 "    \"description\" VARCHAR(200) NOT NULL,\n" +
                 "    \"type\" VARCHAR(20) NOT NULL,\n" +
@@ -42,10 +166,13 @@ public class DuckDBDatabase extends Database<DuckConnection> {
                 "    \"installed_on\" TIMESTAMP NOT NULL DEFAULT now(),\n" +
                 "    \"execution_time\" INTEGER NOT NULL,\n" +
                 "    \"success\" BOOLEAN NOT NULL\n" +
-                ")" + tablespace + ";\n" +
-                (baseline ? getBaselineStatement(table) + ";\n" : "") +
-                "ALTER TABLE " + table + " ADD CONSTRAINT \"" + table.getName() + "_pk\" PRIMARY KEY (\"installed_rank\")" + (configuration.getTablespace() != null ? " USING INDEX" + tablespace : "") + ";\n" +
-                "CREATE INDEX \"" + table.getName() + "_s_idx\" ON " + table + " (\"success\")" + tablespace + ";";
+                ");\n" +
+                (baseline ? getBaselineStatement(table) + ";\n" : "");
+    }
+
+    @Override
+    protected String doGetCatalog() throws SQLException {
+        return getMainConnection().getJdbcTemplate().queryForString("SELECT current_database()");
     }
 
     @Override
@@ -88,28 +215,6 @@ public class DuckDBDatabase extends Database<DuckConnection> {
         return true;
     }
 
-    /**
-     * This exists to fix this issue: https://github.com/flyway/flyway/issues/2638
-     * See https://www.pgpool.net/docs/latest/en/html/runtime-config-load-balancing.html
-     */
-    @Override
-    public String getSelectStatement(Table table) {
-        return "/*NO LOAD BALANCE*/\n"
-                + "SELECT " + quote("installed_rank")
-                + "," + quote("version")
-                + "," + quote("description")
-                + "," + quote("type")
-                + "," + quote("script")
-                + "," + quote("checksum")
-                + "," + quote("installed_on")
-                + "," + quote("installed_by")
-                + "," + quote("execution_time")
-                + "," + quote("success")
-                + " FROM " + table
-                + " WHERE " + quote("installed_rank") + " > ?"
-                + " ORDER BY " + quote("installed_rank");
-    }
-
     @Override
     public String getDatabaseHosting() {
         return super.getDatabaseHosting();
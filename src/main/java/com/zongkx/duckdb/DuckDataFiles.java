@@ -0,0 +1,277 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The files read by a data migration: a single file or a glob across (partitioned) directories, with a checksum
+ * computed from file metadata rather than from the full content, so that validating large files stays cheap.
+ */
+final class DuckDataFiles {
+    private static final byte[] PARQUET_MAGIC = "PAR1".getBytes(StandardCharsets.US_ASCII);
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    private DuckDataFiles() {
+    }
+
+    /**
+     * @param source A local path or glob, or a remote URL.
+     * @return Whether the source is read by a DuckDB extension (e.g. {@code s3://}) and can not be listed locally.
+     */
+    static boolean isRemote(String source) {
+        return source.contains("://");
+    }
+
+    /**
+     * Expands a local path or glob in the same way DuckDB does, including {@code **}.
+     *
+     * @return The matching files, sorted by path.
+     */
+    static List<Path> expand(String source) {
+        int wildcard = indexOfWildcard(source);
+        if (wildcard < 0) {
+            Path file = Paths.get(source);
+            if (!Files.isRegularFile(file)) {
+                throw new FlywayException("Data file not found: " + source);
+            }
+            return Collections.singletonList(file);
+        }
+
+        Path base = baseOf(source);
+        int separator = lastSeparator(source, wildcard);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + source.substring(separator + 1));
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(base)) {
+            try (Stream<Path> paths = Files.walk(base)) {
+                paths.filter(Files::isRegularFile)
+                        .filter(path -> matcher.matches(base.relativize(path)))
+                        .forEach(files::add);
+            } catch (IOException e) {
+                throw new FlywayException("Unable to list data files matching " + source + ": " + e.getMessage(), e);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new FlywayException("No data files match " + source);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Resolves a local path or glob against a directory. Only the literal directories before the first wildcard are
+     * resolved as a path, as wildcards are not valid in paths on every platform (e.g. on Windows); the rest of a glob
+     * is appended as it is.
+     */
+    static String resolve(Path directory, String source) {
+        int wildcard = indexOfWildcard(source);
+        if (wildcard < 0) {
+            return directory.resolve(source).toString();
+        }
+        int separator = lastSeparator(source, wildcard);
+        String base = (separator < 0 ? directory : directory.resolve(source.substring(0, separator + 1))).toString();
+        String pattern = source.substring(separator + 1);
+        return base.endsWith(File.separator) ? base + pattern : base + File.separator + pattern;
+    }
+
+    /**
+     * @return The directory the paths of the files matching the source are taken relative to: the directory of a single
+     * file, or the part of a glob before its first wildcard.
+     */
+    static Path baseOf(String source) {
+        int wildcard = indexOfWildcard(source);
+        int separator = lastSeparator(source, wildcard < 0 ? source.length() : wildcard);
+        return Paths.get(separator < 0 ? "." : source.substring(0, separator + 1)).toAbsolutePath();
+    }
+
+    /**
+     * Computes a checksum over the descriptor and, for every file, its path relative to {@code base}, its size and a
+     * fingerprint: the footer of a Parquet file, which holds its schema, row counts and column statistics, or the first
+     * and last 64 KiB of any other file. Modification times are left out as they differ between checkouts.
+     */
+    static int checksum(String descriptor, Path base, List<Path> files) {
+        CRC32 crc32 = new CRC32();
+        update(crc32, descriptor);
+        for (Path file : files) {
+            update(crc32, base.relativize(file.toAbsolutePath()).toString().replace('\\', '/'));
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = channel.size();
+                update(crc32, Long.toString(size));
+                fingerprint(crc32, (position, length) -> read(channel, position, length), size);
+            } catch (IOException e) {
+                throw new FlywayException("Unable to compute checksum of " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Computes the same checksum as {@link #checksum(String, Path, List)} for a single file packaged in a jar, reading
+     * only the parts of the entry making up its fingerprint rather than extracting it.
+     */
+    static int checksum(String descriptor, String filename, URL url) {
+        CRC32 crc32 = new CRC32();
+        update(crc32, descriptor);
+        update(crc32, filename);
+        try {
+            long size = sizeOf(url);
+            update(crc32, Long.toString(size));
+            fingerprint(crc32, (position, length) -> read(url, position, length), size);
+        } catch (IOException e) {
+            throw new FlywayException("Unable to compute checksum of " + url + ": " + e.getMessage(), e);
+        }
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Extracts a file packaged in a jar to {@code <java.io.tmpdir>/flyway-duckdb-data/<checksum>/<filename>}, unless an
+     * earlier migrate has already extracted it there. The file is written under a temporary name and moved in place
+     * once complete, so concurrent migrates never read a partial file.
+     *
+     * @return The extracted file.
+     */
+    static Path extract(URL url, String filename, int checksum) {
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "flyway-duckdb-data",
+                Integer.toHexString(checksum));
+        Path file = directory.resolve(filename);
+        try {
+            if (Files.isRegularFile(file) && Files.size(file) == sizeOf(url)) {
+                return file;
+            }
+            Files.createDirectories(directory);
+            Path extracting = Files.createTempFile(directory, filename, ".tmp");
+            try {
+                try (InputStream inputStream = url.openStream()) {
+                    Files.copy(inputStream, extracting, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(extracting, file, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(extracting);
+            }
+            return file;
+        } catch (IOException e) {
+            throw new FlywayException("Unable to extract data file " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static void fingerprint(CRC32 crc32, Reader reader, long size) throws IOException {
+        if (size >= 12) {
+            ByteBuffer tail = reader.read(size - 8, 8).order(ByteOrder.LITTLE_ENDIAN);
+            long footerLength = tail.getInt(0) & 0xFFFFFFFFL;
+            if (isParquetMagic(tail) && footerLength <= size - 12) {
+                crc32.update(reader.read(size - 8 - footerLength, (int) footerLength));
+                return;
+            }
+        }
+        crc32.update(reader.read(0, (int) Math.min(size, SAMPLE_SIZE)));
+        if (size > SAMPLE_SIZE) {
+            long start = Math.max(SAMPLE_SIZE, size - SAMPLE_SIZE);
+            crc32.update(reader.read(start, (int) (size - start)));
+        }
+    }
+
+    private static long sizeOf(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            long size = ((JarURLConnection) connection).getJarEntry().getSize();
+            if (size >= 0) {
+                return size;
+            }
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+            return skip(inputStream, Long.MAX_VALUE);
+        }
+    }
+
+    private static boolean isParquetMagic(ByteBuffer tail) {
+        for (int i = 0; i < PARQUET_MAGIC.length; i++) {
+            if (tail.get(4 + i) != PARQUET_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+            // keep reading
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer read(URL url, long position, int length) throws IOException {
+        try (InputStream inputStream = url.openStream()) {
+            if (skip(inputStream, position) < position) {
+                throw new IOException("Unexpected end of " + url);
+            }
+            byte[] bytes = new byte[length];
+            int read = 0;
+            int count;
+            while (read < length && (count = inputStream.read(bytes, read, length - read)) >= 0) {
+                read += count;
+            }
+            return ByteBuffer.wrap(bytes, 0, read);
+        }
+    }
+
+    private static long skip(InputStream inputStream, long count) throws IOException {
+        long skipped = 0;
+        while (skipped < count) {
+            long n = inputStream.skip(count - skipped);
+            if (n <= 0) {
+                if (inputStream.read() < 0) {
+                    break;
+                }
+                n = 1;
+            }
+            skipped += n;
+        }
+        return skipped;
+    }
+
+    private static void update(CRC32 crc32, String value) {
+        crc32.update(value.getBytes(StandardCharsets.UTF_8));
+        crc32.update(0);
+    }
+
+    private static int lastSeparator(String source, int before) {
+        return Math.max(source.lastIndexOf('/', before), source.lastIndexOf('\\', before));
+    }
+
+    private static int indexOfWildcard(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private interface Reader {
+        ByteBuffer read(long position, int length) throws IOException;
+    }
+}
@@ -0,0 +1,79 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.executor.Context;
+import org.flywaydb.core.api.executor.MigrationExecutor;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.jdbc.Result;
+import org.flywaydb.core.internal.jdbc.Results;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Loads a data migration with a single {@code INSERT INTO ... SELECT * FROM read_parquet(...)} (or {@code read_csv}),
+ * letting DuckDB read the files in parallel. {@code threads} is raised for the load only and restored afterwards. The
+ * cached metadata of the database is dropped after the load, which may have created the table.
+ */
+class DuckDataMigrationExecutor implements MigrationExecutor {
+    private static final Log LOG = LogFactory.getLog(DuckDataMigrationExecutor.class);
+
+    private final Supplier<String> sql;
+    private final int threads;
+
+    /**
+     * @param sql     The statement loading the data, built when the migration runs, so that data files packaged in a jar
+     *                are only extracted then.
+     * @param threads The number of threads DuckDB may use for the load. {@code 0} keeps the current setting.
+     */
+    DuckDataMigrationExecutor(Supplier<String> sql, int threads) {
+        this.sql = sql;
+        this.threads = threads;
+    }
+
+    @Override
+    public List<Results> execute(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            String load = sql.get();
+            String previousThreads = null;
+            if (threads > 0) {
+                try (ResultSet resultSet = statement.executeQuery("SELECT current_setting('threads')")) {
+                    resultSet.next();
+                    previousThreads = resultSet.getString(1);
+                }
+                statement.execute("SET threads = " + threads);
+            }
+
+            long rows;
+            try {
+                LOG.debug("Executing data migration: " + load);
+                statement.execute(load);
+                rows = statement.getUpdateCount();
+                // Executed on the JDBC connection of the migration, past the caches of Flyway's connections
+                DuckMetadataCache.invalidate(context.getConnection());
+            } finally {
+                if (previousThreads != null) {
+                    statement.execute("SET threads = " + previousThreads);
+                }
+            }
+
+            Results results = new Results();
+            results.addResult(new Result(rows, null, null, load));
+            return Collections.singletonList(results);
+        }
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public boolean shouldExecute() {
+        return true;
+    }
+}
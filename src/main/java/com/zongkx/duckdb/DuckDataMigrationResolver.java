@@ -0,0 +1,181 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.resolver.MigrationResolver;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.resolver.MigrationInfoHelper;
+import org.flywaydb.core.internal.resolver.ResolvedMigrationComparator;
+import org.flywaydb.core.internal.resolver.ResolvedMigrationImpl;
+import org.flywaydb.core.internal.util.FileUtils;
+import org.flywaydb.core.internal.util.Pair;
+import org.flywaydb.core.internal.util.StringUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * Resolves data migrations such as {@code V5__load_events.parquet} or {@code V6__load_users.csv}, discovered alongside
+ * the SQL migrations. Each data file needs a sidecar descriptor ({@code V5__load_events.parquet.conf}) with the
+ * following properties:
+ * <ul>
+ *     <li>{@code table} the table to load into (required)</li>
+ *     <li>{@code mode} {@code insert} (default) to append to an existing table, or {@code create} to create it from
+ *     the data</li>
+ *     <li>{@code source} a path or glob to read instead of the data file, e.g. {@code events/year=*&#47;*.parquet},
+ *     relative to the directory of the descriptor. The descriptor may then be used on its own.</li>
+ *     <li>{@code options} further named arguments for {@code read_parquet}/{@code read_csv}, e.g.
+ *     {@code hive_partitioning = true}</li>
+ *     <li>{@code threads} the number of threads for the load, overriding {@code flyway.duckdb.loadThreads}</li>
+ * </ul>
+ */
+public class DuckDataMigrationResolver implements MigrationResolver {
+    private static final String PARQUET = ".parquet";
+    private static final String CSV = ".csv";
+    private static final String DESCRIPTOR = ".conf";
+    // Descriptors first, so that their suffix is stripped as a whole
+    private static final String[] SUFFIXES = {PARQUET + DESCRIPTOR, CSV + DESCRIPTOR, PARQUET, CSV};
+
+    @Override
+    public Collection<ResolvedMigration> resolveMigrations(Context context) {
+        Configuration configuration = context.configuration;
+        String url = configuration.getUrl();
+        if (url != null && !url.startsWith("jdbc:duckdb:")) {
+            return Collections.emptyList();
+        }
+
+        List<ResolvedMigration> migrations = new ArrayList<>();
+        addMigrations(migrations, context, configuration.getSqlMigrationPrefix(), false);
+        addMigrations(migrations, context, configuration.getRepeatableSqlMigrationPrefix(), true);
+        migrations.sort(new ResolvedMigrationComparator());
+        return migrations;
+    }
+
+    private void addMigrations(List<ResolvedMigration> migrations, Context context, String prefix, boolean repeatable) {
+        Configuration configuration = context.configuration;
+        for (LoadableResource resource : context.resourceProvider.getResources(prefix, SUFFIXES)) {
+            String filename = resource.getFilename();
+            boolean descriptorOnly = filename.endsWith(DESCRIPTOR);
+            if (descriptorOnly && context.resourceProvider.getResource(
+                    resource.getRelativePath().substring(0, resource.getRelativePath().length() - DESCRIPTOR.length())) != null) {
+                // Descriptor of a data file, picked up with the data file itself
+                continue;
+            }
+
+            Pair<MigrationVersion, String> info = MigrationInfoHelper.extractVersionAndDescription(
+                    filename, prefix, configuration.getSqlMigrationSeparator(), SUFFIXES, repeatable);
+            LoadableResource descriptorResource = descriptorOnly
+                    ? resource
+                    : context.resourceProvider.getResource(resource.getRelativePath() + DESCRIPTOR);
+            if (descriptorResource == null) {
+                throw new FlywayException("Missing descriptor " + filename + DESCRIPTOR + " for data migration " + filename);
+            }
+
+            String descriptorText;
+            Properties descriptor = new Properties();
+            try {
+                descriptorText = FileUtils.copyToString(descriptorResource.read());
+                descriptor.load(new StringReader(descriptorText));
+            } catch (IOException e) {
+                throw new FlywayException("Unable to read descriptor " + descriptorResource.getFilename() + ": " + e.getMessage(), e);
+            }
+
+            String table = descriptor.getProperty("table");
+            if (!StringUtils.hasText(table)) {
+                throw new FlywayException("Missing table in descriptor " + descriptorResource.getFilename());
+            }
+            String source = descriptor.getProperty("source");
+            if (descriptorOnly && !StringUtils.hasText(source)) {
+                throw new FlywayException("Missing source in descriptor " + descriptorResource.getFilename()
+                        + " without data file");
+            }
+
+            Path directory = getDirectory(descriptorResource);
+            boolean parquet = filename.endsWith(PARQUET) || filename.endsWith(PARQUET + DESCRIPTOR);
+            String options = descriptor.getProperty("options");
+            String mode = descriptor.getProperty("mode", "insert").trim();
+            if (!"insert".equalsIgnoreCase(mode) && !"create".equalsIgnoreCase(mode)) {
+                throw new FlywayException("Unknown mode " + mode + " in descriptor " + descriptorResource.getFilename());
+            }
+            Integer checksum;
+            Supplier<String> sql;
+            if (StringUtils.hasText(source) && DuckDataFiles.isRemote(source)) {
+                checksum = DuckDataFiles.checksum(descriptorText, directory, Collections.emptyList());
+                String load = getSql(table, mode, parquet, source, options);
+                sql = () -> load;
+            } else if (StringUtils.hasText(source) || isOnDisk(resource)) {
+                String location = StringUtils.hasText(source)
+                        ? DuckDataFiles.resolve(directory, source)
+                        : Paths.get(resource.getAbsolutePathOnDisk()).toString();
+                checksum = DuckDataFiles.checksum(descriptorText, DuckDataFiles.baseOf(location),
+                        DuckDataFiles.expand(location));
+                String load = getSql(table, mode, parquet, location, options);
+                sql = () -> load;
+            } else {
+                // Packaged in a jar: checksummed from the jar entry, extracted only once the migration runs
+                URL url = getResourceUrl(configuration, resource);
+                checksum = DuckDataFiles.checksum(descriptorText, resource.getFilename(), url);
+                int key = checksum;
+                sql = () -> getSql(table, mode, parquet,
+                        DuckDataFiles.extract(url, resource.getFilename(), key).toString(), options);
+            }
+
+            String threads = descriptor.getProperty("threads");
+            int loadThreads = StringUtils.hasText(threads)
+                    ? Integer.parseInt(threads.trim())
+                    : configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class).getLoadThreads();
+
+            migrations.add(new ResolvedMigrationImpl(
+                    info.getLeft(),
+                    info.getRight(),
+                    resource.getRelativePath(),
+                    checksum,
+                    null,
+                    CoreMigrationType.CUSTOM,
+                    resource.getAbsolutePathOnDisk(),
+                    new DuckDataMigrationExecutor(sql, loadThreads)));
+        }
+    }
+
+    private static Path getDirectory(LoadableResource resource) {
+        Path path = Paths.get(resource.getAbsolutePathOnDisk()).toAbsolutePath();
+        return Files.isRegularFile(path) ? path.getParent() : Paths.get("").toAbsolutePath();
+    }
+
+    private static boolean isOnDisk(LoadableResource resource) {
+        return resource.getAbsolutePathOnDisk() != null && Files.isRegularFile(Paths.get(resource.getAbsolutePathOnDisk()));
+    }
+
+    private static URL getResourceUrl(Configuration configuration, LoadableResource resource) {
+        URL url = configuration.getClassLoader().getResource(resource.getAbsolutePath());
+        if (url == null) {
+            throw new FlywayException("Unable to read data file " + resource.getAbsolutePath());
+        }
+        return url;
+    }
+
+    private static String getSql(String table, String mode, boolean parquet, String location, String options) {
+        String read = (parquet ? "read_parquet(" : "read_csv(") + quoteLiteral(location)
+                + (StringUtils.hasText(options) ? ", " + options.trim() : "") + ")";
+        return "insert".equalsIgnoreCase(mode)
+                ? "INSERT INTO " + table.trim() + " SELECT * FROM " + read
+                : "CREATE TABLE " + table.trim() + " AS SELECT * FROM " + read;
+    }
+
+    private static String quoteLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -4,13 +4,21 @@ import org.flywaydb.core.api.ResourceProvider;
 import org.flywaydb.core.api.configuration.Configuration;
 import org.flywaydb.core.api.logging.Log;
 import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.resource.LoadableResource;
 import org.flywaydb.core.internal.authentication.postgres.PgpassFileReader;
 import org.flywaydb.core.internal.database.base.BaseDatabaseType;
+import org.flywaydb.core.internal.callback.CallbackExecutor;
 import org.flywaydb.core.internal.database.base.Database;
 import org.flywaydb.core.internal.jdbc.JdbcConnectionFactory;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
 import org.flywaydb.core.internal.jdbc.StatementInterceptor;
 import org.flywaydb.core.internal.parser.Parser;
 import org.flywaydb.core.internal.parser.ParsingContext;
+import org.flywaydb.core.internal.sqlscript.ParserSqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlScriptExecutorFactory;
+import org.flywaydb.core.internal.sqlscript.SqlScriptFactory;
+import org.flywaydb.core.internal.sqlscript.SqlScriptMetadata;
 
 import java.sql.Connection;
 import java.sql.Types;
@@ -64,8 +72,39 @@ public class DuckDatabaseType extends BaseDatabaseType {
     }
 
     @Override
-    public void setDefaultConnectionProps(String url, Properties props, ClassLoader classLoader) {
-        props.put("applicationName", BaseDatabaseType.APPLICATION_NAME);
+    public SqlScriptFactory createSqlScriptFactory(Configuration configuration, ParsingContext parsingContext) {
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        boolean stream = duckConfiguration.isStream();
+        boolean map = duckConfiguration.isMapResources() && !configuration.isDetectEncoding();
+        return (resource, mixed, resourceProvider) -> {
+            if (resource instanceof DuckFleetResource && !stream) {
+                DuckDBDatabase database = parsingContext.getDatabase() instanceof DuckDBDatabase
+                        ? (DuckDBDatabase) parsingContext.getDatabase() : null;
+                return ((DuckFleetResource) resource).getSqlScript(configuration, database, () ->
+                        createSqlScript(configuration, parsingContext, resource, resource, mixed, resourceProvider));
+            }
+            LoadableResource scriptResource = map ? DuckMappedResource.of(resource, configuration.getEncoding()) : resource;
+            return createSqlScript(configuration, parsingContext, resource,
+                    stream ? new DuckStreamingResource(scriptResource) : scriptResource, mixed, resourceProvider);
+        };
+    }
+
+    private SqlScript createSqlScript(Configuration configuration, ParsingContext parsingContext, LoadableResource resource,
+                                      LoadableResource scriptResource, boolean mixed, ResourceProvider resourceProvider) {
+        return new ParserSqlScript(
+                createParser(configuration, resourceProvider, parsingContext),
+                scriptResource,
+                SqlScriptMetadata.getMetadataResource(resourceProvider, resource),
+                mixed);
+    }
+
+    @Override
+    public SqlScriptExecutorFactory createSqlScriptExecutorFactory(JdbcConnectionFactory jdbcConnectionFactory, CallbackExecutor callbackExecutor, StatementInterceptor statementInterceptor) {
+        return (connection, undo, batch, outputQueryResults) -> new DuckSqlScriptExecutor(
+                new JdbcTemplate(connection, this), callbackExecutor, undo,
+                jdbcConnectionFactory.isSupportsBatch() && batch, jdbcConnectionFactory.isSupportsBatch(),
+                outputQueryResults, statementInterceptor);
     }
 
     @Override
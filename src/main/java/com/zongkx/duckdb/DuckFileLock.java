@@ -0,0 +1,214 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock for a file-backed DuckDB database, held with {@link FileChannel#tryLock()} on a sidecar file next to the
+ * database file. There is one instance per database file within a JVM, owned by the thread that acquired it, so the
+ * lock serializes both threads and processes. Waiters retry with bounded exponential backoff until the lock is released
+ * or the timeout expires. The lock is reentrant for its owner.
+ * <p>
+ * The operating system releases the lock when its holder dies, so the lock file is never removed or taken over. The
+ * holder refreshes the modification time of the lock file while it holds the lock, and a lock that has not been
+ * refreshed for longer than the stale timeout is reported, as its holder is alive but may be hung.
+ * <p>
+ * DuckDB itself locks the database file exclusively while it is open read-write, so another process only waits here if
+ * it takes the lock before opening the database, as {@link DuckLockingDataSource} does.
+ */
+class DuckFileLock {
+    private static final Log LOG = LogFactory.getLog(DuckFileLock.class);
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    private static final String LOCK_SUFFIX = ".flyway.lock";
+    private static final Map<Path, DuckFileLock> LOCKS = new ConcurrentHashMap<>();
+    /**
+     * Returns the file of the current database, {@code NULL} for an in-memory database.
+     */
+    static final String DATABASE_PATH_QUERY = "SELECT path FROM duckdb_databases() WHERE database_name = current_database()";
+
+    private final Path lockFile;
+    private long timeoutMillis;
+    private long staleMillis;
+
+    private FileChannel channel;
+    private FileLock lock;
+    private ScheduledExecutorService heartbeat;
+    private Thread owner;
+    private int depth;
+
+    private DuckFileLock(Path lockFile) {
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * @param databasePath The file of the database, {@code null} or empty for an in-memory database.
+     * @return The lock on the database file, or {@code null} for in-memory databases or when
+     * {@code flyway.duckdb.lockTimeout} is {@code 0}.
+     */
+    static DuckFileLock forDatabase(String databasePath, DuckDBConfigurationExtension duckConfiguration) {
+        if (databasePath == null || databasePath.isEmpty() || duckConfiguration.getLockTimeout() <= 0) {
+            return null;
+        }
+        DuckFileLock fileLock = LOCKS.computeIfAbsent(
+                Paths.get(databasePath + LOCK_SUFFIX).toAbsolutePath().normalize(), DuckFileLock::new);
+        fileLock.configure(TimeUnit.SECONDS.toMillis(duckConfiguration.getLockTimeout()),
+                TimeUnit.SECONDS.toMillis(duckConfiguration.getLockStaleTimeout()));
+        return fileLock;
+    }
+
+    /**
+     * @param timeoutMillis How long to wait for the lock before giving up.
+     * @param staleMillis   After how long without a refresh a held lock is reported. {@code 0} disables the report.
+     */
+    private synchronized void configure(long timeoutMillis, long staleMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.staleMillis = staleMillis;
+    }
+
+    synchronized void acquire() {
+        Thread current = Thread.currentThread();
+        if (owner == current) {
+            depth++;
+            return;
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long backoff = INITIAL_BACKOFF_MILLIS;
+            boolean waiting = false;
+            boolean reported = false;
+            while (owner != null || !tryAcquire()) {
+                if (owner == null && !reported && isStale()) {
+                    LOG.warn("Lock file " + lockFile + " has not been refreshed for more than " + staleMillis
+                            + " ms. The process holding it is still running, but may be hung.");
+                    reported = true;
+                }
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new FlywayException("Unable to acquire lock on " + lockFile + " within " + timeoutMillis + " ms");
+                }
+                if (!waiting) {
+                    LOG.info("Waiting for lock on " + lockFile + " held by another "
+                            + (owner != null ? "thread" : "process") + " ...");
+                    waiting = true;
+                }
+                // Woken up early by a release within this JVM
+                wait(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+            owner = current;
+            depth = 1;
+            LOG.debug("Acquired lock on " + lockFile);
+            startHeartbeat();
+        } catch (IOException e) {
+            throw new FlywayException("Unable to acquire lock on " + lockFile + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlywayException("Interrupted while waiting for lock on " + lockFile, e);
+        }
+    }
+
+    /**
+     * Releases one acquisition. The last one releases the lock, even when it is released by another thread than the
+     * owner, e.g. when a connection of {@link DuckLockingDataSource} is closed elsewhere.
+     */
+    synchronized void release() {
+        if (depth == 0 || --depth > 0) {
+            return;
+        }
+        owner = null;
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        try {
+            lock.release();
+            channel.close();
+            LOG.debug("Released lock on " + lockFile);
+        } catch (IOException e) {
+            LOG.warn("Unable to release lock on " + lockFile + ": " + e.getMessage());
+        } finally {
+            lock = null;
+            channel = null;
+            notifyAll();
+        }
+    }
+
+    private boolean tryAcquire() throws IOException {
+        FileChannel fileChannel = FileChannel.open(lockFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = fileChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Locked by code of this JVM not going through this class
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            fileChannel.close();
+            return false;
+        }
+
+        fileChannel.truncate(0);
+        fileChannel.write(ByteBuffer.wrap(ManagementFactory.getRuntimeMXBean().getName().getBytes(StandardCharsets.UTF_8)));
+        fileChannel.force(true);
+        touch();
+        channel = fileChannel;
+        lock = fileLock;
+        return true;
+    }
+
+    private boolean isStale() {
+        if (staleMillis <= 0) {
+            return false;
+        }
+        try {
+            return System.currentTimeMillis() - Files.getLastModifiedTime(lockFile).toMillis() > staleMillis;
+        } catch (IOException e) {
+            // Removed in the meantime by its holder
+            return false;
+        }
+    }
+
+    private void startHeartbeat() {
+        if (staleMillis <= 0) {
+            return;
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flyway-duckdb-lock-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(staleMillis / 3, 1);
+        heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                touch();
+            } catch (IOException e) {
+                LOG.warn("Unable to refresh lock file " + lockFile + ": " + e.getMessage());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void touch() throws IOException {
+        Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,175 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.ClassProvider;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.scanner.LocationScannerCache;
+import org.flywaydb.core.internal.scanner.ResourceNameCache;
+import org.flywaydb.core.internal.scanner.Scanner;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Migrates many database files, e.g. one per tenant, with the same migrations, on up to
+ * {@code flyway.duckdb.fleetParallelism} threads. Use {@code new DuckFleetMigrator(flyway).migrate(databases)}, where
+ * {@code flyway} is configured as for a single database; its data source is not used.
+ * <p>
+ * The locations are scanned once, every script is read from disk once, and every SQL migration and callback is parsed
+ * once into statements that are then executed against each database. Only scripts using built-in placeholders such as
+ * {@code ${flyway:database}}, whose values differ between databases, are parsed for every database.
+ * <p>
+ * Each database is migrated with {@link DuckParallelMigrator}, so the other {@code flyway.duckdb} settings apply to
+ * each of them. A failing database does not stop the others: the outcome of every database is reported in the
+ * returned {@link DuckFleetReport}.
+ */
+public class DuckFleetMigrator {
+    private static final Log LOG = LogFactory.getLog(DuckFleetMigrator.class);
+
+    private final Flyway flyway;
+
+    public DuckFleetMigrator(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    /**
+     * Migrates the databases on a pool of {@code flyway.duckdb.fleetParallelism} threads.
+     */
+    public DuckFleetReport migrate(Collection<Path> databases) {
+        DuckDBConfigurationExtension duckConfiguration =
+                flyway.getConfiguration().getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        int parallelism = duckConfiguration.getFleetParallelism() > 0
+                ? duckConfiguration.getFleetParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, databases.size())), r -> {
+            Thread thread = new Thread(r, "flyway-duckdb-fleet-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            return migrate(databases, pool);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Migrates the databases on the given executor, e.g. one starting a virtual thread per task. The executor bounds
+     * the number of databases migrated at once and is not shut down.
+     */
+    public DuckFleetReport migrate(Collection<Path> databases, ExecutorService executor) {
+        Configuration configuration = flyway.getConfiguration();
+        ResourceProvider resourceProvider = configuration.getResourceProvider();
+        ClassProvider<JavaMigration> classProvider = configuration.getJavaMigrationClassProvider();
+        if (resourceProvider == null || classProvider == null) {
+            Scanner<JavaMigration> scanner = new Scanner<>(JavaMigration.class, false, new ResourceNameCache(),
+                    new LocationScannerCache(), configuration);
+            resourceProvider = resourceProvider == null ? scanner : resourceProvider;
+            classProvider = classProvider == null ? scanner : classProvider;
+        }
+        FleetResourceProvider resources = new FleetResourceProvider(resourceProvider);
+
+        LOG.info("Migrating " + databases.size() + " databases");
+        long started = System.nanoTime();
+        List<Future<DuckFleetResult>> futures = new ArrayList<>(databases.size());
+        for (Path database : databases) {
+            ClassProvider<JavaMigration> javaMigrations = classProvider;
+            futures.add(executor.submit(() -> migrate(configuration, resources, javaMigrations, database)));
+        }
+        List<DuckFleetResult> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<DuckFleetResult> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlywayException("Interrupted while migrating databases", e);
+        } catch (ExecutionException e) {
+            throw new FlywayException("Unable to migrate databases", e.getCause());
+        } finally {
+            for (Future<DuckFleetResult> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        DuckFleetReport report = new DuckFleetReport(results, System.nanoTime() - started);
+        if (report.getFailures().isEmpty()) {
+            LOG.info(report.format());
+        } else {
+            LOG.warn(report.format());
+        }
+        return report;
+    }
+
+    private static DuckFleetResult migrate(Configuration configuration, ResourceProvider resources,
+                                           ClassProvider<JavaMigration> classProvider, Path database) {
+        long started = System.nanoTime();
+        try {
+            Flyway databaseFlyway = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .dataSource("jdbc:duckdb:" + database.toAbsolutePath(), configuration.getUser(),
+                            configuration.getPassword())
+                    .resourceProvider(resources)
+                    .javaMigrationClassProvider(classProvider)
+                    .load();
+            int executed = new DuckParallelMigrator(databaseFlyway).migrate();
+            LOG.debug("Migrated " + database + " with " + executed + " migrations");
+            return new DuckFleetResult(database, executed, System.nanoTime() - started, null);
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to migrate " + database + ": " + e.getMessage());
+            return new DuckFleetResult(database, 0, System.nanoTime() - started, e);
+        }
+    }
+
+    /**
+     * Provides the resources of another provider as {@link DuckFleetResource}s, the same instance for the same
+     * resource to all databases, so that each script is read and parsed once.
+     */
+    private static class FleetResourceProvider implements ResourceProvider {
+        private final ResourceProvider resourceProvider;
+        private final Map<String, DuckFleetResource> resources = new ConcurrentHashMap<>();
+
+        private FleetResourceProvider(ResourceProvider resourceProvider) {
+            this.resourceProvider = resourceProvider;
+        }
+
+        @Override
+        public LoadableResource getResource(String name) {
+            LoadableResource resource = resourceProvider.getResource(name);
+            return resource == null ? null : share(resource);
+        }
+
+        @Override
+        public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+            Collection<LoadableResource> found = resourceProvider.getResources(prefix, suffixes);
+            List<LoadableResource> shared = new ArrayList<>(found.size());
+            for (LoadableResource resource : found) {
+                shared.add(share(resource));
+            }
+            return shared;
+        }
+
+        private LoadableResource share(LoadableResource resource) {
+            if (resource instanceof DuckFleetResource) {
+                return resource;
+            }
+            return resources.computeIfAbsent(resource.getAbsolutePath(), path -> new DuckFleetResource(resource));
+        }
+    }
+}
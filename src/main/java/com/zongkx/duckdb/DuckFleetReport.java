@@ -0,0 +1,84 @@
+package com.zongkx.duckdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of a {@link DuckFleetMigrator} run: one {@link DuckFleetResult} per database, in the order the databases
+ * were given, and the throughput of the run.
+ */
+public final class DuckFleetReport {
+    private final List<DuckFleetResult> results;
+    private final long nanos;
+
+    DuckFleetReport(List<DuckFleetResult> results, long nanos) {
+        this.results = Collections.unmodifiableList(results);
+        this.nanos = nanos;
+    }
+
+    public List<DuckFleetResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @return The results of the databases whose migration failed.
+     */
+    public List<DuckFleetResult> getFailures() {
+        List<DuckFleetResult> failures = new ArrayList<>();
+        for (DuckFleetResult result : results) {
+            if (result.isFailed()) {
+                failures.add(result);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * @return The number of migrations executed across all databases.
+     */
+    public long getMigrationsExecuted() {
+        long executed = 0;
+        for (DuckFleetResult result : results) {
+            executed += result.getMigrationsExecuted();
+        }
+        return executed;
+    }
+
+    /**
+     * @return The wall time of the whole run, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * @return The number of databases migrated, successfully or not, per second of wall time.
+     */
+    public double getDatabasesPerSecond() {
+        return nanos == 0 ? 0 : results.size() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * @return A human-readable summary of the run, listing the databases whose migration failed.
+     */
+    public String format() {
+        List<DuckFleetResult> failures = getFailures();
+        StringBuilder report = new StringBuilder("Migrated ").append(results.size() - failures.size()).append(" of ")
+                .append(results.size()).append(" databases with ").append(getMigrationsExecuted())
+                .append(" migrations in ").append(getMillis()).append(" ms (")
+                .append(String.format("%.1f", getDatabasesPerSecond())).append(" databases/s)");
+        if (!failures.isEmpty()) {
+            report.append(", failed:");
+        }
+        for (DuckFleetResult failure : failures) {
+            report.append("\n  ").append(failure.getDatabase()).append("  ").append(failure.getError().getMessage());
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.function.Supplier;
+
+/**
+ * A resource shared by the Flyway instances of a {@link DuckFleetMigrator} run. Its script is read once and served
+ * from memory for every checksum calculation, and parsed once into statements that every database executes (see
+ * {@link DuckFleetSqlScript}).
+ */
+final class DuckFleetResource extends LoadableResource {
+    private static final String BUILT_IN_PLACEHOLDER = "flyway:";
+
+    private final LoadableResource resource;
+    private String text;
+    private SqlScript sqlScript;
+    private boolean perDatabase;
+
+    DuckFleetResource(LoadableResource resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * @param database The database the script is executed against.
+     * @param parse    Creates the script of this resource for {@code database}.
+     * @return The script parsed by the first caller, bound to {@code database}, or a script parsed for
+     * {@code database} alone if it uses built-in placeholders such as {@code ${flyway:database}}, whose values differ
+     * between databases.
+     */
+    SqlScript getSqlScript(Configuration configuration, DuckDBDatabase database, Supplier<SqlScript> parse) {
+        synchronized (this) {
+            if (sqlScript == null && !perDatabase) {
+                if (configuration.isPlaceholderReplacement()
+                        && getText().contains(configuration.getPlaceholderPrefix() + BUILT_IN_PLACEHOLDER)) {
+                    perDatabase = true;
+                } else {
+                    SqlScript parsed = parse.get();
+                    parsed.validate();
+                    sqlScript = parsed;
+                }
+            }
+        }
+        return perDatabase ? parse.get() : new DuckFleetSqlScript(sqlScript, database);
+    }
+
+    @Override
+    public Reader read() {
+        return new StringReader(getText());
+    }
+
+    private synchronized String getText() {
+        if (text == null) {
+            StringBuilder builder = new StringBuilder();
+            char[] buffer = new char[8192];
+            try (Reader reader = resource.read()) {
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    builder.append(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new FlywayException("Unable to read " + resource.getAbsolutePath(), e);
+            }
+            text = builder.toString();
+        }
+        return text;
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return resource.getAbsolutePath();
+    }
+
+    @Override
+    public String getAbsolutePathOnDisk() {
+        return resource.getAbsolutePathOnDisk();
+    }
+
+    @Override
+    public String getFilename() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public String getRelativePath() {
+        return resource.getRelativePath();
+    }
+}
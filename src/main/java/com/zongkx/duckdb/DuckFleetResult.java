@@ -0,0 +1,63 @@
+package com.zongkx.duckdb;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The migration of a single database of a {@link DuckFleetMigrator} run.
+ */
+public final class DuckFleetResult {
+    private final Path database;
+    private final int migrationsExecuted;
+    private final long nanos;
+    private final Exception error;
+
+    DuckFleetResult(Path database, int migrationsExecuted, long nanos, Exception error) {
+        this.database = database;
+        this.migrationsExecuted = migrationsExecuted;
+        this.nanos = nanos;
+        this.error = error;
+    }
+
+    /**
+     * @return The database file.
+     */
+    public Path getDatabase() {
+        return database;
+    }
+
+    /**
+     * @return The number of migrations executed, or {@code 0} if the migration failed.
+     */
+    public int getMigrationsExecuted() {
+        return migrationsExecuted;
+    }
+
+    /**
+     * @return The wall time of the migration, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    /**
+     * @return The reason the migration failed, or {@code null} if it succeeded.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    @Override
+    public String toString() {
+        return database + " (" + (error != null ? "failed: " + error.getMessage()
+                : migrationsExecuted + " migrations") + ", " + getMillis() + " ms)";
+    }
+}
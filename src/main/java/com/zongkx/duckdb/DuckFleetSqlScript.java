@@ -0,0 +1,92 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlStatementIterator;
+
+import java.util.Collection;
+
+/**
+ * The statements of a script parsed once by {@link DuckFleetResource}, executed against one database of the fleet.
+ * Statements that invalidate the metadata of the database they were parsed for are rebound to this database as they
+ * are iterated.
+ */
+final class DuckFleetSqlScript implements SqlScript {
+    private final SqlScript sqlScript;
+    private final DuckDBDatabase database;
+
+    DuckFleetSqlScript(SqlScript sqlScript, DuckDBDatabase database) {
+        this.sqlScript = sqlScript;
+        this.database = database;
+    }
+
+    @Override
+    public SqlStatementIterator getSqlStatements() {
+        SqlStatementIterator statements = sqlScript.getSqlStatements();
+        return new SqlStatementIterator() {
+            @Override
+            public boolean hasNext() {
+                return statements.hasNext();
+            }
+
+            @Override
+            public SqlStatement next() {
+                SqlStatement statement = statements.next();
+                return statement instanceof DuckSqlStatement
+                        ? ((DuckSqlStatement) statement).forDatabase(database)
+                        : statement;
+            }
+
+            @Override
+            public void close() {
+                statements.close();
+            }
+        };
+    }
+
+    @Override
+    public int getSqlStatementCount() {
+        return sqlScript.getSqlStatementCount();
+    }
+
+    @Override
+    public Collection<SqlScript> getReferencedSqlScripts() {
+        return sqlScript.getReferencedSqlScripts();
+    }
+
+    @Override
+    public LoadableResource getResource() {
+        return sqlScript.getResource();
+    }
+
+    @Override
+    public boolean executeInTransaction() {
+        return sqlScript.executeInTransaction();
+    }
+
+    @Override
+    public boolean shouldExecute() {
+        return sqlScript.shouldExecute();
+    }
+
+    @Override
+    public String shouldExecuteExpression() {
+        return sqlScript.shouldExecuteExpression();
+    }
+
+    @Override
+    public boolean placeholderReplacement() {
+        return sqlScript.placeholderReplacement();
+    }
+
+    @Override
+    public void validate() {
+        sqlScript.validate();
+    }
+
+    @Override
+    public int compareTo(SqlScript other) {
+        return sqlScript.compareTo(other);
+    }
+}
@@ -0,0 +1,192 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Takes the lock of a file-backed database before the database is opened, and holds it until every connection obtained
+ * from this data source has been closed. DuckDB locks the database file exclusively while it is open read-write, so
+ * without this data source a second process migrating the same database fails to connect straight away, rather than
+ * waiting up to {@code flyway.duckdb.lockTimeout} for the first one to complete. Configure it with
+ * {@code configuration.dataSource(DuckLockingDataSource.create(configuration))}.
+ * <p>
+ * The driver may keep the database file locked for a while after the last connection of the process holding it has
+ * been closed, so opening the database is retried until the lock timeout expires for as long as DuckDB reports it
+ * locked.
+ * <p>
+ * Only Flyway should connect through it: connections of the application would wait for the lock as well.
+ */
+public class DuckLockingDataSource implements DataSource {
+    private static final Log LOG = LogFactory.getLog(DuckLockingDataSource.class);
+    private static final String URL_PREFIX = "jdbc:duckdb:";
+    private static final String LOCK_CONFLICT = "Could not set lock on file";
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private final DataSource dataSource;
+    private final DuckFileLock fileLock;
+    private final long timeoutMillis;
+
+    private DuckLockingDataSource(DataSource dataSource, DuckFileLock fileLock, long timeoutMillis) {
+        this.dataSource = dataSource;
+        this.fileLock = fileLock;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return The data source of the configuration, locking the database file named by its URL. In-memory databases,
+     * or a {@code flyway.duckdb.lockTimeout} of {@code 0}, leave it unchanged.
+     */
+    public static DataSource create(Configuration configuration) {
+        DataSource dataSource = configuration.getDataSource();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        DuckFileLock fileLock = DuckFileLock.forDatabase(getDatabasePath(configuration.getUrl()), duckConfiguration);
+        return fileLock == null || dataSource instanceof DuckLockingDataSource
+                ? dataSource
+                : new DuckLockingDataSource(dataSource, fileLock,
+                TimeUnit.SECONDS.toMillis(duckConfiguration.getLockTimeout()));
+    }
+
+    /**
+     * @return The database file of a DuckDB URL, or {@code null} for in-memory and remote databases.
+     */
+    static String getDatabasePath(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return null;
+        }
+        String path = url.substring(URL_PREFIX.length());
+        int properties = path.indexOf('?');
+        if (properties >= 0) {
+            path = path.substring(0, properties);
+        }
+        if (path.isEmpty() || path.startsWith(":memory:") || path.startsWith("md:") || path.startsWith("motherduck:")) {
+            return null;
+        }
+        return path;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return open(dataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return open(() -> dataSource.getConnection(username, password));
+    }
+
+    private Connection open(Opener opener) throws SQLException {
+        fileLock.acquire();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            long backoff = INITIAL_BACKOFF_MILLIS;
+            while (true) {
+                try {
+                    return locked(opener.open());
+                } catch (SQLException e) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (e.getMessage() == null || !e.getMessage().contains(LOCK_CONFLICT) || remaining <= 0) {
+                        throw e;
+                    }
+                    LOG.debug("DuckDB database still locked by another process, retrying: " + e.getMessage());
+                    Thread.sleep(Math.min(backoff, remaining));
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            fileLock.release();
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for DuckDB database to be unlocked", e);
+        } catch (SQLException | RuntimeException e) {
+            fileLock.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The connection, releasing the lock once when it is closed.
+     */
+    private Connection locked(Connection connection) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                    synchronized (this) {
+                        if (closed) {
+                            return null;
+                        }
+                        closed = true;
+                    }
+                    try {
+                        connection.close();
+                    } finally {
+                        fileLock.release();
+                    }
+                    return null;
+                }
+                try {
+                    return method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(DuckLockingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handler);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return dataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        dataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        dataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return dataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return dataSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : dataSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+    }
+
+    private interface Opener {
+        Connection open() throws SQLException;
+    }
+}
@@ -0,0 +1,116 @@
+package com.zongkx.duckdb;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reads a file through read-only memory mappings, decoding the mapped bytes straight into the caller's buffer as they
+ * are read rather than copying them into an intermediate byte buffer first. Files larger than a single mapping can
+ * address are mapped window by window. Malformed input is replaced, as with {@link java.io.InputStreamReader}.
+ */
+class DuckMappedReader extends Reader {
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private final long size;
+    private final CharsetDecoder decoder;
+    /**
+     * Holds a character decoded for a single-character read that yielded a surrogate pair.
+     */
+    private final CharBuffer pending = CharBuffer.allocate(2);
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private boolean flushed;
+
+    DuckMappedReader(FileChannel channel, Charset charset) throws IOException {
+        this(channel, charset, WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize The number of bytes mapped at a time.
+     */
+    DuckMappedReader(FileChannel channel, Charset charset, long windowSize) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.size = channel.size();
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        pending.flip();
+        map(0, 0);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (window == null) {
+            throw new IOException("Reader closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pending.hasRemaining()) {
+            int count = Math.min(len, pending.remaining());
+            pending.get(cbuf, off, count);
+            return count;
+        }
+        if (len < 2) {
+            pending.clear();
+            decode(pending);
+            pending.flip();
+            return pending.hasRemaining() ? read(cbuf, off, len) : -1;
+        }
+        int count = decode(CharBuffer.wrap(cbuf, off, len));
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * Decodes into {@code out} until it is full or the file ends, mapping the next window once the current one has
+     * been consumed. An incomplete character at the end of a window is decoded from the start of the next one.
+     *
+     * @return The number of characters decoded, {@code 0} at the end of the file.
+     */
+    private int decode(CharBuffer out) throws IOException {
+        int start = out.position();
+        while (out.hasRemaining() && !flushed) {
+            boolean last = windowStart + window.limit() >= size;
+            CoderResult result = decoder.decode(window, out, last);
+            if (result.isOverflow()) {
+                break;
+            }
+            if (!last) {
+                map(windowStart + window.position(), window.remaining() + 1);
+            } else if (decoder.flush(out).isUnderflow()) {
+                flushed = true;
+            }
+        }
+        return out.position() - start;
+    }
+
+    /**
+     * Maps the next window, longer than the window size if that is needed to hold {@code minimum} bytes, e.g. when the
+     * window size is smaller than the incomplete character carried over from the previous window.
+     */
+    private void map(long position, long minimum) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(Math.max(windowSize, minimum), size - position));
+    }
+
+    /**
+     * Closes the file. The current mapping is released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
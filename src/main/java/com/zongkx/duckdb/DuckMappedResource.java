@@ -0,0 +1,88 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Wraps a resource on disk so that its script is read through memory mappings of the file instead of a buffered
+ * stream. Every {@link #read()} maps the file anew, so the file is still read twice, once for the checksum and once for
+ * parsing; both reads are served from the pages of the OS cache rather than copied into buffers of their own.
+ */
+public class DuckMappedResource extends LoadableResource {
+    private final LoadableResource resource;
+    private final Path file;
+    private final Charset encoding;
+
+    public DuckMappedResource(LoadableResource resource, Path file, Charset encoding) {
+        this.resource = resource;
+        this.file = file;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return The resource read through memory mappings, or the resource itself if it is not a file on disk.
+     */
+    public static LoadableResource of(LoadableResource resource, Charset encoding) {
+        if (resource instanceof DuckMappedResource) {
+            return resource;
+        }
+        String pathOnDisk = resource.getAbsolutePathOnDisk();
+        if (pathOnDisk == null) {
+            return resource;
+        }
+        Path file = Paths.get(pathOnDisk);
+        return Files.isRegularFile(file) ? new DuckMappedResource(resource, file, encoding) : resource;
+    }
+
+    @Override
+    public Reader read() {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new DuckMappedReader(channel, encoding);
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already failing
+                }
+            }
+            throw new FlywayException("Unable to map resource " + file + " (encoding: " + encoding + ")", e);
+        }
+    }
+
+    @Override
+    public boolean shouldStream() {
+        return resource.shouldStream();
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return resource.getAbsolutePath();
+    }
+
+    @Override
+    public String getAbsolutePathOnDisk() {
+        return resource.getAbsolutePathOnDisk();
+    }
+
+    @Override
+    public String getFilename() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public String getRelativePath() {
+        return resource.getRelativePath();
+    }
+}
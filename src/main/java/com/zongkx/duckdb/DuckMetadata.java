@@ -0,0 +1,119 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads schema metadata from DuckDB's native {@code duckdb_*()} table functions instead of the Postgres
+ * compatibility views ({@code pg_class}, {@code pg_namespace}, ...), which DuckDB has to build on every access. Every
+ * lookup is scoped to a schema of one database, as the functions list the objects of all attached databases.
+ */
+public class DuckMetadata {
+    private static final String IN_SCHEMA = "database_name = ? AND schema_name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DuckMetadata(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean schemaExists(String database, String schema) throws SQLException {
+        return exists("SELECT 1 FROM duckdb_schemas() WHERE " + IN_SCHEMA, database, schema);
+    }
+
+    public boolean tableExists(String database, String schema, String table) throws SQLException {
+        return exists("SELECT 1 FROM duckdb_tables()"
+                + " WHERE " + IN_SCHEMA + " AND table_name = ? AND NOT temporary", database, schema, table);
+    }
+
+    /**
+     * Checks each kind of object separately, stopping at the first one found, rather than unioning all catalogs.
+     */
+    public boolean schemaEmpty(String database, String schema) throws SQLException {
+        return !exists("SELECT 1 FROM duckdb_tables() WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary",
+                database, schema)
+                && !exists("SELECT 1 FROM duckdb_views() WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary",
+                database, schema)
+                && !exists("SELECT 1 FROM duckdb_sequences() WHERE " + IN_SCHEMA + " AND NOT temporary", database, schema)
+                && !exists("SELECT 1 FROM duckdb_types() WHERE " + IN_SCHEMA + " AND NOT internal", database, schema)
+                && !exists("SELECT 1 FROM duckdb_functions() WHERE " + IN_SCHEMA + " AND NOT internal"
+                + " AND function_type IN ('macro', 'table_macro')", database, schema);
+    }
+
+    public List<String> getTables(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForStringList("SELECT table_name FROM duckdb_tables()"
+                + " WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary ORDER BY table_oid DESC", database, schema);
+    }
+
+    public List<String> getViews(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForStringList("SELECT view_name FROM duckdb_views()"
+                + " WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary ORDER BY view_oid DESC", database, schema);
+    }
+
+    public List<String> getSequences(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForStringList("SELECT sequence_name FROM duckdb_sequences()"
+                + " WHERE " + IN_SCHEMA + " AND NOT temporary ORDER BY sequence_oid DESC", database, schema);
+    }
+
+    public List<String> getTypes(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForStringList("SELECT type_name FROM duckdb_types()"
+                + " WHERE " + IN_SCHEMA + " AND NOT internal ORDER BY type_oid DESC", database, schema);
+    }
+
+    /**
+     * @return The user defined macros of this schema, with {@code function_name} and {@code function_type}
+     * ({@code macro} or {@code table_macro}).
+     */
+    public List<Map<String, String>> getMacros(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForList("SELECT DISTINCT function_name, function_type FROM duckdb_functions()"
+                + " WHERE " + IN_SCHEMA + " AND NOT internal AND function_type IN ('macro', 'table_macro')",
+                database, schema);
+    }
+
+    /**
+     * Lists every droppable object of this schema in a single query, in the order in which it can be dropped:
+     * views and macros first, then tables, sequences and types, each in reverse creation order as an object can only
+     * reference objects that existed before it.
+     *
+     * @return The objects with their {@code kind} (the keyword following {@code DROP}) and {@code object_name}.
+     */
+    public List<Map<String, String>> getDroppableObjects(String database, String schema) throws SQLException {
+        return jdbcTemplate.queryForList(
+                "SELECT kind, object_name FROM (\n" +
+                        "    SELECT 1 AS ord, 'VIEW' AS kind, view_name AS object_name, view_oid AS oid FROM duckdb_views()\n" +
+                        "    WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary\n" +
+                        "  UNION ALL\n" +
+                        "    SELECT DISTINCT 2, CASE function_type WHEN 'table_macro' THEN 'MACRO TABLE' ELSE 'MACRO' END, function_name, function_oid\n" +
+                        "    FROM duckdb_functions() WHERE " + IN_SCHEMA + " AND NOT internal AND function_type IN ('macro', 'table_macro')\n" +
+                        "  UNION ALL\n" +
+                        "    SELECT 3, 'TABLE', table_name, table_oid FROM duckdb_tables()\n" +
+                        "    WHERE " + IN_SCHEMA + " AND NOT internal AND NOT temporary\n" +
+                        "  UNION ALL\n" +
+                        "    SELECT 4, 'SEQUENCE', sequence_name, sequence_oid FROM duckdb_sequences()\n" +
+                        "    WHERE " + IN_SCHEMA + " AND NOT temporary\n" +
+                        "  UNION ALL\n" +
+                        "    SELECT 5, 'TYPE', type_name, type_oid FROM duckdb_types()\n" +
+                        "    WHERE " + IN_SCHEMA + " AND NOT internal\n" +
+                        ") ORDER BY ord, oid DESC",
+                database, schema, database, schema, database, schema, database, schema, database, schema);
+    }
+
+    /**
+     * Discards any metadata held for this schema. A no-op unless the metadata is cached.
+     */
+    public void invalidate(String database, String schema) {
+    }
+
+    /**
+     * Discards any metadata held for all schemas. A no-op unless the metadata is cached.
+     */
+    public void invalidate() {
+    }
+
+    private boolean exists(String query, String... params) throws SQLException {
+        return jdbcTemplate.queryForBoolean("SELECT EXISTS (" + query + " LIMIT 1)", params);
+    }
+}
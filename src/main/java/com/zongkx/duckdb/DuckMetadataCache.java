@@ -0,0 +1,157 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the object lists of each schema so that the repeated existence checks Flyway performs during a migrate are
+ * answered from a single catalog read. Entries are dropped whenever DDL is executed through {@link DuckParser} or the
+ * plugin itself, and optionally expire after a time-to-live to cover DDL issued behind Flyway's back (e.g. from Java
+ * migrations).
+ * <p>
+ * Connections the plugin opens besides Flyway's own, such as those of data migrations and parallel migrations, drop
+ * the entries of every cache of the same database file with {@link #invalidate(Connection)}.
+ */
+public class DuckMetadataCache extends DuckMetadata {
+    private static final Log LOG = LogFactory.getLog(DuckMetadataCache.class);
+    /**
+     * The number of invalidations of each database file, by path. In-memory databases share the empty path, as they
+     * can not be told apart, which only costs them a reload.
+     */
+    private static final Map<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlNanos;
+    private final Map<String, Snapshot> snapshots = new HashMap<>();
+    private AtomicLong generation;
+
+    /**
+     * @param ttlSeconds The number of seconds after which a schema is read again, or {@code 0} to keep it until the
+     *                   next invalidation.
+     */
+    public DuckMetadataCache(JdbcTemplate jdbcTemplate, long ttlSeconds) {
+        super(jdbcTemplate);
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    @Override
+    public boolean tableExists(String database, String schema, String table) throws SQLException {
+        return getSnapshot(database, schema).objects.get("TABLE").contains(table);
+    }
+
+    @Override
+    public boolean schemaEmpty(String database, String schema) throws SQLException {
+        for (Set<String> names : getSnapshot(database, schema).objects.values()) {
+            if (!names.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> getTables(String database, String schema) throws SQLException {
+        return new ArrayList<>(getSnapshot(database, schema).objects.get("TABLE"));
+    }
+
+    @Override
+    public List<String> getViews(String database, String schema) throws SQLException {
+        return new ArrayList<>(getSnapshot(database, schema).objects.get("VIEW"));
+    }
+
+    @Override
+    public List<String> getSequences(String database, String schema) throws SQLException {
+        return new ArrayList<>(getSnapshot(database, schema).objects.get("SEQUENCE"));
+    }
+
+    @Override
+    public List<String> getTypes(String database, String schema) throws SQLException {
+        return new ArrayList<>(getSnapshot(database, schema).objects.get("TYPE"));
+    }
+
+    /**
+     * Forgets the cached objects of this schema.
+     */
+    @Override
+    public void invalidate(String database, String schema) {
+        snapshots.remove(key(database, schema));
+    }
+
+    /**
+     * Forgets the cached objects of all schemas.
+     */
+    @Override
+    public void invalidate() {
+        snapshots.clear();
+    }
+
+    /**
+     * Forgets the cached objects of every cache of the database file of a connection, after DDL has been executed on
+     * it outside of Flyway's connections.
+     */
+    static void invalidate(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(DuckFileLock.DATABASE_PATH_QUERY)) {
+            invalidateDatabase(resultSet.next() ? resultSet.getString(1) : null);
+        }
+    }
+
+    /**
+     * Forgets the cached objects of every cache of a database file.
+     *
+     * @param path The file of the database, or {@code null} for an in-memory database.
+     */
+    static void invalidateDatabase(String path) {
+        getGeneration(path).incrementAndGet();
+    }
+
+    private static AtomicLong getGeneration(String path) {
+        return GENERATIONS.computeIfAbsent(path == null ? "" : path, p -> new AtomicLong());
+    }
+
+    private Snapshot getSnapshot(String database, String schema) throws SQLException {
+        if (generation == null) {
+            generation = getGeneration(jdbcTemplate.queryForString(DuckFileLock.DATABASE_PATH_QUERY));
+        }
+        String key = key(database, schema);
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot == null || snapshot.generation != generation.get()
+                || (ttlNanos > 0 && System.nanoTime() - snapshot.loadedAt > ttlNanos)) {
+            snapshot = new Snapshot(generation.get());
+            for (String kind : Arrays.asList("VIEW", "MACRO", "MACRO TABLE", "TABLE", "SEQUENCE", "TYPE")) {
+                snapshot.objects.put(kind, new LinkedHashSet<>());
+            }
+            for (Map<String, String> row : getDroppableObjects(database, schema)) {
+                snapshot.objects.get(row.get("kind")).add(row.get("object_name"));
+            }
+            snapshots.put(key, snapshot);
+            LOG.debug("Loaded metadata of schema " + key + " into the cache");
+        }
+        return snapshot;
+    }
+
+    private static String key(String database, String schema) {
+        return database + "." + schema;
+    }
+
+    private static class Snapshot {
+        private final long loadedAt = System.nanoTime();
+        private final long generation;
+        private final Map<String, Set<String>> objects = new HashMap<>();
+
+        Snapshot(long generation) {
+            this.generation = generation;
+        }
+    }
+}
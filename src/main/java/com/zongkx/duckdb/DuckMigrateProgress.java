@@ -0,0 +1,44 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.MigrationInfo;
+
+/**
+ * Reported by {@link DuckBackgroundMigrator} once a migration has been committed.
+ */
+public final class DuckMigrateProgress {
+    private final MigrationInfo migration;
+    private final int completed;
+    private final int total;
+
+    DuckMigrateProgress(MigrationInfo migration, int completed, int total) {
+        this.migration = migration;
+        this.completed = completed;
+        this.total = total;
+    }
+
+    /**
+     * @return The migration that has been committed.
+     */
+    public MigrationInfo getMigration() {
+        return migration;
+    }
+
+    /**
+     * @return The number of migrations committed so far by this migrate.
+     */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return The number of migrations that were pending when the migrate started.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return migration.getScript() + " (" + completed + "/" + total + ")";
+    }
+}
@@ -0,0 +1,365 @@
+package com.zongkx.duckdb;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The catalog objects a migration reads and writes, derived from the tokens of its script. The analysis errs on the
+ * side of conflicts: any name following {@code FROM}, {@code JOIN}, {@code INTO}, {@code UPDATE}, {@code TABLE}, ...
+ * is taken as an object, and a migration is turned into a barrier that runs on its own as soon as it has a statement
+ * whose effects can not be attributed to tables, indexes and sequences: statements other than {@code SELECT},
+ * {@code INSERT}, {@code UPDATE}, {@code DELETE}, {@code COPY} and {@code CREATE}, {@code ALTER}, {@code DROP} or
+ * {@code COMMENT ON} of those objects (e.g. {@code TRUNCATE}, {@code SET}, {@code CREATE VIEW}), comma-separated
+ * {@code FROM} lists, and any use of a view or macro, which reads objects the script does not name.
+ */
+final class DuckMigrationFootprint {
+    /**
+     * The footprint of a migration that must not run concurrently with any other.
+     */
+    static final DuckMigrationFootprint BARRIER = new DuckMigrationFootprint(
+            Collections.<String>emptySet(), Collections.<String>emptySet(), true);
+
+    private final Set<String> reads;
+    private final Set<String> writes;
+    private final boolean barrier;
+
+    private DuckMigrationFootprint(Set<String> reads, Set<String> writes, boolean barrier) {
+        this.reads = reads;
+        this.writes = writes;
+        this.barrier = barrier;
+    }
+
+    boolean isBarrier() {
+        return barrier;
+    }
+
+    /**
+     * @return Whether the two migrations must run one after the other.
+     */
+    boolean conflictsWith(DuckMigrationFootprint other) {
+        return barrier || other.barrier
+                || intersects(writes, other.writes) || intersects(writes, other.reads) || intersects(reads, other.writes);
+    }
+
+    @Override
+    public String toString() {
+        return barrier ? "barrier" : "reads=" + reads + ", writes=" + writes;
+    }
+
+    /**
+     * Adds the views and macros a script creates to {@code names}, so that the migrations using them can be told apart
+     * before they exist.
+     */
+    static void collectViews(String sql, String defaultSchema, Set<String> names) {
+        Tokenizer tokenizer = new Tokenizer(sql);
+        String previous = null;
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            String upper = token.toUpperCase(Locale.ENGLISH);
+            if ("IF".equals(upper) || "NOT".equals(upper) || "EXISTS".equals(upper)) {
+                continue;
+            }
+            if (tokenizer.isIdentifier() && ("VIEW".equals(previous) || "MACRO".equals(previous)
+                    || "FUNCTION".equals(previous))) {
+                names.add(normalize(token, defaultSchema));
+            }
+            previous = upper;
+        }
+    }
+
+    /**
+     * @param sql           The script of the migration.
+     * @param defaultSchema The schema of unqualified names.
+     * @param views         The views and macros of the database and of the pending migrations, which make any migration
+     *                      using them a barrier.
+     */
+    static DuckMigrationFootprint analyze(String sql, String defaultSchema, Set<String> views) {
+        Set<String> reads = new HashSet<>();
+        Set<String> writes = new HashSet<>();
+        Tokenizer tokenizer = new Tokenizer(sql);
+        String firstKeyword = null;
+        boolean objectKindSeen = false;
+        String previous = null;
+        int depth = 0;
+        int fromDepth = -1;
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            if (";".equals(token)) {
+                if (firstKeyword != null && isDdl(firstKeyword) && !objectKindSeen) {
+                    return BARRIER;
+                }
+                firstKeyword = null;
+                objectKindSeen = false;
+                previous = null;
+                depth = 0;
+                fromDepth = -1;
+                continue;
+            }
+            if ("(".equals(token)) {
+                depth++;
+            } else if (")".equals(token)) {
+                depth--;
+                if (depth < fromDepth) {
+                    fromDepth = -1;
+                }
+            } else if (",".equals(token) && depth == fromDepth) {
+                // Comma-separated FROM lists are not followed, so their tables are not known
+                return BARRIER;
+            }
+            String upper = token.toUpperCase(Locale.ENGLISH);
+            if (firstKeyword == null) {
+                firstKeyword = upper;
+                if (!isAnalyzedStatement(firstKeyword)) {
+                    return BARRIER;
+                }
+            } else if ("SCHEMA".equals(upper) || "DATABASE".equals(upper) || "CASCADE".equals(upper)) {
+                return BARRIER;
+            } else if (isDdl(firstKeyword) && !objectKindSeen && tokenizer.isIdentifier() && !isModifier(upper)) {
+                // CREATE, ALTER, DROP and COMMENT ON only of the objects whose dependencies are known
+                if (!isAnalyzedObjectKind(upper)) {
+                    return BARRIER;
+                }
+                objectKindSeen = true;
+            }
+
+            if (tokenizer.isIdentifier()) {
+                if (views.contains(normalize(token, defaultSchema))) {
+                    return BARRIER;
+                }
+                if ("FROM".equals(upper) || "JOIN".equals(upper)) {
+                    fromDepth = depth;
+                } else if (depth == fromDepth && endsFromList(upper)) {
+                    fromDepth = -1;
+                }
+            }
+
+            if (previous != null && tokenizer.isIdentifier()) {
+                String name = normalize(token, defaultSchema);
+                switch (previous) {
+                    case "FROM":
+                    case "JOIN":
+                    case "USING":
+                        // Table functions such as read_parquet(...) do not touch the catalog
+                        if (!tokenizer.isFunctionCall()) {
+                            ("DELETE".equals(firstKeyword) && "FROM".equals(previous) ? writes : reads).add(name);
+                        }
+                        break;
+                    case "REFERENCES":
+                        reads.add(name);
+                        break;
+                    case "INTO":
+                    case "UPDATE":
+                    case "TABLE":
+                    case "INDEX":
+                    case "SEQUENCE":
+                    case "TYPE":
+                    case "ON":
+                    case "EXISTS":
+                        writes.add(name);
+                        break;
+                    case "COPY":
+                        if ("COPY".equals(firstKeyword)) {
+                            writes.add(name);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            previous = upper;
+        }
+        if (firstKeyword != null && isDdl(firstKeyword) && !objectKindSeen) {
+            return BARRIER;
+        }
+        return new DuckMigrationFootprint(reads, writes, false);
+    }
+
+    private static boolean isAnalyzedStatement(String firstKeyword) {
+        switch (firstKeyword) {
+            case "SELECT":
+            case "WITH":
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "COPY":
+            case "CREATE":
+            case "ALTER":
+            case "DROP":
+            case "COMMENT":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isDdl(String firstKeyword) {
+        return "CREATE".equals(firstKeyword) || "ALTER".equals(firstKeyword) || "DROP".equals(firstKeyword)
+                || "COMMENT".equals(firstKeyword);
+    }
+
+    private static boolean isModifier(String keyword) {
+        switch (keyword) {
+            case "OR":
+            case "REPLACE":
+            case "TEMP":
+            case "TEMPORARY":
+            case "PERSISTENT":
+            case "UNIQUE":
+            case "ON":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isAnalyzedObjectKind(String keyword) {
+        switch (keyword) {
+            case "TABLE":
+            case "INDEX":
+            case "SEQUENCE":
+            case "TYPE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean endsFromList(String keyword) {
+        switch (keyword) {
+            case "WHERE":
+            case "GROUP":
+            case "HAVING":
+            case "ORDER":
+            case "LIMIT":
+            case "OFFSET":
+            case "QUALIFY":
+            case "WINDOW":
+            case "UNION":
+            case "EXCEPT":
+            case "INTERSECT":
+            case "RETURNING":
+            case "ON":
+            case "USING":
+            case "SET":
+            case "SELECT":
+            case "VALUES":
+            case "TO":
+            case "WITH":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String normalize(String name, String defaultSchema) {
+        String normalized = name.replace("\"", "").toLowerCase(Locale.ENGLISH);
+        return normalized.indexOf('.') < 0 ? defaultSchema.toLowerCase(Locale.ENGLISH) + "." + normalized : normalized;
+    }
+
+    private static boolean intersects(Set<String> a, Set<String> b) {
+        for (String name : a) {
+            if (b.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits a script into words, (qualified, possibly quoted) names, parentheses, commas and {@code ;}, skipping
+     * comments, string literals and other punctuation.
+     */
+    private static final class Tokenizer {
+        private final String sql;
+        private int pos;
+        private boolean identifier;
+        private boolean functionCall;
+
+        Tokenizer(String sql) {
+            this.sql = sql;
+        }
+
+        boolean isIdentifier() {
+            return identifier;
+        }
+
+        boolean isFunctionCall() {
+            return functionCall;
+        }
+
+        String next() {
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (c == '-' && sql.startsWith("--", pos)) {
+                    int end = sql.indexOf('\n', pos);
+                    pos = end < 0 ? sql.length() : end + 1;
+                } else if (c == '/' && sql.startsWith("/*", pos)) {
+                    int end = sql.indexOf("*/", pos + 2);
+                    pos = end < 0 ? sql.length() : end + 2;
+                } else if (c == '\'') {
+                    pos = skipQuoted(pos, '\'');
+                } else if (c == '$' && sql.startsWith("$$", pos)) {
+                    int end = sql.indexOf("$$", pos + 2);
+                    pos = end < 0 ? sql.length() : end + 2;
+                } else if (c == ';' || c == '(' || c == ')' || c == ',') {
+                    pos++;
+                    identifier = false;
+                    functionCall = false;
+                    return String.valueOf(c);
+                } else if (isNameStart(c)) {
+                    int start = pos;
+                    pos = skipName(pos);
+                    while (pos + 1 < sql.length() && sql.charAt(pos) == '.' && isNameStart(sql.charAt(pos + 1))) {
+                        pos = skipName(pos + 1);
+                    }
+                    identifier = true;
+                    int next = pos;
+                    while (next < sql.length() && Character.isWhitespace(sql.charAt(next))) {
+                        next++;
+                    }
+                    functionCall = next < sql.length() && sql.charAt(next) == '(';
+                    return sql.substring(start, pos);
+                } else {
+                    pos++;
+                    identifier = false;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isNameStart(char c) {
+            return c == '"' || c == '_' || Character.isLetter(c);
+        }
+
+        private int skipName(int start) {
+            return sql.charAt(start) == '"' ? skipQuoted(start, '"') : skipWord(start);
+        }
+
+        private int skipWord(int start) {
+            int end = start;
+            while (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {
+                end++;
+            }
+            return end;
+        }
+
+        private int skipQuoted(int start, char quote) {
+            int end = start + 1;
+            while (end < sql.length()) {
+                if (sql.charAt(end) == quote) {
+                    if (end + 1 < sql.length() && sql.charAt(end + 1) == quote) {
+                        end += 2;
+                        continue;
+                    }
+                    return end + 1;
+                }
+                end++;
+            }
+            return end;
+        }
+    }
+}
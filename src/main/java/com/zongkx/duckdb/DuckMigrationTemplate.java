@@ -0,0 +1,302 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.license.VersionPrinter;
+import org.flywaydb.core.internal.resource.ResourceName;
+import org.flywaydb.core.internal.resource.ResourceNameParser;
+import org.flywaydb.core.internal.scanner.LocationScannerCache;
+import org.flywaydb.core.internal.scanner.ResourceNameCache;
+import org.flywaydb.core.internal.scanner.Scanner;
+import org.flywaydb.core.internal.util.StopWatch;
+import org.flywaydb.core.internal.util.TimeFormat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Migrates a template database once per migration set and hands out copies of it, so that test suites creating a
+ * fresh database for every test do not run every migration every time. Use
+ * {@code new DuckMigrationTemplate(flyway).cloneTo(path)} or {@code cloneInto(connection)} in place of
+ * {@code flyway.migrate()} on the fresh database.
+ * <p>
+ * The template is kept in {@code flyway.duckdb.templateDirectory} as {@code <set>-<checksum>.duckdb}, where
+ * {@code <set>} identifies the locations and history table the migrations come from and {@code <checksum>} combines
+ * the version, description, type, script and checksum of every migration and the name and content of every SQL
+ * callback script, such as {@code afterMigrate.sql}. A changed, added or removed migration or callback therefore gives
+ * a new template, which is built on first use and replaces the templates of earlier versions of the same set. Java
+ * migrations without a checksum of their own are only told apart by their version and class name, and Java callbacks
+ * by their class name.
+ * <p>
+ * A copy carries the history table of the template, so Flyway finds every migration of the set applied and a
+ * {@code flyway.migrate()} on it executes nothing. When {@code flyway.duckdb.lockTimeout} is set, the template is
+ * built under its file lock, so that concurrent test JVMs sharing the directory build it only once.
+ */
+public class DuckMigrationTemplate {
+    private static final Log LOG = LogFactory.getLog(DuckMigrationTemplate.class);
+    private static final String TEMPLATE_SUFFIX = ".duckdb";
+    private static final String BUILD_SUFFIX = ".build";
+    private static final String WAL_SUFFIX = ".wal";
+    private static final String LOCK_SUFFIX = ".flyway.lock";
+
+    private final Flyway flyway;
+    private Path template;
+
+    public DuckMigrationTemplate(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    /**
+     * Copies the template file to a new file-backed database.
+     *
+     * @param target The file of the database, which is replaced if it exists. It must not be open.
+     */
+    public void cloneTo(Path target) {
+        Path source = getTemplate();
+        try {
+            Files.deleteIfExists(Paths.get(target + WAL_SUFFIX));
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new FlywayException("Unable to copy DuckDB template " + source + " to " + target, e);
+        }
+    }
+
+    /**
+     * Copies the schemas, tables and data of the template into the current database of a connection with
+     * {@code COPY FROM DATABASE}, typically an in-memory database. The template is attached read-only for the copy,
+     * so any number of connections may clone it at the same time.
+     *
+     * @param connection A connection to an empty database.
+     */
+    public void cloneInto(Connection connection) {
+        Path source = getTemplate();
+        try (Statement statement = connection.createStatement()) {
+            String database = DuckSupport.queryForString(connection, "SELECT current_database()");
+            statement.execute("ATTACH '" + source.toString().replace("'", "''") + "' AS flyway_template (READ_ONLY)");
+            try {
+                statement.execute("COPY FROM DATABASE flyway_template TO " + DuckSupport.quote(database));
+            } finally {
+                statement.execute("DETACH flyway_template");
+            }
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to copy DuckDB template " + source, e);
+        }
+    }
+
+    /**
+     * @return The file of the template of the current migration set, migrated first if it does not exist yet.
+     */
+    public synchronized Path getTemplate() {
+        if (template != null && Files.exists(template)) {
+            return template;
+        }
+        Configuration configuration = flyway.getConfiguration();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        Path directory = duckConfiguration.getTemplateDirectory() != null
+                ? Paths.get(duckConfiguration.getTemplateDirectory())
+                : Paths.get(System.getProperty("java.io.tmpdir"), "flyway-duckdb-templates");
+        String set = getSetKey(configuration);
+        Path candidate = directory.toAbsolutePath().resolve(set + "-" + getChecksumKey(configuration) + TEMPLATE_SUFFIX);
+        if (!Files.exists(candidate)) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new FlywayException("Unable to create DuckDB template directory " + directory, e);
+            }
+            DuckFileLock fileLock = DuckFileLock.forDatabase(candidate.toString(), duckConfiguration);
+            if (fileLock != null) {
+                fileLock.acquire();
+            }
+            try {
+                // Another process may have built it while this one was waiting for the lock
+                if (!Files.exists(candidate)) {
+                    build(configuration, candidate);
+                    deleteOutdated(candidate.getParent(), set, candidate);
+                }
+            } finally {
+                if (fileLock != null) {
+                    fileLock.release();
+                }
+            }
+        }
+        template = candidate;
+        return template;
+    }
+
+    /**
+     * Migrates {@code <template>.build} and moves it in place once it is complete, so that a failed or interrupted
+     * build never leaves a template behind.
+     */
+    private static void build(Configuration configuration, Path candidate) {
+        Path building = Paths.get(candidate + BUILD_SUFFIX);
+        boolean moved = false;
+        try {
+            delete(building);
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            String url = "jdbc:duckdb:" + building;
+            Flyway buildFlyway = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .dataSource(url, configuration.getUser(), configuration.getPassword())
+                    .load();
+            int executed = new DuckParallelMigrator(buildFlyway).migrate();
+            try (Connection connection = DriverManager.getConnection(url);
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CHECKPOINT");
+            }
+            Path wal = Paths.get(building + WAL_SUFFIX);
+            if (Files.exists(wal) && Files.size(wal) > 0) {
+                throw new FlywayException("DuckDB template " + building + " still has a WAL after checkpointing");
+            }
+            Files.deleteIfExists(wal);
+            Files.move(building, candidate, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+            stopWatch.stop();
+            LOG.info("Built DuckDB template " + candidate + " with " + executed + " migrations (execution time "
+                    + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to build DuckDB template " + candidate, e);
+        } catch (IOException e) {
+            throw new FlywayException("Unable to build DuckDB template " + candidate, e);
+        } finally {
+            try {
+                if (!moved) {
+                    delete(building);
+                }
+                Files.deleteIfExists(Paths.get(building + LOCK_SUFFIX));
+            } catch (IOException e) {
+                LOG.warn("Unable to delete DuckDB template " + building + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Deletes the templates of earlier versions of the migration set. Another process still copying one keeps its
+     * open file, so failures are only logged.
+     */
+    private static void deleteOutdated(Path directory, String set, Path current) {
+        try (DirectoryStream<Path> templates = Files.newDirectoryStream(directory, set + "-*" + TEMPLATE_SUFFIX)) {
+            for (Path outdated : templates) {
+                if (!outdated.equals(current)) {
+                    delete(outdated);
+                    Files.deleteIfExists(Paths.get(outdated + LOCK_SUFFIX));
+                    LOG.debug("Deleted outdated DuckDB template " + outdated);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to delete outdated DuckDB templates in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return A key identifying where the migrations come from and where their history is kept, independent of their
+     * content.
+     */
+    private static String getSetKey(Configuration configuration) {
+        MessageDigest digest = DuckSupport.sha256();
+        DuckSupport.update(digest, Arrays.toString(configuration.getLocations()));
+        DuckSupport.update(digest, configuration.getDefaultSchema());
+        DuckSupport.update(digest, Arrays.toString(configuration.getSchemas()));
+        DuckSupport.update(digest, configuration.getTable());
+        return DuckSupport.hex(digest.digest()).substring(0, 16);
+    }
+
+    /**
+     * @return A key combining every migration and callback of the set and the settings that change what they create,
+     * read by resolving the migrations against an empty in-memory database.
+     */
+    private String getChecksumKey(Configuration configuration) {
+        MessageDigest digest = DuckSupport.sha256();
+        DuckSupport.update(digest, VersionPrinter.getVersion());
+        DuckSupport.update(digest, String.valueOf(configuration.getTarget()));
+        DuckSupport.update(digest, String.valueOf(configuration.isPlaceholderReplacement()));
+        for (Map.Entry<String, String> placeholder : new TreeMap<>(configuration.getPlaceholders()).entrySet()) {
+            DuckSupport.update(digest, placeholder.getKey());
+            DuckSupport.update(digest, placeholder.getValue());
+        }
+        Flyway resolver = Flyway.configure(configuration.getClassLoader())
+                .configuration(configuration)
+                .dataSource("jdbc:duckdb:", configuration.getUser(), configuration.getPassword())
+                .load();
+        for (MigrationInfo migration : resolver.info().all()) {
+            DuckSupport.update(digest, String.valueOf(migration.getVersion()));
+            DuckSupport.update(digest, migration.getDescription());
+            DuckSupport.update(digest, String.valueOf(migration.getType()));
+            DuckSupport.update(digest, migration.getScript());
+            DuckSupport.update(digest, String.valueOf(migration.getChecksum()));
+        }
+        if (!configuration.isSkipDefaultCallbacks()) {
+            for (Map.Entry<String, LoadableResource> callback : getCallbackScripts(configuration).entrySet()) {
+                DuckSupport.update(digest, callback.getKey());
+                DuckSupport.update(digest, read(callback.getValue()));
+            }
+        }
+        for (Callback callback : configuration.getCallbacks()) {
+            DuckSupport.update(digest, callback.getClass().getName());
+        }
+        return DuckSupport.hex(digest.digest()).substring(0, 32);
+    }
+
+    /**
+     * @return The SQL callback scripts Flyway would run, such as {@code afterMigrate.sql}, by their relative path.
+     */
+    private static Map<String, LoadableResource> getCallbackScripts(Configuration configuration) {
+        ResourceProvider resourceProvider = configuration.getResourceProvider();
+        if (resourceProvider == null) {
+            resourceProvider = new Scanner<>(JavaMigration.class, false, new ResourceNameCache(),
+                    new LocationScannerCache(), configuration);
+        }
+        ResourceNameParser resourceNameParser = new ResourceNameParser(configuration);
+        Map<String, LoadableResource> callbacks = new TreeMap<>();
+        for (LoadableResource resource : resourceProvider.getResources("", configuration.getSqlMigrationSuffixes())) {
+            ResourceName resourceName = resourceNameParser.parse(resource.getFilename());
+            if (resourceName.isValid() && Event.fromId(resourceName.getPrefix()) != null) {
+                callbacks.put(resource.getRelativePath(), resource);
+            }
+        }
+        return callbacks;
+    }
+
+    private static String read(LoadableResource resource) {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = resource.read()) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new FlywayException("Unable to read callback " + resource.getRelativePath(), e);
+        }
+        return text.toString();
+    }
+
+    private static void delete(Path database) throws IOException {
+        Files.deleteIfExists(database);
+        Files.deleteIfExists(Paths.get(database + WAL_SUFFIX));
+    }
+}
@@ -0,0 +1,451 @@
+package com.zongkx.duckdb;
+
+import org.duckdb.DuckDBConnection;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.executor.Context;
+import org.flywaydb.core.api.executor.MigrationExecutor;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.pattern.ValidatePattern;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.info.MigrationInfoImpl;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.util.FileUtils;
+import org.flywaydb.core.internal.util.StopWatch;
+import org.flywaydb.core.internal.util.TimeFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Migrates with pending migrations that touch disjoint sets of objects running concurrently, each on its own
+ * connection to the same database, on up to {@code flyway.duckdb.parallelism} threads. Use
+ * {@code new DuckParallelMigrator(flyway).migrate()} in place of {@code flyway.migrate()}. With
+ * {@code validateOnMigrate}, the applied migrations are validated first, as {@code flyway.migrate()} does.
+ * <p>
+ * Each migration runs in its own transaction and starts once every earlier migration it conflicts with (see
+ * {@link DuckMigrationFootprint}) has been committed. Its schema history entry is written in the same transaction, and
+ * transactions are committed strictly in rank order, so the schema history looks exactly like that of a sequential
+ * migrate. A migration also waits for the commit of the migration {@code parallelism} ranks before it, so that no more
+ * than {@code parallelism} connections and transactions are open at any time, including those of executed migrations
+ * waiting for an earlier one to commit. Once a migration fails, no further migrations start and all uncommitted ones
+ * are rolled back.
+ * <p>
+ * Migrate callbacks are not fired for the migrations run in parallel. A database without schema history is first
+ * migrated to the first pending version by Flyway itself, which creates the schemas and the schema history table.
+ */
+public class DuckParallelMigrator {
+    private static final Log LOG = LogFactory.getLog(DuckParallelMigrator.class);
+
+    private final Flyway flyway;
+    private final Consumer<MigrationInfo> committed;
+
+    public DuckParallelMigrator(Flyway flyway) {
+        this(flyway, null);
+    }
+
+    /**
+     * @param committed Called with each migration run in parallel once its transaction has been committed, in rank
+     *                  order. Migrations Flyway runs itself fire its callbacks instead.
+     */
+    DuckParallelMigrator(Flyway flyway, Consumer<MigrationInfo> committed) {
+        this.flyway = flyway;
+        this.committed = committed;
+    }
+
+    /**
+     * @return The number of migrations executed.
+     */
+    public int migrate() {
+        Configuration configuration = flyway.getConfiguration();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        int parallelism = duckConfiguration.getParallelism();
+        if (parallelism <= 1) {
+            return flyway.migrate().migrationsExecuted;
+        }
+
+        int executed = 0;
+        MigrationInfoService info = flyway.info();
+        if (info.applied().length == 0) {
+            MigrationInfo[] pending = info.pending();
+            if (pending.length == 0 || pending[0].getVersion() == null) {
+                return flyway.migrate().migrationsExecuted;
+            }
+            executed = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .target(pending[0].getVersion())
+                    .load()
+                    .migrate()
+                    .migrationsExecuted;
+            info = flyway.info();
+        }
+        if (configuration.isValidateOnMigrate()) {
+            validate(configuration);
+        }
+        for (MigrationInfo applied : info.applied()) {
+            if (applied.getState().isFailed()) {
+                throw new FlywayException("Schema history table contains failed migration " + applied.getScript()
+                        + ". Please remove any half-completed changes then run repair to fix the schema history.");
+            }
+        }
+
+        MigrationInfo[] pending = info.pending();
+        if (pending.length == 0) {
+            return executed;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, pending.length), r -> {
+            Thread thread = new Thread(r, "flyway-duckdb-migrate-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (Connection connection = configuration.getDataSource().getConnection()) {
+            String databasePath = DuckSupport.queryForString(connection, DuckFileLock.DATABASE_PATH_QUERY);
+            DuckFileLock fileLock = DuckFileLock.forDatabase(databasePath, duckConfiguration);
+            if (fileLock != null) {
+                fileLock.acquire();
+            }
+            DuckSessionSettings sessionSettings = null;
+            try {
+                sessionSettings = DuckSessionSettings.apply(new JdbcTemplate(connection,
+                        configuration.getPluginRegister().getPlugin(DuckDatabaseType.class)), duckConfiguration);
+                return executed + migrate(configuration, connection.unwrap(DuckDBConnection.class), databasePath,
+                        pending, pool, parallelism);
+            } finally {
+                // Migrations executed without a transaction may have left DDL behind even when they failed
+                DuckMetadataCache.invalidateDatabase(databasePath);
+                if (sessionSettings != null) {
+                    sessionSettings.restore();
+                }
+                if (fileLock != null) {
+                    fileLock.release();
+                }
+                DuckStatementReport.log(configuration);
+            }
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to migrate in parallel", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int migrate(Configuration configuration, DuckDBConnection connection, String databasePath,
+                        MigrationInfo[] pending, ExecutorService pool, int parallelism) throws SQLException {
+        String schema = getSchema(configuration, connection);
+        String table = DuckSupport.quoteSchema(schema) + "." + DuckSupport.quote(configuration.getTable());
+        int rank = Integer.parseInt(DuckSupport.queryForString(connection,
+                "SELECT COALESCE(MAX(\"installed_rank\"), 0) FROM " + table));
+        String installedBy = configuration.getInstalledBy() != null
+                ? configuration.getInstalledBy()
+                : DuckSupport.queryForString(connection, "SELECT current_user");
+
+        String[] scripts = new String[pending.length];
+        Set<String> views = getViews(connection);
+        for (int i = 0; i < pending.length; i++) {
+            scripts[i] = readSqlScript(configuration, getResolvedMigration(pending[i]));
+            if (scripts[i] != null) {
+                DuckMigrationFootprint.collectViews(scripts[i], schema, views);
+            }
+        }
+        DuckMigrationFootprint[] footprints = new DuckMigrationFootprint[pending.length];
+        for (int i = 0; i < pending.length; i++) {
+            footprints[i] = scripts[i] == null
+                    ? DuckMigrationFootprint.BARRIER
+                    : DuckMigrationFootprint.analyze(scripts[i], schema, views);
+            LOG.debug("Footprint of " + pending[i].getScript() + ": " + footprints[i]);
+        }
+
+        LOG.info("Migrating schema " + DuckSupport.quoteSchema(schema) + " with " + pending.length + " pending migrations in parallel");
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        AtomicBoolean failed = new AtomicBoolean();
+        Throwable[] errors = new Throwable[pending.length];
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        CompletableFuture<Void> previousCommit = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < pending.length; i++) {
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            if (i >= parallelism) {
+                dependencies.add(commits.get(i - parallelism));
+            }
+            for (int j = 0; j < i; j++) {
+                if (footprints[j].conflictsWith(footprints[i])) {
+                    dependencies.add(commits.get(j));
+                }
+            }
+
+            int index = i;
+            MigrationInfo migration = pending[i];
+            CompletableFuture<Execution> execution = CompletableFuture
+                    .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                    .thenApplyAsync(v -> execute(configuration, connection, schema, migration, failed, errors, index), pool);
+            CompletableFuture<Void> commit = CompletableFuture.allOf(execution, previousCommit)
+                    .handleAsync((v, t) -> {
+                        Execution result = execution.isCompletedExceptionally() ? null : execution.join();
+                        if (t != null) {
+                            failed.set(true);
+                            if (result != null) {
+                                result.rollback();
+                            }
+                            throw t instanceof CompletionException ? (CompletionException) t : new CompletionException(t);
+                        }
+                        try {
+                            result.commit(table, migration, rank + index + 1, installedBy);
+                        } catch (SQLException e) {
+                            failed.set(true);
+                            errors[index] = new FlywaySqlException("Unable to record migration " + migration.getScript()
+                                    + " in the schema history table", e);
+                            result.rollback();
+                            throw new CompletionException(errors[index]);
+                        }
+                        DuckMetadataCache.invalidateDatabase(databasePath);
+                        if (committed != null) {
+                            committed.accept(migration);
+                        }
+                        return null;
+                    }, pool);
+            commits.add(commit);
+            previousCommit = commit;
+        }
+
+        try {
+            previousCommit.join();
+        } catch (CompletionException e) {
+            for (Throwable error : errors) {
+                if (error instanceof RuntimeException) {
+                    throw (RuntimeException) error;
+                }
+            }
+            throw new FlywayException("Parallel migration failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        DuckChunkedBackfill.clearRecorded(connection, schema, configuration.getTable());
+        stopWatch.stop();
+        LOG.info("Successfully applied " + pending.length + " migrations to schema " + DuckSupport.quoteSchema(schema)
+                + " in parallel (execution time " + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+        return pending.length;
+    }
+
+    /**
+     * Executes a migration on a connection of its own, which like Flyway's own points its search path at the default
+     * schema.
+     */
+    private Execution execute(Configuration configuration, DuckDBConnection duckConnection, String schema,
+                              MigrationInfo migration, AtomicBoolean failed, Throwable[] errors, int index) {
+        if (failed.get()) {
+            throw new CompletionException(new FlywayException("Skipped " + migration.getScript() + " after an earlier failure"));
+        }
+        MigrationExecutor executor = getResolvedMigration(migration).getExecutor();
+        Connection connection = null;
+        try {
+            synchronized (duckConnection) {
+                connection = duckConnection.duplicate();
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(DuckSupport.setSearchPath(
+                        DuckSupport.queryForString(connection, "SELECT current_database()"), schema));
+            }
+            connection.setAutoCommit(!executor.canExecuteInTransaction());
+            LOG.info("Migrating " + (migration.getVersion() == null
+                    ? "with repeatable migration " + migration.getDescription()
+                    : "to version \"" + migration.getVersion() + " - " + migration.getDescription() + "\""));
+
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            Connection migrationConnection = connection;
+            executor.execute(new Context() {
+                @Override
+                public Configuration getConfiguration() {
+                    return configuration;
+                }
+
+                @Override
+                public Connection getConnection() {
+                    return migrationConnection;
+                }
+            });
+            stopWatch.stop();
+            return new Execution(connection, (int) stopWatch.getTotalTimeMillis());
+        } catch (Exception e) {
+            failed.set(true);
+            if (connection != null) {
+                new Execution(connection, 0).rollback();
+            }
+            errors[index] = e instanceof FlywayException
+                    ? e
+                    : new FlywayException("Migration " + migration.getScript() + " failed: " + e.getMessage(), e);
+            throw new CompletionException(errors[index]);
+        }
+    }
+
+    static ResolvedMigration getResolvedMigration(MigrationInfo migration) {
+        return ((MigrationInfoImpl) migration).getResolvedMigration();
+    }
+
+    /**
+     * @return The text of a SQL migration executed in a transaction, or {@code null} for any other migration, which is
+     * run as a barrier.
+     */
+    private static String readSqlScript(Configuration configuration, ResolvedMigration migration) {
+        if (migration.getType() != CoreMigrationType.SQL || !migration.getExecutor().canExecuteInTransaction()) {
+            return null;
+        }
+        return readScript(configuration, migration);
+    }
+
+    /**
+     * @return The views and macros of the database, as {@code schema.name} and {@code database.schema.name}.
+     */
+    private static Set<String> getViews(Connection connection) throws SQLException {
+        Set<String> views = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT database_name, schema_name, view_name"
+                     + " FROM duckdb_views() WHERE database_name = current_database() AND NOT internal"
+                     + " UNION ALL SELECT database_name, schema_name, function_name FROM duckdb_functions()"
+                     + " WHERE database_name = current_database() AND NOT internal"
+                     + " AND function_type IN ('macro', 'table_macro')")) {
+            while (resultSet.next()) {
+                String name = (resultSet.getString(2) + "." + resultSet.getString(3)).toLowerCase(Locale.ENGLISH);
+                views.add(name);
+                views.add(resultSet.getString(1).toLowerCase(Locale.ENGLISH) + "." + name);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * Validates the applied migrations against the resolved ones, as {@code flyway.migrate()} does with
+     * {@code validateOnMigrate}, pending migrations being expected.
+     */
+    private static void validate(Configuration configuration) {
+        ValidatePattern[] patterns = configuration.getIgnoreMigrationPatterns();
+        ValidatePattern[] withPending = Arrays.copyOf(patterns, patterns.length + 1);
+        withPending[patterns.length] = ValidatePattern.fromPattern("*:pending");
+        Flyway.configure(configuration.getClassLoader())
+                .configuration(configuration)
+                .ignoreMigrationPatterns(withPending)
+                .load()
+                .validate();
+    }
+
+    /**
+     * @return The text of a SQL migration, or {@code null} if it can not be read.
+     */
+    static String readScript(Configuration configuration, ResolvedMigration migration) {
+        try {
+            Path path = Paths.get(migration.getPhysicalLocation());
+            if (Files.isRegularFile(path)) {
+                return new String(Files.readAllBytes(path), configuration.getEncoding());
+            }
+        } catch (IOException | InvalidPathException e) {
+            LOG.debug("Unable to read " + migration.getPhysicalLocation() + ": " + e.getMessage());
+        }
+        for (Location location : configuration.getLocations()) {
+            if (!location.isClassPath()) {
+                continue;
+            }
+            String root = location.getRootPath();
+            String name = root.isEmpty() ? migration.getScript() : root + "/" + migration.getScript();
+            try (InputStream inputStream = configuration.getClassLoader().getResourceAsStream(name)) {
+                if (inputStream != null) {
+                    return FileUtils.copyToString(inputStream, configuration.getEncoding());
+                }
+            } catch (IOException e) {
+                LOG.debug("Unable to read " + name + ": " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    static String getSchema(Configuration configuration, Connection connection) throws SQLException {
+        if (configuration.getDefaultSchema() != null) {
+            return configuration.getDefaultSchema();
+        }
+        if (configuration.getSchemas().length > 0) {
+            return configuration.getSchemas()[0];
+        }
+        return DuckSupport.queryForString(connection, "SELECT current_schema()");
+    }
+
+    /**
+     * A migration that has been executed but whose transaction is still open.
+     */
+    private static final class Execution {
+        private final Connection connection;
+        private final int executionTime;
+
+        Execution(Connection connection, int executionTime) {
+            this.connection = connection;
+            this.executionTime = executionTime;
+        }
+
+        void commit(String table, MigrationInfo migration, int installedRank, String installedBy) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table
+                    + " (\"installed_rank\", \"version\", \"description\", \"type\", \"script\", \"checksum\","
+                    + " \"installed_by\", \"execution_time\", \"success\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, TRUE)")) {
+                statement.setInt(1, installedRank);
+                statement.setString(2, migration.getVersion() == null ? null : migration.getVersion().getVersion());
+                statement.setString(3, migration.getDescription());
+                statement.setString(4, migration.getType().name());
+                statement.setString(5, migration.getScript());
+                if (migration.getChecksum() == null) {
+                    statement.setNull(6, Types.INTEGER);
+                } else {
+                    statement.setInt(6, migration.getChecksum());
+                }
+                statement.setString(7, installedBy);
+                statement.setInt(8, executionTime);
+                statement.executeUpdate();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            connection.close();
+        }
+
+        void rollback() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                LOG.warn("Unable to roll back migration: " + e.getMessage());
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.debug("Unable to close connection: " + e.getMessage());
+            }
+        }
+    }
+}
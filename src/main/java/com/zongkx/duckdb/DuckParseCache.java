@@ -0,0 +1,340 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.license.VersionPrinter;
+import org.flywaydb.core.internal.sqlscript.Delimiter;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the statements {@link DuckParser} splits a script into in {@code flyway.duckdb.parseCache}, so that a script
+ * already seen is not tokenized again by later Flyway runs. Entries are keyed by a digest of the script, the settings
+ * that change how it is parsed (placeholders) and the version of Flyway and of the parser, so a changed script or
+ * plugin never reads a stale entry. Unreadable entries are ignored and the script is parsed as usual.
+ */
+final class DuckParseCache {
+    private static final Log LOG = LogFactory.getLog(DuckParseCache.class);
+    private static final int FORMAT = 2;
+    private static final String BUILT_IN_PLACEHOLDER = "flyway:";
+    private static final byte STATEMENT = 'S';
+    private static final byte COPY = 'C';
+    private static String parserVersion;
+
+    private final Path directory;
+    private final Configuration configuration;
+
+    private DuckParseCache(Path directory, Configuration configuration) {
+        this.directory = directory;
+        this.configuration = configuration;
+    }
+
+    /**
+     * @return The cache configured by {@code flyway.duckdb.parseCache}, or {@code null} if none is.
+     */
+    static DuckParseCache forConfiguration(Configuration configuration) {
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        String directory = duckConfiguration == null ? null : duckConfiguration.getParseCache();
+        return directory == null || directory.isEmpty() ? null : new DuckParseCache(Paths.get(directory), configuration);
+    }
+
+    /**
+     * @return The entry of the script, either holding its statements or recording them as they are parsed, or
+     * {@code null} if the script is not cached: it is streamed, or uses built-in placeholders such as
+     * {@code ${flyway:timestamp}} whose values change between runs.
+     */
+    Entry open(LoadableResource resource) {
+        if (resource.shouldStream()) {
+            return null;
+        }
+        String key;
+        try {
+            key = key(resource);
+        } catch (IOException e) {
+            LOG.debug("Unable to read " + resource.getFilename() + " for the parse cache: " + e.getMessage());
+            return null;
+        }
+        if (key == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + ".parsed");
+        try {
+            List<CachedStatement> statements = read(file, key);
+            LOG.debug("Using cached statements of " + resource.getFilename());
+            return new Entry(file, key, statements);
+        } catch (NoSuchFileException e) {
+            return new Entry(file, key, null);
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("Ignoring unreadable parse cache entry " + file + ": " + e);
+            return new Entry(file, key, null);
+        }
+    }
+
+    private String key(LoadableResource resource) throws IOException {
+        MessageDigest digest = DuckSupport.sha256();
+        DuckSupport.update(digest, getParserVersion());
+        DuckSupport.update(digest, String.valueOf(configuration.isPlaceholderReplacement()));
+        String builtInPlaceholder = null;
+        if (configuration.isPlaceholderReplacement()) {
+            builtInPlaceholder = configuration.getPlaceholderPrefix() + BUILT_IN_PLACEHOLDER;
+            DuckSupport.update(digest, configuration.getPlaceholderPrefix());
+            DuckSupport.update(digest, configuration.getPlaceholderSuffix());
+            DuckSupport.update(digest, configuration.getPlaceholderSeparator());
+            for (Map.Entry<String, String> placeholder : new TreeMap<>(configuration.getPlaceholders()).entrySet()) {
+                DuckSupport.update(digest, placeholder.getKey());
+                DuckSupport.update(digest, placeholder.getValue());
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = resource.read()) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        }
+        if (builtInPlaceholder != null && text.indexOf(builtInPlaceholder) >= 0) {
+            return null;
+        }
+        DuckSupport.update(digest, text.toString());
+        return DuckSupport.hex(digest.digest());
+    }
+
+    private static List<CachedStatement> read(Path file, String key) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT || !key.equals(in.readUTF())) {
+                throw new IOException("Entry does not match its key");
+            }
+            int count = in.readInt();
+            List<CachedStatement> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(CachedStatement.read(in));
+            }
+            return statements;
+        }
+    }
+
+    /**
+     * A version changing whenever Flyway or the classes deciding how DuckDB scripts are split do.
+     */
+    private static synchronized String getParserVersion() throws IOException {
+        if (parserVersion == null) {
+            MessageDigest digest = DuckSupport.sha256();
+            DuckSupport.update(digest, FORMAT + "/" + VersionPrinter.getVersion());
+            for (Class<?> parserClass : new Class<?>[]{DuckParser.class, DuckStatementClassifier.class}) {
+                try (InputStream in = parserClass.getResourceAsStream(parserClass.getSimpleName() + ".class")) {
+                    if (in == null) {
+                        throw new IOException("Unable to read " + parserClass.getName());
+                    }
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            parserVersion = DuckSupport.hex(digest.digest());
+        }
+        return parserVersion;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The statements of one script: replayed from the cache, or recorded while the script is parsed and written to
+     * the cache once the last one has been parsed.
+     */
+    final class Entry {
+        private final Path file;
+        private final String key;
+        private final List<CachedStatement> cached;
+        private List<CachedStatement> recorded = new ArrayList<>();
+        private int next;
+
+        private Entry(Path file, String key, List<CachedStatement> cached) {
+            this.file = file;
+            this.key = key;
+            this.cached = cached;
+        }
+
+        boolean isCached() {
+            return cached != null;
+        }
+
+        /**
+         * @return The next cached statement, bound to the database it is parsed for, or {@code null} after the last.
+         */
+        SqlStatement next(DuckDBDatabase database) {
+            return next < cached.size() ? cached.get(next++).toStatement(database) : null;
+        }
+
+        /**
+         * Records a parsed statement, or writes the recorded statements to the cache once {@code statement} is
+         * {@code null}.
+         */
+        void record(SqlStatement statement) {
+            if (recorded == null) {
+                return;
+            }
+            if (statement == null) {
+                write();
+                recorded = null;
+            } else if (statement instanceof DuckSqlStatement) {
+                recorded.add(new CachedStatement((DuckSqlStatement) statement));
+            } else if (statement instanceof DuckCopyParsedStatement) {
+                recorded.add(new CachedStatement((DuckCopyParsedStatement) statement));
+            } else {
+                recorded = null;
+            }
+        }
+
+        private void write() {
+            Path temp = null;
+            try {
+                Files.createDirectories(directory);
+                temp = Files.createTempFile(directory, key, ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(FORMAT);
+                    out.writeUTF(key);
+                    out.writeInt(recorded.size());
+                    for (CachedStatement statement : recorded) {
+                        statement.write(out);
+                    }
+                }
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                temp = null;
+            } catch (IOException e) {
+                LOG.warn("Unable to write parse cache entry " + file + ": " + e.getMessage());
+            } finally {
+                if (temp != null) {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException ignored) {
+                        // Already failing
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * What the parser learned about a statement, without the database it was parsed for.
+     */
+    private static final class CachedStatement {
+        private final byte kind;
+        private final int pos;
+        private final int line;
+        private final int col;
+        private final String sql;
+        private final String delimiter;
+        private final boolean delimiterAloneOnLine;
+        private final boolean canExecuteInTransaction;
+        private final boolean batchable;
+        private final boolean ddl;
+        private final String copyData;
+        private final String chunk;
+
+        private CachedStatement(byte kind, int pos, int line, int col, String sql, String delimiter,
+                                boolean delimiterAloneOnLine, boolean canExecuteInTransaction, boolean batchable,
+                                boolean ddl, String copyData, String chunk) {
+            this.kind = kind;
+            this.pos = pos;
+            this.line = line;
+            this.col = col;
+            this.sql = sql;
+            this.delimiter = delimiter;
+            this.delimiterAloneOnLine = delimiterAloneOnLine;
+            this.canExecuteInTransaction = canExecuteInTransaction;
+            this.batchable = batchable;
+            this.ddl = ddl;
+            this.copyData = copyData;
+            this.chunk = chunk;
+        }
+
+        private CachedStatement(DuckSqlStatement statement) {
+            this(STATEMENT, statement.getPos(), statement.getLine(), statement.getCol(), statement.getSql(),
+                    statement.getStatementDelimiter() == null ? null : statement.getStatementDelimiter().getDelimiter(),
+                    statement.getStatementDelimiter() != null && statement.getStatementDelimiter().shouldBeAloneOnLine(),
+                    statement.canExecuteInTransaction(), statement.isBatchable(), statement.isDdl(), null,
+                    statement.getChunk() == null ? null : statement.getChunk().getDirective());
+        }
+
+        private CachedStatement(DuckCopyParsedStatement statement) {
+            this(COPY, statement.getPos(), statement.getLine(), statement.getCol(), statement.getSql(), null, false,
+                    true, false, false, statement.getCopyData(), null);
+        }
+
+        private SqlStatement toStatement(DuckDBDatabase database) {
+            if (kind == COPY) {
+                return new DuckCopyParsedStatement(pos, line, col, sql, copyData);
+            }
+            return new DuckSqlStatement(pos, line, col, sql,
+                    delimiter == null ? null : new Delimiter(delimiter, delimiterAloneOnLine),
+                    canExecuteInTransaction, batchable, database, ddl, DuckChunkedBackfill.parseDirective(chunk));
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(pos);
+            out.writeInt(line);
+            out.writeInt(col);
+            writeString(out, sql);
+            writeString(out, delimiter);
+            out.writeBoolean(delimiterAloneOnLine);
+            out.writeBoolean(canExecuteInTransaction);
+            out.writeBoolean(batchable);
+            out.writeBoolean(ddl);
+            writeString(out, copyData);
+            writeString(out, chunk);
+        }
+
+        private static CachedStatement read(DataInputStream in) throws IOException {
+            byte kind = in.readByte();
+            if (kind != STATEMENT && kind != COPY) {
+                throw new IOException("Unknown statement kind " + kind);
+            }
+            return new CachedStatement(kind, in.readInt(), in.readInt(), in.readInt(), readString(in),
+                    readString(in), in.readBoolean(), in.readBoolean(), in.readBoolean(), in.readBoolean(),
+                    readString(in), readString(in));
+        }
+    }
+}
@@ -1,32 +1,27 @@
 package com.zongkx.duckdb;
 
 import org.flywaydb.core.api.configuration.Configuration;
-import org.flywaydb.core.api.logging.Log;
-import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.api.resource.Resource;
 import org.flywaydb.core.internal.parser.*;
 import org.flywaydb.core.internal.sqlscript.Delimiter;
 import org.flywaydb.core.internal.sqlscript.ParsedSqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Locale;
 
 public class DuckParser extends Parser {
-    private static final Log LOG = LogFactory.getLog(DuckParser.class);
-
-    private static final Pattern COPY_FROM_STDIN_REGEX = Pattern.compile("^COPY( .*)? FROM STDIN");
-    private static final Pattern CREATE_DATABASE_TABLESPACE_SUBSCRIPTION_REGEX = Pattern.compile("^(CREATE|DROP) (DATABASE|TABLESPACE|SUBSCRIPTION)");
-    private static final Pattern ALTER_SYSTEM_REGEX = Pattern.compile("^ALTER SYSTEM");
-    private static final Pattern CREATE_INDEX_CONCURRENTLY_REGEX = Pattern.compile("^(CREATE|DROP)( UNIQUE)? INDEX CONCURRENTLY");
-    private static final Pattern REINDEX_REGEX = Pattern.compile("^REINDEX( VERBOSE)? (SCHEMA|DATABASE|SYSTEM)");
-    private static final Pattern VACUUM_REGEX = Pattern.compile("^VACUUM");
-    private static final Pattern DISCARD_ALL_REGEX = Pattern.compile("^DISCARD ALL");
-    private static final Pattern ALTER_TYPE_ADD_VALUE_REGEX = Pattern.compile("^ALTER TYPE( .*)? ADD VALUE");
-
     private static final StatementType COPY = new StatementType();
 
+    private final DuckParseCache parseCache;
+    private PeekingReader cachedReader;
+    private DuckParseCache.Entry cacheEntry;
+
     public DuckParser(Configuration configuration, ParsingContext parsingContext) {
         super(configuration, parsingContext, 3);
+        this.parseCache = DuckParseCache.forConfiguration(configuration);
     }
 
     @Override
@@ -39,12 +34,70 @@ public class DuckParser extends Parser {
                                                  int statementPos, int statementLine, int statementCol, int nonCommentPartPos, int nonCommentPartLine,
                                                  int nonCommentPartCol, StatementType statementType, boolean canExecuteInTransaction, Delimiter delimiter,
                                                  String sql, List<Token> tokens, boolean batchable) throws IOException {
-        if (sql.startsWith("ALTER")) {//duckdb do not support alter
-            return null;
+        if (statementType == COPY) {
+            return new DuckCopyParsedStatement(nonCommentPartPos, nonCommentPartLine, nonCommentPartCol,
+                    sql.substring(nonCommentPartPos - statementPos), readCopyData(reader, recorder));
+        }
+
+        String firstKeyword = getFirstKeyword(tokens);
+        // A chunked statement commits after every chunk, so it can neither join a transaction nor a batch
+        DuckChunkedBackfill chunk = DuckChunkedBackfill.parseDirective(DuckChunkedBackfill.leadingComments(sql));
+        return new DuckSqlStatement(statementPos, statementLine, statementCol, sql, delimiter,
+                chunk == null && canExecuteInTransaction, chunk == null && DuckStatementClassifier.isBatchable(firstKeyword),
+                getDatabase(), DuckStatementClassifier.isDdl(firstKeyword), chunk);
+    }
+
+    @Override
+    protected SqlStatement getNextStatement(Resource resource, PeekingReader reader, Recorder recorder,
+                                            PositionTracker tracker, ParserContext context) {
+        if (parseCache != null && reader != cachedReader) {
+            // A new reader is opened each time a script is parsed
+            cachedReader = reader;
+            cacheEntry = resource instanceof LoadableResource ? parseCache.open((LoadableResource) resource) : null;
+        }
+        if (cacheEntry != null && cacheEntry.isCached()) {
+            return cacheEntry.next(getDatabase());
+        }
+
+        SqlStatement statement = super.getNextStatement(resource, reader, recorder, tracker, context);
+        if (cacheEntry != null) {
+            cacheEntry.record(statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Reads the inline data block following {@code COPY ... FROM STDIN;}, up to the terminating {@code \.} line.
+     */
+    private String readCopyData(PeekingReader reader, Recorder recorder) throws IOException {
+        // Skip end of current line after ;
+        reader.readUntilIncluding('\n');
+
+        recorder.start();
+        boolean done = false;
+        do {
+            String line = reader.readUntilIncluding('\n');
+            if (line.isEmpty() || "\\.\n".equals(line) || "\\.\r\n".equals(line) || "\\.".equals(line)) {
+                done = true;
+            } else {
+                recorder.confirm();
+            }
+        } while (!done);
+
+        return recorder.stop();
+    }
+
+    private DuckDBDatabase getDatabase() {
+        return parsingContext.getDatabase() instanceof DuckDBDatabase ? (DuckDBDatabase) parsingContext.getDatabase() : null;
+    }
+
+    private static String getFirstKeyword(List<Token> tokens) {
+        for (Token token : tokens) {
+            if (token.getType() == TokenType.KEYWORD) {
+                return token.getText().toUpperCase(Locale.ENGLISH);
+            }
         }
-        return super.createStatement(reader, recorder, statementPos, statementLine, statementCol, nonCommentPartPos,
-                nonCommentPartLine, nonCommentPartCol, statementType, canExecuteInTransaction, delimiter, sql, tokens,
-                batchable);
+        return "";
     }
 
     @Override
@@ -63,7 +116,7 @@ public class DuckParser extends Parser {
 
     @Override
     protected StatementType detectStatementType(String simplifiedStatement, ParserContext context, PeekingReader reader) {
-        if (COPY_FROM_STDIN_REGEX.matcher(simplifiedStatement).matches()) {
+        if (DuckStatementClassifier.isCopyFromStdin(simplifiedStatement)) {
             return COPY;
         }
 
@@ -72,27 +125,7 @@ public class DuckParser extends Parser {
 
     @Override
     protected Boolean detectCanExecuteInTransaction(String simplifiedStatement, List<Token> keywords) {
-        if (CREATE_DATABASE_TABLESPACE_SUBSCRIPTION_REGEX.matcher(simplifiedStatement).matches()
-                || ALTER_SYSTEM_REGEX.matcher(simplifiedStatement).matches()
-                || CREATE_INDEX_CONCURRENTLY_REGEX.matcher(simplifiedStatement).matches()
-                || REINDEX_REGEX.matcher(simplifiedStatement).matches()
-                || VACUUM_REGEX.matcher(simplifiedStatement).matches()
-                || DISCARD_ALL_REGEX.matcher(simplifiedStatement).matches()) {
-            return false;
-        }
-
-        boolean isDBVerUnder12 = true;
-        try {
-            isDBVerUnder12 = !parsingContext.getDatabase().getVersion().isAtLeast("12");
-        } catch (Exception e) {
-            LOG.debug("Unable to determine database version: " + e.getMessage());
-        }
-
-        if (isDBVerUnder12 && ALTER_TYPE_ADD_VALUE_REGEX.matcher(simplifiedStatement).matches()) {
-            return false;
-        }
-
-        return null;
+        return DuckStatementClassifier.canExecuteInTransaction(simplifiedStatement);
     }
 
     @SuppressWarnings("Duplicates")
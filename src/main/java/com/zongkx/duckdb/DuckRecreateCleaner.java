@@ -0,0 +1,213 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.api.output.CleanResult;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.license.VersionPrinter;
+import org.flywaydb.core.internal.util.StopWatch;
+import org.flywaydb.core.internal.util.TimeFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cleans a file-backed database by replacing its file with a fresh, empty database, which takes the same time however
+ * many objects the database holds and leaves a compact file behind, where dropping the objects one by one does not
+ * give their space back. Use {@code new DuckRecreateCleaner(flyway).clean()} in place of {@code flyway.clean()}, with
+ * {@code flyway.duckdb.cleanMode=RECREATE}.
+ * <p>
+ * The database is inspected and closed, a fresh database with the same, empty, schemas is created next to it as
+ * {@code <database file>.recreate} and renamed over the original once the WAL of the original has been renamed aside
+ * (and back, if the rename fails). The file is only replaced if it holds nothing but the schemas Flyway manages:
+ * in-memory and read-only databases, databases with other databases attached and databases with schemas outside
+ * {@code flyway.schemas} are cleaned by {@code flyway.clean()} instead, dropping their objects as
+ * {@code flyway.duckdb.cleanMode=BATCH} does.
+ * <p>
+ * Flyway must be the only user of the database while it is cleaned: connections still open on the original keep
+ * seeing it until they reconnect. Clean callbacks are not fired when the file is replaced.
+ */
+public class DuckRecreateCleaner {
+    private static final Log LOG = LogFactory.getLog(DuckRecreateCleaner.class);
+    private static final String RECREATE_SUFFIX = ".recreate";
+    private static final String WAL_SUFFIX = ".wal";
+    private static final Set<String> SYSTEM_SCHEMAS = new HashSet<>(Arrays.asList("information_schema", "pg_catalog"));
+
+    private final Flyway flyway;
+
+    public DuckRecreateCleaner(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    public CleanResult clean() {
+        Configuration configuration = flyway.getConfiguration();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        if (duckConfiguration.getCleanMode() != DuckDBConfigurationExtension.CleanMode.RECREATE) {
+            return flyway.clean();
+        }
+        if (configuration.isCleanDisabled()) {
+            throw new FlywayException("Unable to execute clean as it has been disabled with the 'flyway.cleanDisabled'"
+                    + " property.");
+        }
+
+        String databasePath;
+        String database;
+        String refusal;
+        List<String> schemas;
+        try (Connection connection = configuration.getDataSource().getConnection()) {
+            databasePath = DuckSupport.queryForString(connection, DuckFileLock.DATABASE_PATH_QUERY);
+            database = DuckSupport.queryForString(connection, "SELECT current_database()");
+            refusal = databasePath == null || databasePath.isEmpty()
+                    ? "it is in memory"
+                    : getRefusal(configuration, connection, database);
+            schemas = refusal == null ? getSchemas(connection) : null;
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to recreate DuckDB database", e);
+        }
+        if (refusal != null) {
+            LOG.info("Not recreating database " + database + " as " + refusal + ", dropping its objects instead");
+            return flyway.clean();
+        }
+
+        DuckFileLock fileLock = DuckFileLock.forDatabase(databasePath, duckConfiguration);
+        if (fileLock != null) {
+            fileLock.acquire();
+        }
+        try {
+            recreate(Paths.get(databasePath).toAbsolutePath(), schemas);
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to recreate DuckDB database", e);
+        } catch (IOException e) {
+            throw new FlywayException("Unable to recreate DuckDB database", e);
+        } finally {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+        }
+
+        CleanResult result = new CleanResult(VersionPrinter.getVersion(), database);
+        result.operation = "clean";
+        result.schemasCleaned.addAll(getManagedSchemas(configuration, database));
+        return result;
+    }
+
+    /**
+     * @return Why the file of the database may not be replaced, or {@code null} if it may.
+     */
+    private static String getRefusal(Configuration configuration, Connection connection, String database)
+            throws SQLException {
+        if ("true".equalsIgnoreCase(DuckSupport.queryForString(connection,
+                "SELECT readonly FROM duckdb_databases() WHERE database_name = current_database()"))) {
+            return "it is read-only";
+        }
+        if (Integer.parseInt(DuckSupport.queryForString(connection,
+                "SELECT count(*) FROM duckdb_databases() WHERE NOT internal")) > 1) {
+            return "other databases are attached";
+        }
+        Set<String> managed = getManagedSchemas(configuration, database);
+        if (managed == null) {
+            return "schemas of other databases are configured";
+        }
+        for (String schema : getSchemas(connection)) {
+            if (!managed.contains(schema)) {
+                return "schema " + schema + " is not managed by Flyway";
+            }
+        }
+        if (!managed.contains("main") && !new DuckMetadata(new JdbcTemplate(connection,
+                configuration.getPluginRegister().getPlugin(DuckDatabaseType.class))).schemaEmpty(database, "main")) {
+            return "schema main is not managed by Flyway and not empty";
+        }
+        return null;
+    }
+
+    /**
+     * @return The names of the schemas Flyway manages within the database, or {@code null} if any of them belongs to
+     * another database.
+     */
+    private static Set<String> getManagedSchemas(Configuration configuration, String database) {
+        Set<String> schemas = new LinkedHashSet<>();
+        if (configuration.getDefaultSchema() != null) {
+            schemas.add(configuration.getDefaultSchema());
+        }
+        schemas.addAll(Arrays.asList(configuration.getSchemas()));
+        if (schemas.isEmpty()) {
+            schemas.add("main");
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String schema : schemas) {
+            int dot = schema.indexOf('.');
+            if (dot < 0) {
+                names.add(schema);
+            } else if (schema.substring(0, dot).equals(database)) {
+                names.add(schema.substring(dot + 1));
+            } else {
+                return null;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return The schemas of the current database other than {@code main} and the system schemas.
+     */
+    private static List<String> getSchemas(Connection connection) throws SQLException {
+        List<String> schemas = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT schema_name FROM duckdb_schemas()"
+                     + " WHERE database_name = current_database() AND NOT internal")) {
+            while (resultSet.next()) {
+                String schema = resultSet.getString(1);
+                if (!SYSTEM_SCHEMAS.contains(schema) && !"main".equals(schema)) {
+                    schemas.add(schema);
+                }
+            }
+        }
+        return schemas;
+    }
+
+    /**
+     * Replaces the database with a fresh one holding the same, empty, schemas, so that a later migrate finds the
+     * schemas it does not create itself.
+     */
+    private static void recreate(Path original, List<String> schemas) throws SQLException, IOException {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        Path fresh = Paths.get(original + RECREATE_SUFFIX);
+        try {
+            Files.deleteIfExists(fresh);
+            Files.deleteIfExists(Paths.get(fresh + WAL_SUFFIX));
+            try (Connection created = DriverManager.getConnection("jdbc:duckdb:" + fresh);
+                 Statement statement = created.createStatement()) {
+                for (String schema : schemas) {
+                    statement.execute("CREATE SCHEMA \"" + schema.replace("\"", "\"\"") + "\"");
+                }
+                statement.execute("CHECKPOINT");
+            }
+            DuckShadowMigrator.swap(fresh, original);
+        } finally {
+            Files.deleteIfExists(fresh);
+            Files.deleteIfExists(Paths.get(fresh + WAL_SUFFIX));
+        }
+        stopWatch.stop();
+        LOG.info("Recreated database " + original + " (execution time "
+                + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+    }
+}
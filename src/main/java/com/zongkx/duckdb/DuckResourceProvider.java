@@ -0,0 +1,54 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.scanner.LocationScannerCache;
+import org.flywaydb.core.internal.scanner.ResourceNameCache;
+import org.flywaydb.core.internal.scanner.Scanner;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Provides the resources of another provider, with those on disk read through memory mappings (see
+ * {@link DuckMappedResource}). Unlike {@code flyway.duckdb.mapResources}, which only maps the scripts as they are
+ * parsed, this also maps them for checksum calculation. Configure it with
+ * {@code configuration.resourceProvider(DuckResourceProvider.create(configuration))}.
+ */
+public class DuckResourceProvider implements ResourceProvider {
+    private final ResourceProvider resourceProvider;
+    private final Charset encoding;
+
+    public DuckResourceProvider(ResourceProvider resourceProvider, Charset encoding) {
+        this.resourceProvider = resourceProvider;
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return A provider scanning the locations of the configuration like Flyway's own, in its encoding.
+     */
+    public static DuckResourceProvider create(Configuration configuration) {
+        return new DuckResourceProvider(new Scanner<>(JavaMigration.class, false, new ResourceNameCache(),
+                new LocationScannerCache(), configuration), configuration.getEncoding());
+    }
+
+    @Override
+    public LoadableResource getResource(String name) {
+        LoadableResource resource = resourceProvider.getResource(name);
+        return resource == null ? null : DuckMappedResource.of(resource, encoding);
+    }
+
+    @Override
+    public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+        Collection<LoadableResource> resources = resourceProvider.getResources(prefix, suffixes);
+        List<LoadableResource> mapped = new ArrayList<>(resources.size());
+        for (LoadableResource resource : resources) {
+            mapped.add(DuckMappedResource.of(resource, encoding));
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,100 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DuckDB settings applied for as long as Flyway is connected, e.g. to let a backfill use every core and spill to disk
+ * rather than run out of memory. The settings are database-wide: they apply to every connection of the database
+ * instance, including those of the application in the same JVM, not just to Flyway's connection. The values they
+ * replace are restored once Flyway is done.
+ */
+final class DuckSessionSettings {
+    private static final Log LOG = LogFactory.getLog(DuckSessionSettings.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, String> previous = new LinkedHashMap<>();
+
+    private DuckSessionSettings(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return The applied settings, to be restored, or {@code null} if none are configured.
+     */
+    static DuckSessionSettings apply(JdbcTemplate jdbcTemplate, DuckDBConfigurationExtension duckConfiguration) {
+        Map<String, String> settings = getSettings(duckConfiguration);
+        if (settings.isEmpty()) {
+            return null;
+        }
+        DuckSessionSettings sessionSettings = new DuckSessionSettings(jdbcTemplate);
+        try {
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                String name = setting.getKey();
+                sessionSettings.previous.put(name,
+                        jdbcTemplate.queryForString("SELECT current_setting('" + name + "')"));
+                jdbcTemplate.execute("SET " + name + " = " + setting.getValue());
+                LOG.debug("Set " + name + " to " + setting.getValue() + " (was " + sessionSettings.previous.get(name) + ")");
+            }
+        } catch (SQLException e) {
+            sessionSettings.restore();
+            throw new FlywaySqlException("Unable to apply DuckDB settings", e);
+        }
+        return sessionSettings;
+    }
+
+    private static Map<String, String> getSettings(DuckDBConfigurationExtension duckConfiguration) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        if (duckConfiguration.getThreads() > 0) {
+            settings.put("threads", Integer.toString(duckConfiguration.getThreads()));
+        }
+        if (duckConfiguration.getMemoryLimit() != null) {
+            settings.put("memory_limit", literal(duckConfiguration.getMemoryLimit()));
+        }
+        if (duckConfiguration.getPreserveInsertionOrder() != null) {
+            settings.put("preserve_insertion_order", duckConfiguration.getPreserveInsertionOrder().toString());
+        }
+        if (duckConfiguration.getTempDirectory() != null) {
+            settings.put("temp_directory", literal(duckConfiguration.getTempDirectory()));
+        }
+        if (duckConfiguration.getMaxTempDirectorySize() != null) {
+            settings.put("max_temp_directory_size", literal(duckConfiguration.getMaxTempDirectorySize()));
+        }
+        if (duckConfiguration.getCheckpointThreshold() != null) {
+            settings.put("checkpoint_threshold", literal(duckConfiguration.getCheckpointThreshold()));
+        }
+        return settings;
+    }
+
+    /**
+     * Restores the settings replaced by {@link #apply}. Each setting is reset to its default first, and only set back
+     * to its previous value if that was not the default: the values DuckDB reports for some defaults, such as
+     * {@code 90% of available disk space} for {@code max_temp_directory_size}, are not accepted by {@code SET}, and
+     * sizes are reported rounded. Settings that cannot be restored are logged and skipped.
+     */
+    void restore() {
+        for (Map.Entry<String, String> setting : previous.entrySet()) {
+            String name = setting.getKey();
+            try {
+                jdbcTemplate.execute("RESET " + name);
+                if (!setting.getValue().equals(jdbcTemplate.queryForString("SELECT current_setting('" + name + "')"))) {
+                    jdbcTemplate.execute("SET " + name + " = " + literal(setting.getValue()));
+                }
+            } catch (SQLException e) {
+                LOG.warn("Unable to restore DuckDB setting " + name + " to " + setting.getValue() + ": "
+                        + e.getMessage());
+            }
+        }
+        previous.clear();
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
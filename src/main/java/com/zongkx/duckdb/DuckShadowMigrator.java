@@ -0,0 +1,264 @@
+package com.zongkx.duckdb;
+
+import org.duckdb.DuckDBDriver;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.DriverDataSource;
+import org.flywaydb.core.internal.util.StopWatch;
+import org.flywaydb.core.internal.util.TimeFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Migrates a copy of a file-backed database and swaps it in place of the original once every pending migration has
+ * succeeded, so that read-only processes can keep reading the original for the whole duration of the migration
+ * instead of being locked out. Use {@code new DuckShadowMigrator(flyway).migrate()} in place of
+ * {@code flyway.migrate()}.
+ * <p>
+ * The original is only ever opened read-only, so the migration can start while other processes are reading it. It is
+ * copied to {@code <database file>.shadow} next to it, with {@code COPY FROM DATABASE} from a read-only attachment or,
+ * with {@code flyway.duckdb.shadowCopy=FILE}, as a plain copy of the file and its WAL. The shadow is opened with the URL
+ * and JDBC properties of the original, migrated (with {@link DuckParallelMigrator}, so {@code flyway.duckdb.parallelism}
+ * applies), checkpointed and renamed over the original in a single atomic move. If anything fails before the move, or
+ * the move itself fails, the shadow is deleted and the original is left untouched, with its WAL.
+ * <p>
+ * Flyway must be the only writer of the database while it is migrated: writes to the original made after it has been
+ * copied would be lost by the swap, so the swap is refused if the original has changed since. Connections that are
+ * still open on the original keep seeing it until they reconnect. In-memory databases are migrated in place. A database
+ * configured with a data source rather than a URL can not be reopened read-only, so it is briefly opened through the
+ * data source to find its file.
+ */
+public class DuckShadowMigrator {
+    private static final Log LOG = LogFactory.getLog(DuckShadowMigrator.class);
+    private static final String URL_PREFIX = "jdbc:duckdb:";
+    private static final String SHADOW_SUFFIX = ".shadow";
+    private static final String WAL_SUFFIX = ".wal";
+    private static final String WAL_ASIDE_SUFFIX = ".wal.aside";
+
+    private final Flyway flyway;
+
+    public DuckShadowMigrator(Flyway flyway) {
+        this.flyway = flyway;
+    }
+
+    /**
+     * @return The number of migrations executed.
+     */
+    public int migrate() {
+        Configuration configuration = flyway.getConfiguration();
+        DuckDBConfigurationExtension duckConfiguration =
+                configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        String url = configuration.getUrl();
+        if (url != null && DuckLockingDataSource.getDatabasePath(url) == null) {
+            LOG.info("Database is in memory, migrating in place");
+            return new DuckParallelMigrator(flyway).migrate();
+        }
+
+        Flyway original = url == null ? flyway : Flyway.configure(configuration.getClassLoader())
+                .configuration(configuration)
+                .dataSource(new DriverDataSource(configuration.getClassLoader(), null, url, configuration.getUser(),
+                        configuration.getPassword(), readOnly(configuration.getJdbcProperties())))
+                .load();
+        if (original.info().pending().length == 0) {
+            return 0;
+        }
+
+        String databasePath;
+        try (Connection connection = original.getConfiguration().getDataSource().getConnection()) {
+            databasePath = DuckSupport.queryForString(connection, DuckFileLock.DATABASE_PATH_QUERY);
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to open DuckDB database", e);
+        }
+        if (databasePath == null || databasePath.isEmpty()) {
+            LOG.info("Database is in memory, migrating in place");
+            return new DuckParallelMigrator(flyway).migrate();
+        }
+        Path originalPath = Paths.get(databasePath).toAbsolutePath();
+        Path shadow = Paths.get(originalPath + SHADOW_SUFFIX);
+
+        DuckFileLock fileLock = DuckFileLock.forDatabase(databasePath, duckConfiguration);
+        if (fileLock != null) {
+            fileLock.acquire();
+        }
+        try {
+            Flyway shadowFlyway = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .dataSource(getShadowUrl(url, databasePath, shadow), configuration.getUser(),
+                            configuration.getPassword())
+                    .load();
+            return migrate(shadowFlyway, duckConfiguration.getShadowCopy(), originalPath, shadow);
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to migrate shadow copy of DuckDB database", e);
+        } finally {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+        }
+    }
+
+    /**
+     * @param url          The URL of the original, or {@code null} if it is configured with a data source.
+     * @param databasePath The file of the original, as DuckDB reports it.
+     * @return The URL of the original with its file replaced by the shadow, keeping anything that follows it.
+     */
+    static String getShadowUrl(String url, String databasePath, Path shadow) {
+        if (url != null && url.startsWith(URL_PREFIX + databasePath)) {
+            return URL_PREFIX + shadow + url.substring(URL_PREFIX.length() + databasePath.length());
+        }
+        String path = url == null ? null : DuckLockingDataSource.getDatabasePath(url);
+        if (path != null) {
+            return URL_PREFIX + shadow + url.substring(URL_PREFIX.length() + path.length());
+        }
+        return URL_PREFIX + shadow;
+    }
+
+    private static Map<String, String> readOnly(Map<String, String> jdbcProperties) {
+        Map<String, String> properties = new HashMap<>();
+        if (jdbcProperties != null) {
+            properties.putAll(jdbcProperties);
+        }
+        properties.put(DuckDBDriver.DUCKDB_READONLY_PROPERTY, "true");
+        return properties;
+    }
+
+    private int migrate(Flyway shadowFlyway, DuckDBConfigurationExtension.ShadowCopy mode, Path original, Path shadow)
+            throws SQLException {
+        boolean swapped = false;
+        try {
+            delete(shadow);
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            FileTime copiedModified = Files.getLastModifiedTime(original);
+            long copiedSize = Files.size(original);
+            long copiedWalSize = walSize(original);
+            copy(shadowFlyway.getConfiguration(), mode, original, shadow);
+            stopWatch.stop();
+            LOG.info("Copied " + original + " to " + shadow + " (execution time "
+                    + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+
+            int executed = new DuckParallelMigrator(shadowFlyway).migrate();
+            checkpoint(shadowFlyway.getConfiguration(), shadow);
+
+            if (!copiedModified.equals(Files.getLastModifiedTime(original)) || copiedSize != Files.size(original)
+                    || copiedWalSize != walSize(original)) {
+                throw new FlywayException("Database " + original + " was modified while its shadow copy was migrated."
+                        + " The original has been left untouched.");
+            }
+            stopWatch = new StopWatch();
+            stopWatch.start();
+            // The shadow already holds what the WAL of the original held, which must not be replayed onto it
+            swap(shadow, original);
+            swapped = true;
+            stopWatch.stop();
+            LOG.info("Swapped migrated shadow copy into " + original + " (execution time "
+                    + TimeFormat.format(stopWatch.getTotalTimeMillis()) + ")");
+            return executed;
+        } catch (IOException e) {
+            throw new FlywayException("Unable to swap shadow copy " + shadow + " into " + original, e);
+        } finally {
+            if (!swapped) {
+                try {
+                    delete(shadow);
+                } catch (IOException e) {
+                    LOG.warn("Unable to delete shadow copy " + shadow + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Renames {@code replacement} over {@code original} in a single atomic move. The WAL of the original is renamed
+     * aside first, as it would otherwise be replayed onto the replacement, and renamed back if the move fails, so that
+     * the original keeps the commits it holds.
+     */
+    static void swap(Path replacement, Path original) throws IOException {
+        Path wal = Paths.get(original + WAL_SUFFIX);
+        Path walAside = Paths.get(original + WAL_ASIDE_SUFFIX);
+        boolean walMoved = false;
+        if (Files.exists(wal)) {
+            Files.move(wal, walAside, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            walMoved = true;
+        }
+        try {
+            Files.move(replacement, original, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (walMoved) {
+                try {
+                    Files.move(walAside, wal, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException restoreException) {
+                    LOG.error("Unable to restore the WAL of " + original + " from " + walAside
+                            + ". Rename it back to " + wal + " before opening the database.");
+                    e.addSuppressed(restoreException);
+                }
+            }
+            throw e;
+        }
+        Files.deleteIfExists(walAside);
+    }
+
+    /**
+     * Copies the original without opening it read-write: either its file and WAL, which DuckDB replays when the shadow
+     * is opened, or its content through a read-only attachment to the shadow.
+     */
+    private static void copy(Configuration shadowConfiguration, DuckDBConfigurationExtension.ShadowCopy mode,
+                             Path original, Path shadow) throws SQLException, IOException {
+        if (mode == DuckDBConfigurationExtension.ShadowCopy.FILE) {
+            Files.copy(original, shadow, StandardCopyOption.COPY_ATTRIBUTES);
+            Path wal = Paths.get(original + WAL_SUFFIX);
+            if (Files.exists(wal)) {
+                Files.copy(wal, Paths.get(shadow + WAL_SUFFIX), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            return;
+        }
+        try (Connection connection = shadowConfiguration.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            String database = DuckSupport.queryForString(connection, "SELECT current_database()");
+            statement.execute("ATTACH '" + original.toString().replace("'", "''") + "' AS flyway_original (READ_ONLY)");
+            try {
+                statement.execute("COPY FROM DATABASE flyway_original TO " + DuckSupport.quote(database));
+            } finally {
+                statement.execute("DETACH flyway_original");
+            }
+        }
+    }
+
+    /**
+     * Checkpoints the migrated shadow, so that it is complete without its WAL when it is moved.
+     */
+    private static void checkpoint(Configuration shadowConfiguration, Path shadow) throws SQLException, IOException {
+        try (Connection connection = shadowConfiguration.getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT");
+        }
+        if (walSize(shadow) > 0) {
+            throw new FlywayException("Shadow copy " + shadow + " still has a WAL after checkpointing."
+                    + " Close all other connections to it and try again.");
+        }
+        Files.deleteIfExists(Paths.get(shadow + WAL_SUFFIX));
+    }
+
+    private static long walSize(Path database) throws IOException {
+        Path wal = Paths.get(database + WAL_SUFFIX);
+        return Files.exists(wal) ? Files.size(wal) : 0;
+    }
+
+    private static void delete(Path shadow) throws IOException {
+        Files.deleteIfExists(shadow);
+        Files.deleteIfExists(Paths.get(shadow + WAL_SUFFIX));
+        Files.deleteIfExists(Paths.get(shadow + ".flyway.lock"));
+    }
+}
@@ -0,0 +1,215 @@
+package com.zongkx.duckdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A statement of the form {@code INSERT INTO [schema.]table VALUES (literal, ...)}, whose values are plain literals
+ * ({@code NULL}, booleans, numbers and strings) and can therefore be appended without going through the SQL engine.
+ */
+public class DuckSingleRowInsert {
+    private final String schema;
+    private final String table;
+    private final List<String> values;
+
+    private DuckSingleRowInsert(String schema, String table, List<String> values) {
+        this.schema = schema;
+        this.table = table;
+        this.values = values;
+    }
+
+    /**
+     * @return The unquoted schema name, or {@code null} if the table is not qualified.
+     */
+    public String getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return The unquoted table name. DuckDB resolves it case-insensitively.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return The values as text, {@code null} for {@code NULL}.
+     */
+    public List<String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return The parsed statement, or {@code null} if it is not a single-row INSERT of plain literals into all
+     * columns of a table.
+     */
+    public static DuckSingleRowInsert parse(String sql) {
+        Cursor cursor = new Cursor(sql);
+        if (!cursor.keyword("INSERT") || !cursor.keyword("INTO")) {
+            return null;
+        }
+        List<String> name = new ArrayList<>();
+        do {
+            String part = cursor.identifier();
+            if (part == null) {
+                return null;
+            }
+            name.add(part);
+        } while (cursor.symbol('.'));
+        if (name.size() > 2 || !cursor.keyword("VALUES") || !cursor.symbol('(')) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        do {
+            if (!cursor.literal(values)) {
+                return null;
+            }
+        } while (cursor.symbol(','));
+        if (!cursor.symbol(')') || !cursor.atEnd()) {
+            return null;
+        }
+        return name.size() == 1
+                ? new DuckSingleRowInsert(null, name.get(0), Collections.unmodifiableList(values))
+                : new DuckSingleRowInsert(name.get(0), name.get(1), Collections.unmodifiableList(values));
+    }
+
+    private static class Cursor {
+        private final String sql;
+        private int pos;
+
+        private Cursor(String sql) {
+            this.sql = sql;
+        }
+
+        private void skipWhitespace() {
+            while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private boolean atEnd() {
+            skipWhitespace();
+            return pos == sql.length() || (sql.charAt(pos) == ';' && sql.substring(pos + 1).trim().isEmpty());
+        }
+
+        private boolean symbol(char symbol) {
+            skipWhitespace();
+            if (pos < sql.length() && sql.charAt(pos) == symbol) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String word() {
+            skipWhitespace();
+            int start = pos;
+            while (pos < sql.length() && (Character.isLetterOrDigit(sql.charAt(pos)) || sql.charAt(pos) == '_')) {
+                pos++;
+            }
+            return start == pos || Character.isDigit(sql.charAt(start)) ? null : sql.substring(start, pos);
+        }
+
+        private boolean keyword(String keyword) {
+            int start = pos;
+            String word = word();
+            if (word != null && word.equalsIgnoreCase(keyword)) {
+                return true;
+            }
+            pos = start;
+            return false;
+        }
+
+        private String identifier() {
+            skipWhitespace();
+            if (pos < sql.length() && sql.charAt(pos) == '"') {
+                return quoted('"');
+            }
+            return word();
+        }
+
+        private String quoted(char quote) {
+            StringBuilder text = new StringBuilder();
+            pos++;
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos++);
+                if (c == quote) {
+                    if (pos < sql.length() && sql.charAt(pos) == quote) {
+                        pos++;
+                    } else {
+                        return text.toString();
+                    }
+                }
+                text.append(c);
+            }
+            return null;
+        }
+
+        /**
+         * @return A number of the form {@code [+-]digits[.digits][E[+-]digits]}, with at least one digit before the
+         * exponent, or {@code null} if the text at the cursor is not one.
+         */
+        private String number() {
+            int start = pos;
+            if (sql.charAt(pos) == '-' || sql.charAt(pos) == '+') {
+                pos++;
+            }
+            int digits = skipDigits();
+            if (pos < sql.length() && sql.charAt(pos) == '.') {
+                pos++;
+                digits += skipDigits();
+            }
+            if (digits == 0) {
+                return null;
+            }
+            if (pos < sql.length() && Character.toUpperCase(sql.charAt(pos)) == 'E') {
+                pos++;
+                if (pos < sql.length() && (sql.charAt(pos) == '-' || sql.charAt(pos) == '+')) {
+                    pos++;
+                }
+                if (skipDigits() == 0) {
+                    return null;
+                }
+            }
+            return sql.substring(start, pos);
+        }
+
+        private int skipDigits() {
+            int start = pos;
+            while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                pos++;
+            }
+            return pos - start;
+        }
+
+        private boolean literal(List<String> values) {
+            skipWhitespace();
+            if (pos >= sql.length()) {
+                return false;
+            }
+            char c = sql.charAt(pos);
+            if (c == '\'') {
+                String text = quoted('\'');
+                values.add(text);
+                return text != null;
+            }
+            if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) {
+                String number = number();
+                values.add(number);
+                return number != null;
+            }
+            String word = word();
+            if ("NULL".equalsIgnoreCase(word)) {
+                values.add(null);
+                return true;
+            }
+            if ("TRUE".equalsIgnoreCase(word) || "FALSE".equalsIgnoreCase(word)) {
+                values.add(word.toLowerCase(Locale.ENGLISH));
+                return true;
+            }
+            return false;
+        }
+    }
+}
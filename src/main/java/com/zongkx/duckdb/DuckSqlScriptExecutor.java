@@ -0,0 +1,248 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.callback.CallbackExecutor;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.jdbc.Result;
+import org.flywaydb.core.internal.jdbc.Results;
+import org.flywaydb.core.internal.jdbc.StatementInterceptor;
+import org.flywaydb.core.internal.sqlscript.DefaultSqlScriptExecutor;
+import org.flywaydb.core.internal.sqlscript.FlywaySqlScriptException;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlStatementIterator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DuckDB implementation of the SqlScriptExecutor.
+ */
+public class DuckSqlScriptExecutor extends DefaultSqlScriptExecutor {
+    private static final Log LOG = LogFactory.getLog(DuckSqlScriptExecutor.class);
+
+    private final CallbackExecutor callbackExecutor;
+    private final boolean undo;
+    private final boolean batch;
+    private final boolean supportsBatch;
+    private DuckStatementInstrumentation instrumentation;
+    private SqlScript sqlScript;
+
+    /**
+     * @param batch         Whether {@code flyway.batch} is enabled and the connection supports batches.
+     * @param supportsBatch Whether the connection supports batches, which {@code flyway.duckdb.batch} also requires.
+     */
+    public DuckSqlScriptExecutor(JdbcTemplate jdbcTemplate, CallbackExecutor callbackExecutor, boolean undo,
+                                 boolean batch, boolean supportsBatch, boolean outputQueryResults,
+                                 StatementInterceptor statementInterceptor) {
+        super(jdbcTemplate, callbackExecutor, undo, batch, outputQueryResults, statementInterceptor);
+        this.callbackExecutor = callbackExecutor;
+        this.undo = undo;
+        this.batch = batch;
+        this.supportsBatch = supportsBatch;
+    }
+
+    /**
+     * Executes the script statement by statement when it is streamed, appends runs of consecutive single-row
+     * INSERTs into the same table through {@link DuckBulkLoader} when {@code flyway.duckdb.appender} is enabled, and
+     * sends runs of consecutive batchable statements as JDBC batches of up to {@code flyway.duckdb.batchSize}
+     * statements when batching is enabled. Appended rows do not fire per-statement callbacks.
+     * <p>
+     * When instrumentation is enabled, every statement, batch and appender run is reported to the
+     * {@link DuckStatementListener}s.
+     */
+    @Override
+    public List<Results> execute(SqlScript sqlScript, Configuration config) {
+        instrumentation = DuckStatementInstrumentation.start(jdbcTemplate, sqlScript, config);
+        this.sqlScript = sqlScript;
+        try {
+            return doExecute(sqlScript, config);
+        } finally {
+            this.sqlScript = null;
+            if (instrumentation != null) {
+                instrumentation.stop();
+                instrumentation = null;
+            }
+        }
+    }
+
+    private List<Results> doExecute(SqlScript sqlScript, Configuration config) {
+        DuckDBConfigurationExtension duckConfiguration = config.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        boolean stream = sqlScript.getResource().shouldStream();
+        boolean appender = duckConfiguration.isAppender();
+        int batchSize = batch || (supportsBatch && duckConfiguration.isBatch()) ? duckConfiguration.getBatchSize() : 1;
+        // Flyway's own batching is not observable, so instrumented scripts are always executed here
+        if (!stream && !appender && batchSize <= 1 && instrumentation == null) {
+            return super.execute(sqlScript, config);
+        }
+
+        List<Results> results = new ArrayList<>();
+        List<SqlStatement> batchStatements = new ArrayList<>();
+        DuckBulkLoader loader = null;
+        SqlStatement firstAppendedStatement = null;
+        long appendStarted = 0;
+        try (SqlStatementIterator sqlStatementIterator = sqlScript.getSqlStatements()) {
+            SqlStatement sqlStatement;
+            while ((sqlStatement = sqlStatementIterator.next()) != null) {
+                DuckSingleRowInsert insert = appender ? DuckSingleRowInsert.parse(sqlStatement.getSql()) : null;
+                if (loader != null && (insert == null || !loader.isFor(insert.getSchema(), insert.getTable()))) {
+                    addResults(results, closeLoader(sqlScript, loader, firstAppendedStatement, appendStarted), stream);
+                    loader = null;
+                }
+
+                if (insert == null) {
+                    if (batchSize > 1 && sqlStatement.isBatchable()) {
+                        batchStatements.add(sqlStatement);
+                        if (batchStatements.size() >= batchSize) {
+                            addResults(results, executeBatch(sqlScript, batchStatements, config), stream);
+                        }
+                        continue;
+                    }
+                    addResults(results, executeBatch(sqlScript, batchStatements, config), stream);
+                    addResults(results, executeStatement(jdbcTemplate, sqlScript, sqlStatement, config), stream);
+                    continue;
+                }
+
+                addResults(results, executeBatch(sqlScript, batchStatements, config), stream);
+
+                try {
+                    if (loader == null) {
+                        appendStarted = instrumentation == null ? 0 : instrumentation.begin();
+                        loader = new DuckBulkLoader(jdbcTemplate, insert.getSchema(), insert.getTable());
+                        firstAppendedStatement = sqlStatement;
+                    }
+                    loader.append(insert.getValues());
+                } catch (SQLException e) {
+                    throw new FlywaySqlScriptException(sqlScript.getResource(), sqlStatement, e);
+                }
+            }
+            if (loader != null) {
+                addResults(results, closeLoader(sqlScript, loader, firstAppendedStatement, appendStarted), stream);
+                loader = null;
+            }
+            addResults(results, executeBatch(sqlScript, batchStatements, config), stream);
+        } finally {
+            if (loader != null) {
+                try {
+                    loader.close();
+                } catch (SQLException e) {
+                    LOG.debug("Unable to close appender after failed migration: " + e.getMessage());
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return The script being executed, or {@code null} outside of {@link #execute(SqlScript, Configuration)}.
+     */
+    SqlScript getSqlScript() {
+        return sqlScript;
+    }
+
+    /**
+     * Flushes the appended rows. Errors surfacing here (e.g. constraint violations) are reported against the first
+     * statement of the run.
+     */
+    private Results closeLoader(SqlScript sqlScript, DuckBulkLoader loader, SqlStatement firstStatement,
+                                long started) {
+        try {
+            loader.close();
+        } catch (SQLException e) {
+            if (instrumentation != null) {
+                instrumentation.end(started, firstStatement, (int) loader.getRowCount(), null);
+            }
+            throw new FlywaySqlScriptException(sqlScript.getResource(), firstStatement, e);
+        }
+        LOG.debug("Appended " + loader.getRowCount() + " rows starting at line " + firstStatement.getLineNumber());
+        Results results = new Results();
+        results.addResult(new Result(loader.getRowCount(), null, null, firstStatement.getSql()));
+        if (instrumentation != null) {
+            instrumentation.end(started, firstStatement, (int) loader.getRowCount(), results);
+        }
+        return results;
+    }
+
+    @Override
+    protected Results executeStatement(JdbcTemplate jdbcTemplate, SqlScript sqlScript, SqlStatement sqlStatement,
+                                       Configuration config) {
+        if (instrumentation == null) {
+            return super.executeStatement(jdbcTemplate, sqlScript, sqlStatement, config);
+        }
+        long started = instrumentation.begin();
+        Results results = null;
+        try {
+            results = super.executeStatement(jdbcTemplate, sqlScript, sqlStatement, config);
+            return results;
+        } finally {
+            instrumentation.end(started, sqlStatement, 1, results);
+        }
+    }
+
+    /**
+     * Sends the pending statements to DuckDB as a single JDBC batch and clears them. Returns {@code null} if there is
+     * nothing to send. A failure is reported against the first statement of the batch that did not complete.
+     */
+    private Results executeBatch(SqlScript sqlScript, List<SqlStatement> statements, Configuration config) {
+        if (statements.isEmpty()) {
+            return null;
+        }
+        LOG.debug("Sending batch of " + statements.size() + " statements");
+        List<String> sqls = new ArrayList<>(statements.size());
+        for (SqlStatement statement : statements) {
+            fireStatementEvent(undo ? Event.BEFORE_EACH_UNDO_STATEMENT : Event.BEFORE_EACH_MIGRATE_STATEMENT,
+                    statement, null);
+            sqls.add(statement.getSql());
+        }
+
+        long started = instrumentation == null ? 0 : instrumentation.begin();
+        Results results = jdbcTemplate.executeBatch(sqls, config);
+        if (instrumentation != null) {
+            instrumentation.end(started, statements.get(0), statements.size(), results);
+        }
+        if (results.getException() != null) {
+            SqlStatement failed = statements.get(Math.min(results.getResults().size(), statements.size() - 1));
+            fireStatementEvent(undo ? Event.AFTER_EACH_UNDO_STATEMENT_ERROR : Event.AFTER_EACH_MIGRATE_STATEMENT_ERROR,
+                    failed, results);
+            handleException(results, sqlScript, failed, config);
+        }
+        for (SqlStatement statement : statements) {
+            fireStatementEvent(undo ? Event.AFTER_EACH_UNDO_STATEMENT : Event.AFTER_EACH_MIGRATE_STATEMENT,
+                    statement, results);
+        }
+        statements.clear();
+        return results;
+    }
+
+    private void fireStatementEvent(Event event, SqlStatement statement, Results results) {
+        callbackExecutor.onEachMigrateOrUndoStatementEvent(event, statement.getSql() + statement.getDelimiter(),
+                results == null ? new ArrayList<>() : results.getWarnings(),
+                results == null ? new ArrayList<>() : results.getErrors());
+    }
+
+    /**
+     * Keeps every result unless the script is streamed, in which case only results that carry something worth
+     * reporting are kept so that memory does not grow with the number of statements in the script.
+     */
+    private static void addResults(List<Results> results, Results statementResults, boolean stream) {
+        if (statementResults != null && (!stream || isReportable(statementResults))) {
+            results.add(statementResults);
+        }
+    }
+
+    private static boolean isReportable(Results results) {
+        if (!results.getWarnings().isEmpty() || !results.getErrors().isEmpty() || results.getException() != null) {
+            return true;
+        }
+        for (Result result : results.getResults()) {
+            if (result.columns() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.jdbc.Results;
+import org.flywaydb.core.internal.sqlscript.Delimiter;
+import org.flywaydb.core.internal.sqlscript.ParsedSqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlScriptExecutor;
+
+/**
+ * A statement parsed by {@link DuckParser}, carrying what the parser learned about it.
+ */
+public class DuckSqlStatement extends ParsedSqlStatement {
+    private final Delimiter delimiter;
+    private final DuckDBDatabase database;
+    private final boolean ddl;
+    private final DuckChunkedBackfill chunk;
+
+    /**
+     * @param database The database the statement is parsed for, or {@code null} if none is connected.
+     * @param ddl      Whether the statement changes the catalog.
+     */
+    public DuckSqlStatement(int pos, int line, int col, String sql, Delimiter delimiter,
+                            boolean canExecuteInTransaction, boolean batchable, DuckDBDatabase database, boolean ddl) {
+        this(pos, line, col, sql, delimiter, canExecuteInTransaction, batchable, database, ddl, null);
+    }
+
+    /**
+     * @param chunk How the statement is split into transactions, or {@code null} to execute it as a whole.
+     */
+    DuckSqlStatement(int pos, int line, int col, String sql, Delimiter delimiter, boolean canExecuteInTransaction,
+                     boolean batchable, DuckDBDatabase database, boolean ddl, DuckChunkedBackfill chunk) {
+        super(pos, line, col, sql, delimiter, canExecuteInTransaction, batchable);
+        this.delimiter = delimiter;
+        this.database = database;
+        this.ddl = ddl;
+        this.chunk = chunk;
+    }
+
+    public boolean isDdl() {
+        return ddl;
+    }
+
+    Delimiter getStatementDelimiter() {
+        return delimiter;
+    }
+
+    DuckChunkedBackfill getChunk() {
+        return chunk;
+    }
+
+    /**
+     * @return This statement as parsed for another database, e.g. when the statements of a script parsed once are
+     * executed against several databases.
+     */
+    DuckSqlStatement forDatabase(DuckDBDatabase database) {
+        return database == this.database ? this : new DuckSqlStatement(getPos(), getLine(), getCol(), getSql(), delimiter,
+                canExecuteInTransaction(), isBatchable(), database, ddl, chunk);
+    }
+
+    @Override
+    public Results execute(JdbcTemplate jdbcTemplate, SqlScriptExecutor sqlScriptExecutor, Configuration config) {
+        if (chunk != null) {
+            SqlScript sqlScript = sqlScriptExecutor instanceof DuckSqlScriptExecutor
+                    ? ((DuckSqlScriptExecutor) sqlScriptExecutor).getSqlScript()
+                    : null;
+            if (database != null) {
+                database.chunkProgressKept();
+            }
+            return chunk.execute(jdbcTemplate, config, sqlScript, getLine(), getSql());
+        }
+        Results results = super.execute(jdbcTemplate, sqlScriptExecutor, config);
+        if (ddl && database != null) {
+            database.invalidateMetadata();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zongkx.duckdb;
+
+/**
+ * Classifies statements by their leading keywords. {@link DuckParser} consults it for every keyword of every
+ * statement, so it dispatches on the first keyword with a switch rather than matching a list of regexes.
+ */
+final class DuckStatementClassifier {
+    private DuckStatementClassifier() {
+    }
+
+    /**
+     * @param simplifiedStatement The upper-cased leading keywords of the statement, separated by single spaces.
+     * @return {@code true} for {@code COPY ... FROM STDIN}.
+     */
+    static boolean isCopyFromStdin(String simplifiedStatement) {
+        return simplifiedStatement.startsWith("COPY ") && simplifiedStatement.endsWith(" FROM STDIN");
+    }
+
+    /**
+     * @param simplifiedStatement The upper-cased leading keywords of the statement, separated by single spaces.
+     * @return {@code false} if the statement must run outside a transaction, {@code null} if this can not be decided
+     * (yet).
+     */
+    static Boolean canExecuteInTransaction(String simplifiedStatement) {
+        String[] keywords = simplifiedStatement.split(" ", 5);
+        switch (keywords[0]) {
+            case "CREATE":
+            case "DROP":
+                if (is(keywords, 1, "DATABASE") || is(keywords, 1, "TABLESPACE") || is(keywords, 1, "SUBSCRIPTION")
+                        || (is(keywords, 1, "INDEX") && is(keywords, 2, "CONCURRENTLY"))
+                        || (is(keywords, 1, "UNIQUE") && is(keywords, 2, "INDEX") && is(keywords, 3, "CONCURRENTLY"))) {
+                    return false;
+                }
+                return null;
+            case "ALTER":
+                return is(keywords, 1, "SYSTEM") ? false : null;
+            case "REINDEX":
+                int target = is(keywords, 1, "VERBOSE") ? 2 : 1;
+                return is(keywords, target, "SCHEMA") || is(keywords, target, "DATABASE") || is(keywords, target, "SYSTEM")
+                        ? false : null;
+            case "VACUUM":
+                return false;
+            case "DISCARD":
+                return is(keywords, 1, "ALL") ? false : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param firstKeyword The upper-cased first keyword of the statement.
+     * @return Whether the statement changes the catalog.
+     */
+    static boolean isDdl(String firstKeyword) {
+        switch (firstKeyword) {
+            case "CREATE":
+            case "DROP":
+            case "ALTER":
+            case "ATTACH":
+            case "DETACH":
+            case "IMPORT":
+            case "COMMENT":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param firstKeyword The upper-cased first keyword of the statement.
+     * @return Whether the statement only changes data and can be sent as part of a JDBC batch.
+     */
+    static boolean isBatchable(String firstKeyword) {
+        switch (firstKeyword) {
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean is(String[] keywords, int index, String keyword) {
+        return keywords.length > index && keyword.equals(keywords[index]);
+    }
+}
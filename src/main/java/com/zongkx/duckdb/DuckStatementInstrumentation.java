@@ -0,0 +1,149 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.flywaydb.core.internal.exception.FlywaySqlException;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.flywaydb.core.internal.jdbc.Result;
+import org.flywaydb.core.internal.jdbc.Results;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Times the statements of one script and hands a {@link DuckStatementRecord} for each to the registered
+ * {@link DuckStatementListener}s. With {@code flyway.duckdb.profile}, DuckDB's JSON profiling is enabled for the
+ * duration of the script and the profile it writes after every query is attached to the record.
+ */
+final class DuckStatementInstrumentation {
+    private static final Log LOG = LogFactory.getLog(DuckStatementInstrumentation.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String migration;
+    private final List<DuckStatementListener> listeners;
+    private Path profileFile;
+
+    private DuckStatementInstrumentation(JdbcTemplate jdbcTemplate, String migration,
+                                         List<DuckStatementListener> listeners) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.migration = migration;
+        this.listeners = listeners;
+    }
+
+    /**
+     * @return The instrumentation of the script, or {@code null} if neither {@code flyway.duckdb.instrument} nor
+     * {@code flyway.duckdb.profile} is enabled.
+     */
+    static DuckStatementInstrumentation start(JdbcTemplate jdbcTemplate, SqlScript sqlScript, Configuration config) {
+        DuckDBConfigurationExtension duckConfiguration =
+                config.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class);
+        if (!DuckStatementReport.isEnabled(duckConfiguration)) {
+            return null;
+        }
+        DuckStatementInstrumentation instrumentation = new DuckStatementInstrumentation(jdbcTemplate,
+                sqlScript.getResource().getFilename(),
+                config.getPluginRegister().getPlugins(DuckStatementListener.class));
+        if (duckConfiguration.isProfile()) {
+            instrumentation.enableProfiling();
+        }
+        return instrumentation;
+    }
+
+    private void enableProfiling() {
+        try {
+            profileFile = Files.createTempFile("flyway-duckdb-profile-", ".json");
+            jdbcTemplate.execute("SET enable_profiling = 'json'");
+            jdbcTemplate.execute("SET profiling_output = '" + profileFile.toString().replace("'", "''") + "'");
+        } catch (IOException e) {
+            throw new FlywayException("Unable to create DuckDB profiling output file", e);
+        } catch (SQLException e) {
+            throw new FlywaySqlException("Unable to enable DuckDB profiling", e);
+        }
+    }
+
+    /**
+     * Disables profiling again, if it was enabled.
+     */
+    void stop() {
+        if (profileFile == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute("PRAGMA disable_profiling");
+            jdbcTemplate.execute("RESET profiling_output");
+        } catch (SQLException e) {
+            LOG.debug("Unable to disable DuckDB profiling: " + e.getMessage());
+        }
+        try {
+            Files.deleteIfExists(profileFile);
+        } catch (IOException e) {
+            LOG.debug("Unable to delete DuckDB profiling output " + profileFile + ": " + e.getMessage());
+        }
+        profileFile = null;
+    }
+
+    /**
+     * @return The start time to pass to {@link #end}.
+     */
+    long begin() {
+        if (profileFile != null) {
+            try {
+                Files.deleteIfExists(profileFile);
+            } catch (IOException e) {
+                LOG.debug("Unable to delete DuckDB profiling output " + profileFile + ": " + e.getMessage());
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * @param results The results, or {@code null} if the execution threw.
+     */
+    void end(long started, SqlStatement firstStatement, int statementCount, Results results) {
+        long nanos = System.nanoTime() - started;
+        boolean failed = results == null || results.getException() != null;
+        DuckStatementRecord record = new DuckStatementRecord(migration, firstStatement.getLineNumber(),
+                firstStatement.getSql(), statementCount, failed ? -1 : rowsAffected(results), nanos, failed,
+                readProfile());
+        for (DuckStatementListener listener : listeners) {
+            try {
+                listener.statementExecuted(record);
+            } catch (RuntimeException e) {
+                LOG.warn("Statement listener " + listener.getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private String readProfile() {
+        if (profileFile == null) {
+            return null;
+        }
+        try {
+            return new String(Files.readAllBytes(profileFile), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.debug("Unable to read DuckDB profiling output " + profileFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long rowsAffected(Results results) {
+        long rows = 0;
+        for (Result result : results.getResults()) {
+            if (result.updateCount() > 0) {
+                rows += result.updateCount();
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,15 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.extensibility.Plugin;
+
+/**
+ * Receives a {@link DuckStatementRecord} for every statement executed while {@code flyway.duckdb.instrument} or
+ * {@code flyway.duckdb.profile} is enabled. Implementations are discovered like any other Flyway plugin, by listing
+ * them in {@code META-INF/services/org.flywaydb.core.extensibility.Plugin}.
+ * <p>
+ * Listeners are called on the thread executing the statement, which is not always the same thread when migrating
+ * with {@link DuckParallelMigrator}. Exceptions thrown by a listener are logged and do not fail the migration.
+ */
+public interface DuckStatementListener extends Plugin {
+    void statementExecuted(DuckStatementRecord record);
+}
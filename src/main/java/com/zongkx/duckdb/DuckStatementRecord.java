@@ -0,0 +1,92 @@
+package com.zongkx.duckdb;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The execution of a single statement, or of a JDBC batch or appender run of several statements, of a migration.
+ */
+public final class DuckStatementRecord {
+    private final String migration;
+    private final int lineNumber;
+    private final String sql;
+    private final int statementCount;
+    private final long rowsAffected;
+    private final long nanos;
+    private final boolean failed;
+    private final String profile;
+
+    DuckStatementRecord(String migration, int lineNumber, String sql, int statementCount, long rowsAffected,
+                        long nanos, boolean failed, String profile) {
+        this.migration = migration;
+        this.lineNumber = lineNumber;
+        this.sql = sql;
+        this.statementCount = statementCount;
+        this.rowsAffected = rowsAffected;
+        this.nanos = nanos;
+        this.failed = failed;
+        this.profile = profile;
+    }
+
+    /**
+     * @return The file name of the migration or callback script.
+     */
+    public String getMigration() {
+        return migration;
+    }
+
+    /**
+     * @return The line the statement, or the first statement of a batch or appender run, starts at.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return The SQL of the statement, or of the first statement of a batch or appender run.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return {@code 1}, or the number of statements sent as one JDBC batch or appender run.
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return The number of rows inserted, updated or deleted, or {@code -1} if the statement failed.
+     */
+    public long getRowsAffected() {
+        return rowsAffected;
+    }
+
+    /**
+     * @return The wall time of the execution, in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * @return DuckDB's JSON query profile of the statement, or of the last statement of a batch, if
+     * {@code flyway.duckdb.profile} is enabled and DuckDB produced one, {@code null} otherwise.
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    @Override
+    public String toString() {
+        return migration + ":" + lineNumber + " (" + getMillis() + " ms" + (failed ? ", failed" : "") + ")";
+    }
+}
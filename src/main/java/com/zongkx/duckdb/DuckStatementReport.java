@@ -0,0 +1,124 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@code flyway.duckdb.slowStatements} slowest statements of the last Flyway command, which is logged once
+ * the command completes. Retrieve it with
+ * {@code flyway.getConfiguration().getPluginRegister().getPlugin(DuckStatementReport.class)}.
+ */
+public class DuckStatementReport implements DuckStatementListener {
+    private static final Log LOG = LogFactory.getLog(DuckStatementReport.class);
+    private static final Comparator<DuckStatementRecord> BY_DURATION =
+            Comparator.comparingLong(DuckStatementRecord::getNanos);
+    private static final int MAX_SQL_LENGTH = 80;
+
+    private final PriorityQueue<DuckStatementRecord> slowest = new PriorityQueue<>(BY_DURATION);
+    private int limit = 10;
+    private long statementCount;
+    private long totalNanos;
+
+    @Override
+    public synchronized void statementExecuted(DuckStatementRecord record) {
+        statementCount += record.getStatementCount();
+        totalNanos += record.getNanos();
+        if (limit <= 0) {
+            return;
+        }
+        if (slowest.size() < limit) {
+            slowest.add(record);
+        } else if (record.getNanos() > slowest.peek().getNanos()) {
+            slowest.poll();
+            slowest.add(record);
+        }
+    }
+
+    /**
+     * Discards the statements recorded so far.
+     *
+     * @param limit The number of slowest statements to keep from now on.
+     */
+    public synchronized void reset(int limit) {
+        this.limit = limit;
+        slowest.clear();
+        statementCount = 0;
+        totalNanos = 0;
+    }
+
+    /**
+     * @return The slowest statements recorded, slowest first.
+     */
+    public synchronized List<DuckStatementRecord> getSlowest() {
+        List<DuckStatementRecord> records = new ArrayList<>(slowest);
+        records.sort(BY_DURATION.reversed());
+        return records;
+    }
+
+    /**
+     * @return The number of statements recorded.
+     */
+    public synchronized long getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return The combined wall time of the statements recorded, in nanoseconds.
+     */
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return A human-readable summary of the slowest statements.
+     */
+    public synchronized String format() {
+        StringBuilder report = new StringBuilder("Executed ").append(statementCount).append(" statements in ")
+                .append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append(" ms");
+        List<DuckStatementRecord> records = getSlowest();
+        if (!records.isEmpty()) {
+            report.append(", slowest:");
+        }
+        for (DuckStatementRecord record : records) {
+            report.append("\n  ").append(String.format("%8d ms", record.getMillis()))
+                    .append("  ").append(record.getMigration()).append(':').append(record.getLineNumber());
+            if (record.getStatementCount() > 1) {
+                report.append(" (").append(record.getStatementCount()).append(" statements)");
+            }
+            if (record.isFailed()) {
+                report.append(" (failed)");
+            }
+            report.append("  ").append(abbreviate(record.getSql()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Logs the summary if instrumentation is enabled and anything was recorded.
+     */
+    static void log(Configuration configuration) {
+        if (!isEnabled(configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class))) {
+            return;
+        }
+        DuckStatementReport report = configuration.getPluginRegister().getPlugin(DuckStatementReport.class);
+        if (report != null && report.getStatementCount() > 0) {
+            LOG.info(report.format());
+        }
+    }
+
+    static boolean isEnabled(DuckDBConfigurationExtension duckConfiguration) {
+        return duckConfiguration.isInstrument() || duckConfiguration.isProfile();
+    }
+
+    private static String abbreviate(String sql) {
+        String line = sql.replaceAll("\\s+", " ").trim();
+        return line.length() <= MAX_SQL_LENGTH ? line : line.substring(0, MAX_SQL_LENGTH - 3) + "...";
+    }
+}
@@ -0,0 +1,47 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import java.io.Reader;
+
+/**
+ * Wraps a resource so that its script is always streamed: statements are parsed as they are executed instead of
+ * being held in memory for the whole script.
+ */
+public class DuckStreamingResource extends LoadableResource {
+    private final LoadableResource resource;
+
+    public DuckStreamingResource(LoadableResource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Reader read() {
+        return resource.read();
+    }
+
+    @Override
+    public boolean shouldStream() {
+        return true;
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return resource.getAbsolutePath();
+    }
+
+    @Override
+    public String getAbsolutePathOnDisk() {
+        return resource.getAbsolutePathOnDisk();
+    }
+
+    @Override
+    public String getFilename() {
+        return resource.getFilename();
+    }
+
+    @Override
+    public String getRelativePath() {
+        return resource.getRelativePath();
+    }
+}
@@ -0,0 +1,150 @@
+package com.zongkx.duckdb;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Helpers shared by the migrators, cleaners and caches working on plain JDBC connections and digests.
+ */
+final class DuckSupport {
+    private DuckSupport() {
+    }
+
+    /**
+     * @return The first column of the first row of a query, or {@code null} if it returns no rows.
+     */
+    static String queryForString(Connection connection, String query) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Quotes a schema name that may be qualified with its database, as in {@code analytics.main}.
+     */
+    static String quoteSchema(String schema) {
+        int dot = schema.indexOf('.');
+        return dot < 0 ? quote(schema) : quote(schema.substring(0, dot)) + "." + quote(schema.substring(dot + 1));
+    }
+
+    /**
+     * @return The position of {@code keyword} outside parentheses, literals and comments, or {@code -1}.
+     */
+    static int findTopLevel(String sql, String keyword, int from) {
+        return find(sql, keyword, from, true);
+    }
+
+    /**
+     * @return The position of {@code keyword} outside literals and comments, also within parentheses, or {@code -1}.
+     */
+    static int findAnywhere(String sql, String keyword, int from) {
+        return find(sql, keyword, from, false);
+    }
+
+    private static int find(String sql, String keyword, int from, boolean topLevel) {
+        int depth = 0;
+        for (int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            char next = i + 1 < sql.length() ? sql.charAt(i + 1) : 0;
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i);
+            } else if (c == '-' && next == '-') {
+                i = sql.indexOf('\n', i);
+                if (i < 0) {
+                    return -1;
+                }
+            } else if (c == '/' && next == '*') {
+                i = sql.indexOf("*/", i + 2);
+                if (i < 0) {
+                    return -1;
+                }
+                i++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if ((depth == 0 || !topLevel) && sql.regionMatches(true, i, keyword, 0, keyword.length())
+                    && isBoundary(sql, i - 1) && isBoundary(sql, i + keyword.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        for (int i = start + 1; i < sql.length(); i++) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return sql.length();
+    }
+
+    private static boolean isBoundary(String sql, int index) {
+        if (index < 0 || index >= sql.length()) {
+            return true;
+        }
+        char c = sql.charAt(index);
+        return !Character.isLetterOrDigit(c) && c != '_';
+    }
+
+    /**
+     * @param currentCatalog The current database, which an unqualified schema is taken to belong to.
+     * @param schema         A schema, optionally qualified with its database, or a comma-separated list of schemas.
+     * @return The statement pointing the search path at the schema.
+     */
+    static String setSearchPath(String currentCatalog, String schema) {
+        String searchPath = schema.isEmpty() || schema.indexOf('.') >= 0 || schema.indexOf(',') >= 0
+                ? schema
+                : currentCatalog + "." + schema;
+        return "SET search_path = '" + searchPath.replace("'", "''") + "'";
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return The hex SHA-256 digest of a string.
+     */
+    static String sha256(String value) {
+        return hex(sha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Adds a value to a digest, prefixed with its length so that consecutive values can not run into each other.
+     */
+    static void update(MessageDigest digest, String value) {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
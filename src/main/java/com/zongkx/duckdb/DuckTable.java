@@ -16,24 +16,24 @@ public class DuckTable extends Table<DuckDBDatabase, DuckSchema> {
 
     @Override
     protected void doDrop() throws SQLException {
-        jdbcTemplate.execute("DROP TABLE " + database.quote(schema.getName(), name) + " ");
+        jdbcTemplate.execute("DROP TABLE " + this + " ");
+        schema.invalidateMetadata();
     }
 
     @Override
     protected boolean doExists() throws SQLException {
-        return jdbcTemplate.queryForBoolean("SELECT EXISTS (\n" +
-                "  SELECT 1\n" +
-                "  FROM   pg_catalog.pg_class c\n" +
-                "  JOIN   pg_catalog.pg_namespace n ON n.oid = c.relnamespace\n" +
-                "  WHERE  n.nspname = ?\n" +
-                "  AND    c.relname = ?\n" +
-                "  AND    c.relkind = 'r'\n" + // only tables
-                ")", schema.getName(), name);
+        return schema.getMetadata().tableExists(schema.getCatalog(), schema.getSchemaName(), name);
+    }
+
+    @Override
+    public String toString() {
+        return schema.qualify(name);
     }
 
 
     @Override
     protected void doLock() {
-        LOG.debug("Unable to lock " + this + " as SQLite does not support locking. No concurrent migration supported.");
+        LOG.debug("Not locking " + this + " as DuckDB does not support row locks. Concurrent migrations of a"
+                + " file-backed database are serialized by the lock file next to it.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.CleanResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckAttachedDatabaseTest {
+    private static final String TABLES = "SELECT string_agg(database_name || '.' || table_name, ',' ORDER BY"
+            + " database_name, table_name) FROM duckdb_tables() WHERE schema_name = 'main'";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void migratesAndCleansAttachedDatabaseOnly() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("app.duckdb");
+        Path other = directory.resolve("other.duckdb");
+        // Same names in the main database as in the attached one, which must not be mistaken for them
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(database));
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE events (id INTEGER)");
+            statement.execute("INSERT INTO events VALUES (1), (2)");
+            statement.execute("CREATE VIEW totals AS SELECT count(*) AS total FROM events");
+        }
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);\n"
+                + "INSERT INTO events VALUES (3);\n"
+                + "CREATE TABLE users (id INTEGER);");
+        Flyway flyway = DuckTestSupport.configure(migrations, database)
+                .initSql("ATTACH IF NOT EXISTS '" + other + "' AS other")
+                .defaultSchema("other.main")
+                .load();
+
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+
+        assertEquals("app.events,other.events,other.flyway_schema_history,other.users",
+                queryWithAttached(database, other, TABLES));
+        assertEquals("1", queryWithAttached(database, other, "SELECT count(*) FROM other.events"));
+        assertEquals(1, flyway.info().applied().length);
+
+        CleanResult result = flyway.clean();
+
+        assertEquals(Collections.singletonList("other.main"), result.schemasCleaned);
+        assertEquals("app.events", queryWithAttached(database, other, TABLES));
+        assertEquals("2", DuckTestSupport.queryForString(database, "SELECT total FROM totals"));
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+        assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+    }
+
+    private static String queryWithAttached(Path database, Path other, String query) throws Exception {
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(database));
+             Statement statement = connection.createStatement()) {
+            statement.execute("ATTACH IF NOT EXISTS '" + other + "' AS other");
+            try (ResultSet resultSet = statement.executeQuery(query)) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckBackgroundMigratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsEachCommittedVersion() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("background.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        DuckTestSupport.migration(migrations, "V2__insert.sql", "INSERT INTO events VALUES (1);");
+        DuckTestSupport.migration(migrations, "V3__insert.sql", "INSERT INTO events VALUES (2);");
+        List<String> progress = new CopyOnWriteArrayList<>();
+        DuckBackgroundMigrator migrator = new DuckBackgroundMigrator(DuckTestSupport.configure(migrations, database).load())
+                .addListener(p -> progress.add(p.getMigration().getVersion() + ":" + p.getCompleted() + "/" + p.getTotal()));
+        CompletableFuture<Void> second = migrator.whenReady("2");
+
+        assertEquals(3, migrator.start().get(60, TimeUnit.SECONDS));
+
+        assertTrue(second.isDone());
+        assertTrue(migrator.isReady());
+        assertTrue(migrator.isReady("3"));
+        assertTrue(migrator.whenReady("1").isDone());
+        assertEquals(List.of("1:1/3", "2:2/3", "3:3/3"), progress);
+        assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+    }
+
+    @Test
+    void failsWaitersOfVersionsNotReached() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("failed.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        DuckTestSupport.migration(migrations, "V2__broken.sql", "INSERT INTO missing VALUES (1);");
+        DuckBackgroundMigrator migrator = new DuckBackgroundMigrator(DuckTestSupport.configure(migrations, database).load());
+        CompletableFuture<Void> first = migrator.whenReady("1");
+        CompletableFuture<Void> second = migrator.whenReady("2");
+
+        assertThrows(ExecutionException.class, () -> migrator.start().get(60, TimeUnit.SECONDS));
+
+        first.get(1, TimeUnit.SECONDS);
+        assertTrue(migrator.isReady("1"));
+        assertFalse(migrator.isReady("2"));
+        assertFalse(migrator.isReady());
+        assertTrue(second.isCompletedExceptionally());
+        assertTrue(migrator.whenReady("2").isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,72 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckBulkLoaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsSingleRowInserts() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("appender.duckdb");
+        DuckTestSupport.migration(migrations, "V1__seed.sql", "CREATE TABLE events (id INTEGER, amount DOUBLE, name VARCHAR);\n"
+                + "INSERT INTO events VALUES (1, -1.5, 'one');\n"
+                + "INSERT INTO events VALUES (2, 2e1, NULL);\n"
+                + "INSERT INTO events VALUES (3, 3, 'it''s');\n"
+                + "UPDATE events SET amount = amount * 2 WHERE id = 3;\n"
+                + "INSERT INTO events VALUES (4, 1 + 3, 'four');\n");
+
+        DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.appender", "true"))
+                .load()
+                .migrate();
+
+        assertEquals("4", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+        assertEquals("6.0", DuckTestSupport.queryForString(database, "SELECT amount FROM events WHERE id = 3"));
+        assertEquals("-1.5", DuckTestSupport.queryForString(database, "SELECT amount FROM events WHERE id = 1"));
+        assertEquals("it's", DuckTestSupport.queryForString(database, "SELECT name FROM events WHERE id = 3"));
+    }
+
+    @Test
+    void keepsSameNamedTablesOfOtherSchemasApart() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("schemas.duckdb");
+        DuckTestSupport.migration(migrations, "V1__seed.sql", "CREATE SCHEMA staging;\n"
+                + "CREATE TABLE staging.t (id INTEGER);\n"
+                + "CREATE TABLE t (id INTEGER);\n"
+                + "INSERT INTO staging.t VALUES (1);\n"
+                + "INSERT INTO t VALUES (2);\n"
+                + "INSERT INTO main.t VALUES (3);\n"
+                + "INSERT INTO t VALUES (4);\n");
+
+        DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.appender", "true"))
+                .load()
+                .migrate();
+
+        assertEquals("1", DuckTestSupport.queryForString(database, "SELECT string_agg(id, ',' ORDER BY id) FROM staging.t"));
+        assertEquals("2,3,4", DuckTestSupport.queryForString(database, "SELECT string_agg(id, ',' ORDER BY id) FROM main.t"));
+    }
+
+    @Test
+    void copiesDataBlocks() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("copy.duckdb");
+        DuckTestSupport.migration(migrations, "V1__copy.sql", "CREATE TABLE events (id INTEGER, name VARCHAR);\n"
+                + "COPY events (name, id) FROM STDIN;\n"
+                + "one\t1\n"
+                + "two\t2\n"
+                + "\\.\n");
+
+        DuckTestSupport.configure(migrations, database).load().migrate();
+
+        assertEquals("two", DuckTestSupport.queryForString(database, "SELECT name FROM events WHERE id = 2"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckCheckpointerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void leavesWalToDuckDbByDefault() throws Exception {
+        Map<String, Long> walSizes = migrate("auto.duckdb", "AUTO", 0);
+
+        assertTrue(walSizes.get("2") > 0, walSizes.toString());
+        assertTrue(walSizes.get("end") > 0, walSizes.toString());
+    }
+
+    @Test
+    void checkpointsAfterEveryMigration() throws Exception {
+        Map<String, Long> walSizes = migrate("migration.duckdb", "MIGRATION", 0);
+
+        assertEquals(0, walSizes.get("2"), walSizes.toString());
+        assertEquals(0, walSizes.get("3"), walSizes.toString());
+        assertEquals(0, walSizes.get("end"), walSizes.toString());
+    }
+
+    @Test
+    void checkpointsOnceAfterLastMigration() throws Exception {
+        Map<String, Long> walSizes = migrate("end.duckdb", "END", 0);
+
+        assertTrue(walSizes.get("2") > 0, walSizes.toString());
+        assertTrue(walSizes.get("3") > walSizes.get("2"), walSizes.toString());
+        assertEquals(0, walSizes.get("end"), walSizes.toString());
+    }
+
+    @Test
+    void checkpointsOnceWalReachesSize() throws Exception {
+        Map<String, Long> walSizes = migrate("size.duckdb", "AUTO", 256 * 1024);
+
+        // V1 only creates a table, V2 inserts enough rows to grow the WAL past the size
+        assertTrue(walSizes.get("2") > 0, walSizes.toString());
+        assertEquals(0, walSizes.get("3"), walSizes.toString());
+    }
+
+    /**
+     * Migrates while another connection keeps DuckDB's database instance open, so that closing Flyway's connection
+     * does not checkpoint the database.
+     *
+     * @return The size of the WAL before each migration by version, and after the migrate as {@code end}.
+     */
+    private Map<String, Long> migrate(String name, String checkpoint, long walSize) throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve(name);
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id BIGINT, name VARCHAR);");
+        DuckTestSupport.migration(migrations, "V2__insert.sql",
+                "INSERT INTO events SELECT range, 'event ' || range FROM range(50000);");
+        DuckTestSupport.migration(migrations, "V3__insert.sql",
+                "INSERT INTO events SELECT range, 'other ' || range FROM range(50000);");
+        Map<String, String> properties = new HashMap<>();
+        properties.put("flyway.duckdb.checkpoint", checkpoint);
+        properties.put("flyway.duckdb.checkpointWalSize", String.valueOf(walSize));
+        properties.put("flyway.duckdb.checkpointThreshold", "1GB");
+        Path wal = Paths.get(database + ".wal");
+        Map<String, Long> walSizes = new LinkedHashMap<>();
+
+        try (Connection ignored = DriverManager.getConnection(DuckTestSupport.url(database))) {
+            DuckTestSupport.configure(migrations, database)
+                    .configuration(properties)
+                    .callbacks(new WalRecorder(wal, walSizes))
+                    .load()
+                    .migrate();
+            walSizes.put("end", size(wal));
+        }
+        return walSizes;
+    }
+
+    private static long size(Path wal) {
+        try {
+            return Files.exists(wal) ? Files.size(wal) : 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Records the size of the WAL before each migration, i.e. after the previous one has been committed.
+     */
+    private static final class WalRecorder implements Callback {
+        private final Path wal;
+        private final Map<String, Long> walSizes;
+
+        WalRecorder(Path wal, Map<String, Long> walSizes) {
+            this.wal = wal;
+            this.walSizes = walSizes;
+        }
+
+        @Override
+        public boolean supports(Event event, Context context) {
+            return event == Event.BEFORE_EACH_MIGRATE;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context context) {
+            walSizes.put(context.getMigrationInfo().getVersion().getVersion(), size(wal));
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "wal-recorder";
+        }
+    }
+}
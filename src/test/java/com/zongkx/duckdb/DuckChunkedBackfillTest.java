@@ -0,0 +1,122 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckChunkedBackfillTest {
+    private static final String BACKFILL = "-- duckdb:chunk size=100\nUPDATE events SET hits = hits + 1;\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsCompletionMarkerUntilMigrationIsRecorded() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("chunks.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT range AS id, 0 AS hits FROM range(1000);");
+        DuckTestSupport.migration(migrations, "V2__backfill.sql", BACKFILL + "INSERT INTO missing VALUES (1);");
+        Flyway flyway = configure(migrations, database).load();
+
+        assertThrows(FlywayException.class, flyway::migrate);
+
+        assertEquals("1000", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+        assertEquals("true", DuckTestSupport.queryForString(database,
+                "SELECT next_key > last_key FROM flyway_schema_history_chunks WHERE script = 'V2__backfill.sql'"));
+
+        DuckTestSupport.migration(migrations, "V2__backfill.sql", BACKFILL + "CREATE TABLE missing (id INTEGER);");
+        flyway.repair();
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+
+        assertEquals("1000", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM flyway_schema_history_chunks"));
+    }
+
+    @Test
+    void appliesRepeatableMigrationAgainAfterItWasRecorded() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("repeatable.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT range AS id, 0 AS hits FROM range(100);");
+        DuckTestSupport.migration(migrations, "R__r.sql", BACKFILL + "CREATE OR REPLACE VIEW totals AS SELECT 1 AS v;");
+        Flyway flyway = configure(migrations, database).load();
+        flyway.migrate();
+        assertEquals("100", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM flyway_schema_history_chunks"));
+
+        DuckTestSupport.migration(migrations, "R__r.sql", BACKFILL + "CREATE OR REPLACE VIEW totals AS SELECT 2 AS v;");
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+
+        assertEquals("200", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+
+        // A retry of the failed third application resumes it, despite the successful applications recorded before
+        DuckTestSupport.migration(migrations, "R__r.sql", BACKFILL + "INSERT INTO missing VALUES (1);");
+        assertThrows(FlywayException.class, flyway::migrate);
+        DuckTestSupport.migration(migrations, "R__r.sql", BACKFILL + "CREATE OR REPLACE VIEW totals AS SELECT 3 AS v;");
+        flyway.repair();
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+
+        assertEquals("300", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM flyway_schema_history_chunks"));
+    }
+
+    @Test
+    void keepsIdenticalStatementsOfScriptApart() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("identical.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT range AS id, 0 AS hits FROM range(1000);");
+        DuckTestSupport.migration(migrations, "V2__backfill.sql", BACKFILL + BACKFILL);
+
+        configure(migrations, database).load().migrate();
+
+        assertEquals("2000", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+    }
+
+    @Test
+    void refusesStatementsThatCanNotBeChunked() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("refused.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT range AS id, 0 AS hits FROM range(10);\n"
+                        + "CREATE TABLE totals (hits BIGINT);");
+        Flyway flyway = configure(migrations, database).load();
+        flyway.migrate();
+
+        assertRefused(flyway, migrations, "INSERT INTO totals SELECT count(*) FROM events", "aggregate count");
+        assertRefused(flyway, migrations, "UPDATE events SET hits = rank() OVER (ORDER BY id)", "OVER");
+        assertRefused(flyway, migrations, "UPDATE events SET hits = (SELECT count(DISTINCT hits) FROM totals)",
+                "DISTINCT");
+        assertRefused(flyway, migrations, "UPDATE events SET hits = (SELECT hits FROM totals LIMIT 1)", "LIMIT");
+        assertRefused(flyway, migrations, "UPDATE events SET hits = (SELECT max(e.hits) FROM main.events e)",
+                "reading the table it writes");
+        assertRefused(flyway, migrations, "INSERT INTO events SELECT * FROM \"Events\"", "reading the table it inserts");
+
+        DuckTestSupport.migration(migrations, "V2__backfill.sql", "-- duckdb:chunk size=3\n"
+                + "UPDATE events SET hits = (SELECT count(*) FROM totals) + id WHERE id > 4;");
+        flyway.migrate();
+        assertEquals("35", DuckTestSupport.queryForString(database, "SELECT sum(hits) FROM events"));
+    }
+
+    private static void assertRefused(Flyway flyway, Path migrations, String sql, String reason) throws Exception {
+        Path migration = DuckTestSupport.migration(migrations, "V2__backfill.sql", "-- duckdb:chunk\n" + sql + ";");
+        FlywayException e = assertThrows(FlywayException.class, flyway::migrate);
+        assertTrue(String.valueOf(e.getMessage()).contains(reason), e.getMessage());
+        Files.delete(migration);
+        flyway.repair();
+    }
+
+    private static FluentConfiguration configure(Path migrations, Path database) {
+        return DuckTestSupport.configure(migrations, database).mixed(true);
+    }
+}
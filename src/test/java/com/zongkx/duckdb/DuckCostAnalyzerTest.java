@@ -0,0 +1,62 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckCostAnalyzerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void flagsStatementsRewritingWholeTables() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("cost.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT range AS id, 'name' AS name FROM range(1000);");
+        DuckTestSupport.configure(migrations, database).load().migrate();
+        DuckTestSupport.migration(migrations, "V2__change.sql",
+                "UPDATE events SET name = (SELECT max(name) FROM events e WHERE e.id = 1);\n"
+                        + "UPDATE events SET name = 'x' WHERE id = 1;\n"
+                        + "DELETE FROM events WHERE id IN (SELECT id FROM events WHERE id > 10);\n"
+                        + "UPDATE events SET name = 'no WHERE here' -- WHERE\n;\n"
+                        + "ALTER TABLE events ALTER COLUMN id TYPE BIGINT;\n"
+                        + "ALTER TABLE events ADD COLUMN flag BOOLEAN DEFAULT true;\n"
+                        + "ALTER TABLE events ADD COLUMN note VARCHAR;");
+
+        List<DuckCostEstimate> estimates = new DuckCostAnalyzer(DuckTestSupport.configure(migrations, database).load())
+                .analyze().getEstimates();
+
+        assertEquals(7, estimates.size());
+        assertEquals("events", estimates.get(0).getRewrittenTable());
+        assertNull(estimates.get(1).getRewrittenTable());
+        assertNull(estimates.get(2).getRewrittenTable());
+        assertEquals("events", estimates.get(3).getRewrittenTable());
+        assertEquals("events", estimates.get(4).getRewrittenTable());
+        assertEquals("events", estimates.get(5).getRewrittenTable());
+        assertNull(estimates.get(6).getRewrittenTable());
+        assertTrue(estimates.get(4).getRewrittenRows() > 0);
+    }
+
+    @Test
+    void parsesWithBuiltInPlaceholdersOfTheDatabase() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("placeholders.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT '${flyway:database}' AS source, '${flyway:filename}' AS script;");
+        Flyway flyway = DuckTestSupport.configure(migrations, database).load();
+
+        DuckCostReport report = new DuckCostAnalyzer(flyway).analyze();
+
+        assertTrue(report.getSkipped().isEmpty(), report.getSkipped().toString());
+        assertEquals(1, report.getEstimates().size());
+        assertNull(report.getEstimates().get(0).getError());
+    }
+}
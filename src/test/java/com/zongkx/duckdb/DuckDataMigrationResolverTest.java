@@ -0,0 +1,96 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckDataMigrationResolverTest {
+    private static final String DESCRIPTOR = "table=events\nmode=create\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void extractsPackagedDataFileOnlyWhenMigrating() throws Exception {
+        // Unique content, so that no earlier run has extracted the file already
+        String csv = "id,name\n1,one\n2," + UUID.randomUUID() + "\n";
+        Path jar = directory.resolve("data.jar");
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))) {
+            write(output, "db/data/V1__load.csv", csv);
+            write(output, "db/data/V1__load.csv.conf", DESCRIPTOR);
+        }
+        Path database = directory.resolve("packaged.duckdb");
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, getClass().getClassLoader())) {
+            Flyway flyway = Flyway.configure(classLoader)
+                    .dataSource(DuckTestSupport.url(database), null, null)
+                    .locations("classpath:db/data")
+                    .cleanDisabled(false)
+                    .load();
+
+            MigrationInfo pending = flyway.info().pending()[0];
+            Path extracted = Paths.get(System.getProperty("java.io.tmpdir"), "flyway-duckdb-data",
+                    Integer.toHexString(pending.getChecksum()), "V1__load.csv");
+            assertFalse(Files.exists(extracted));
+
+            flyway.migrate();
+            assertTrue(Files.exists(extracted));
+            assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+
+            // The same file on disk gets the same checksum as the packaged one
+            Path classes = directory.resolve("classes");
+            DuckTestSupport.migration(classes.resolve("db/data"), "V1__load.csv", csv);
+            DuckTestSupport.migration(classes.resolve("db/data"), "V1__load.csv.conf", DESCRIPTOR);
+            try (URLClassLoader diskLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+                Flyway onDisk = Flyway.configure(diskLoader)
+                        .dataSource(DuckTestSupport.url(directory.resolve("disk.duckdb")), null, null)
+                        .locations("classpath:db/data")
+                        .load();
+                assertEquals(pending.getChecksum(), onDisk.info().pending()[0].getChecksum());
+            }
+
+            // The table created by the load is seen by clean
+            flyway.clean();
+            assertEquals("0", DuckTestSupport.queryForString(database,
+                    "SELECT count(*) FROM duckdb_tables() WHERE table_name = 'events'"));
+            Files.deleteIfExists(extracted);
+        }
+    }
+
+    @Test
+    void loadsGlobRelativeToDescriptor() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        DuckTestSupport.migration(migrations.resolve("parts/a"), "p-1.csv", "id\n1\n");
+        DuckTestSupport.migration(migrations.resolve("parts/b"), "p-2.csv", "id\n2\n");
+        DuckTestSupport.migration(migrations.resolve("parts/b"), "other.csv", "id\n3\n");
+        DuckTestSupport.migration(migrations, "V1__load.csv.conf", DESCRIPTOR + "source=parts/*/p-?.csv\n");
+        Path database = directory.resolve("glob.duckdb");
+
+        assertEquals(migrations.resolve("parts") + File.separator + "*/p-?.csv",
+                DuckDataFiles.resolve(migrations, "parts/*/p-?.csv"));
+        DuckTestSupport.configure(migrations, database).load().migrate();
+
+        assertEquals("3", DuckTestSupport.queryForString(database, "SELECT sum(id) FROM events"));
+    }
+
+    private static void write(JarOutputStream output, String name, String content) throws Exception {
+        output.putNextEntry(new JarEntry(name));
+        output.write(content.getBytes(StandardCharsets.UTF_8));
+        output.closeEntry();
+    }
+}
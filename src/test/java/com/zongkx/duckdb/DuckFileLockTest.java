@@ -0,0 +1,92 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckFileLockTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void sharesOneLockPerDatabaseFile() {
+        String database = directory.resolve("shared.duckdb").toString();
+        assertSame(DuckFileLock.forDatabase(database, configuration(1)),
+                DuckFileLock.forDatabase(directory.resolve(".").resolve("shared.duckdb").toString(), configuration(1)));
+        assertNull(DuckFileLock.forDatabase(null, configuration(1)));
+        assertNull(DuckFileLock.forDatabase(database, configuration(0)));
+    }
+
+    @Test
+    void isReentrantForItsOwnerOnly() throws Exception {
+        DuckFileLock fileLock = DuckFileLock.forDatabase(directory.resolve("owner.duckdb").toString(), configuration(1));
+        fileLock.acquire();
+        fileLock.acquire();
+        fileLock.release();
+
+        CompletableFuture<Void> other = CompletableFuture.runAsync(fileLock::acquire);
+        Exception e = assertThrows(Exception.class, () -> other.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof FlywayException);
+
+        fileLock.release();
+        CompletableFuture.runAsync(() -> {
+            fileLock.acquire();
+            fileLock.release();
+        }).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void waitsForStaleLockHeldByAnotherProcess() throws Exception {
+        Path database = directory.resolve("stale.duckdb");
+        Path lockFile = Paths.get(database + ".flyway.lock");
+        Process holder = DuckTestSupport.startJvm(HoldLock.class, lockFile.toString());
+        try {
+            Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+            DuckDBConfigurationExtension configuration = configuration(1);
+            configuration.setLockStaleTimeout(1);
+            DuckFileLock fileLock = DuckFileLock.forDatabase(database.toString(), configuration);
+
+            assertThrows(FlywayException.class, fileLock::acquire);
+            assertTrue(Files.exists(lockFile));
+
+            holder.destroyForcibly().waitFor();
+            fileLock.acquire();
+            fileLock.release();
+        } finally {
+            holder.destroyForcibly();
+        }
+    }
+
+    private static DuckDBConfigurationExtension configuration(long lockTimeout) {
+        DuckDBConfigurationExtension configuration = new DuckDBConfigurationExtension();
+        configuration.setLockTimeout(lockTimeout);
+        configuration.setLockStaleTimeout(0);
+        return configuration;
+    }
+
+    /**
+     * Holds a lock on a file until it is killed.
+     */
+    static final class HoldLock {
+        public static void main(String[] args) throws Exception {
+            FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.lock();
+            System.out.println("ready");
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
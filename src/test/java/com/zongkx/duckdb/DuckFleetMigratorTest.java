@@ -0,0 +1,68 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckFleetMigratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void migratesDatabasesConcurrently() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER, tenant VARCHAR);\n"
+                + "INSERT INTO events VALUES (1, 'shared');");
+        DuckTestSupport.migration(migrations, "V2__tenant.sql",
+                "INSERT INTO events VALUES (2, '${flyway:database}');");
+        DuckTestSupport.migration(migrations, "R__view.sql",
+                "CREATE OR REPLACE VIEW tenants AS SELECT DISTINCT tenant FROM events;");
+        DuckTestSupport.migration(migrations, "afterMigrate.sql", "UPDATE events SET id = id * 10 WHERE id = 1;");
+        List<Path> databases = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            databases.add(directory.resolve("tenant" + i + ".duckdb"));
+        }
+        Path failing = databases.get(2);
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(failing));
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE events (id INTEGER)");
+        }
+        Flyway flyway = Flyway.configure()
+                .locations("filesystem:" + migrations)
+                .configuration(Collections.singletonMap("flyway.duckdb.fleetParallelism", "3"))
+                .load();
+
+        DuckFleetReport report = new DuckFleetMigrator(flyway).migrate(databases);
+
+        assertEquals(5, report.getResults().size());
+        assertEquals(1, report.getFailures().size());
+        assertEquals(failing, report.getFailures().get(0).getDatabase());
+        assertEquals(12, report.getMigrationsExecuted());
+        assertTrue(report.format().startsWith("Migrated 4 of 5 databases with 12 migrations"), report.format());
+        for (Path database : databases) {
+            if (database.equals(failing)) {
+                assertEquals("0", DuckTestSupport.queryForString(database,
+                        "SELECT count(*) FROM duckdb_tables() WHERE table_name = 'flyway_schema_history'"));
+                assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+                continue;
+            }
+            String tenant = database.getFileName().toString().replace(".duckdb", "");
+            assertEquals("1,2,R", DuckTestSupport.queryForString(database, "SELECT string_agg(coalesce(version, 'R'),"
+                    + " ',' ORDER BY installed_rank) FROM flyway_schema_history WHERE success"));
+            assertEquals("10:shared,2:" + tenant, DuckTestSupport.queryForString(database,
+                    "SELECT string_agg(id || ':' || tenant, ',' ORDER BY id DESC) FROM events"));
+            assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM tenants"));
+        }
+    }
+}
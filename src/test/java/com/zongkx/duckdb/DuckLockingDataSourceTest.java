@@ -0,0 +1,90 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckLockingDataSourceTest {
+    private static final long HOLD_MILLIS = 3000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resolvesDatabaseFileOfUrl() {
+        assertEquals("/data/app.duckdb", DuckLockingDataSource.getDatabasePath("jdbc:duckdb:/data/app.duckdb?threads=4"));
+        assertNull(DuckLockingDataSource.getDatabasePath("jdbc:duckdb:"));
+        assertNull(DuckLockingDataSource.getDatabasePath("jdbc:duckdb::memory:test"));
+        assertNull(DuckLockingDataSource.getDatabasePath("jdbc:duckdb:md:analytics"));
+        assertNull(DuckLockingDataSource.getDatabasePath("jdbc:postgresql://localhost/app"));
+    }
+
+    @Test
+    void migratesThroughLockingDataSource() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("locked.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        FluentConfiguration configuration = DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.lockTimeout", "600"));
+        configuration.dataSource(DuckLockingDataSource.create(configuration));
+
+        assertEquals(1, configuration.load().migrate().migrationsExecuted);
+        assertEquals("1", DuckTestSupport.queryForString(database, "SELECT count(*) FROM flyway_schema_history"));
+    }
+
+    @Test
+    void waitsForAnotherProcessBeforeOpening() throws Exception {
+        Path database = directory.resolve("shared.duckdb");
+        Process holder = DuckTestSupport.startJvm(HoldDatabase.class, database.toString());
+        try {
+            // DuckDB itself refuses a second process straight away
+            assertThrows(SQLException.class, () -> DriverManager.getConnection(DuckTestSupport.url(database)).close());
+
+            long started = System.nanoTime();
+            try (Connection connection = dataSource(database).getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE after_holder (id INTEGER)");
+            }
+            assertTrue(System.nanoTime() - started > HOLD_MILLIS / 2 * 1_000_000);
+            assertEquals(0, holder.waitFor());
+        } finally {
+            holder.destroyForcibly();
+        }
+    }
+
+    private static DataSource dataSource(Path database) {
+        FluentConfiguration configuration = Flyway.configure()
+                .dataSource(DuckTestSupport.url(database), null, null)
+                .configuration(Collections.singletonMap("flyway.duckdb.lockTimeout", "600"));
+        return DuckLockingDataSource.create(configuration);
+    }
+
+    /**
+     * Opens the database through a locking data source and holds it open for a while.
+     */
+    static final class HoldDatabase {
+        public static void main(String[] args) throws Exception {
+            try (Connection connection = dataSource(Paths.get(args[0])).getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE holder (id INTEGER)");
+                System.out.println("ready");
+                Thread.sleep(HOLD_MILLIS);
+            }
+        }
+    }
+}
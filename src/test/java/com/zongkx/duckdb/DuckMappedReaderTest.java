@@ -0,0 +1,72 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckMappedReaderTest {
+    private static final String TEXT = "SELECT 'aé€😀b';\n-- üß 🦆\n";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void decodesCharactersSplitAcrossWindows() throws Exception {
+        Path file = write("split.sql", TEXT);
+
+        for (int windowSize = 1; windowSize <= 8; windowSize++) {
+            assertEquals(TEXT, readAll(file, windowSize, 3), "window size " + windowSize);
+            assertEquals(TEXT, readAll(file, windowSize, 1), "window size " + windowSize);
+        }
+    }
+
+    @Test
+    void readsSurrogatePairOneCharAtATime() throws Exception {
+        Path file = write("pair.sql", "😀");
+
+        try (Reader reader = open(file, 2)) {
+            assertEquals(0xd83d, reader.read());
+            assertEquals(0xde00, reader.read());
+            assertEquals(-1, reader.read());
+        }
+    }
+
+    @Test
+    void readsEmptyFile() throws Exception {
+        Path file = write("empty.sql", "");
+
+        try (Reader reader = open(file, 4)) {
+            assertEquals(-1, reader.read());
+            assertEquals(-1, reader.read(new char[8], 0, 8));
+        }
+    }
+
+    private Path write(String filename, String text) throws IOException {
+        return Files.write(directory.resolve(filename), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Reader open(Path file, long windowSize) throws IOException {
+        return new DuckMappedReader(FileChannel.open(file, StandardOpenOption.READ), StandardCharsets.UTF_8, windowSize);
+    }
+
+    private static String readAll(Path file, long windowSize, int bufferSize) throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (Reader reader = open(file, windowSize)) {
+            char[] buffer = new char[bufferSize];
+            int count;
+            while ((count = reader.read(buffer, 0, bufferSize)) >= 0) {
+                text.append(buffer, 0, count);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.zongkx.duckdb;
+
+import org.duckdb.DuckDBConnection;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckMetadataCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsObjectsUntilInvalidated() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:" + directory.resolve("cache.duckdb"));
+             Statement statement = connection.createStatement()) {
+            DuckMetadataCache cache = new DuckMetadataCache(new JdbcTemplate(connection, new DuckDatabaseType()), 0);
+            assertFalse(cache.tableExists("cache", "main", "events"));
+
+            statement.execute("CREATE TABLE events (id INTEGER)");
+            assertFalse(cache.tableExists("cache", "main", "events"));
+
+            cache.invalidate("cache", "main");
+            assertTrue(cache.tableExists("cache", "main", "events"));
+        }
+    }
+
+    @Test
+    void invalidatesEveryCacheOfTheDatabaseFile() throws Exception {
+        String url = "jdbc:duckdb:" + directory.resolve("shared.duckdb");
+        try (Connection connection = DriverManager.getConnection(url);
+             Connection other = ((DuckDBConnection) connection).duplicate();
+             Statement statement = other.createStatement()) {
+            DuckMetadataCache cache = new DuckMetadataCache(new JdbcTemplate(connection, new DuckDatabaseType()), 0);
+            assertFalse(cache.tableExists("shared", "main", "events"));
+
+            statement.execute("CREATE TABLE events (id INTEGER)");
+            DuckMetadataCache.invalidate(other);
+            assertTrue(cache.tableExists("shared", "main", "events"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckMigrationFootprintTest {
+    private static DuckMigrationFootprint analyze(String sql) {
+        return DuckMigrationFootprint.analyze(sql, "main", Collections.<String>emptySet());
+    }
+
+    @Test
+    void attributesStatementsToTables() {
+        DuckMigrationFootprint orders = analyze("CREATE TABLE orders (id INTEGER);\n"
+                + "INSERT INTO orders SELECT id FROM read_parquet('orders.parquet');");
+        DuckMigrationFootprint users = analyze("ALTER TABLE users ADD COLUMN name VARCHAR;\n"
+                + "UPDATE users SET name = 'x' WHERE id IN (1, 2);");
+        DuckMigrationFootprint report = analyze("INSERT INTO report SELECT o.id FROM orders o JOIN items i ON i.id = o.id;");
+
+        assertFalse(orders.isBarrier());
+        assertFalse(orders.conflictsWith(users));
+        assertTrue(report.conflictsWith(orders));
+        assertFalse(report.conflictsWith(users));
+        assertEquals("reads=[], writes=[main.orders]", analyze("DELETE FROM orders;").toString());
+    }
+
+    @Test
+    void treatsUnrecognisedStatementsAsBarriers() {
+        assertTrue(analyze("TRUNCATE orders;").isBarrier());
+        assertTrue(analyze("SET threads = 4;").isBarrier());
+        assertTrue(analyze("CREATE VIEW recent AS SELECT * FROM orders;").isBarrier());
+        assertTrue(analyze("CREATE MACRO twice(x) AS x * 2;").isBarrier());
+        assertTrue(analyze("COMMENT ON COLUMN orders.id IS 'key';").isBarrier());
+        assertTrue(analyze("INSERT INTO report SELECT * FROM orders, items WHERE orders.id = items.id;").isBarrier());
+        assertFalse(analyze("INSERT INTO report SELECT extract(year FROM ts), id FROM orders;").isBarrier());
+        assertFalse(analyze("CREATE UNIQUE INDEX orders_id ON orders (id);").isBarrier());
+    }
+
+    @Test
+    void treatsViewsAndMacrosAsBarriers() {
+        Set<String> views = new HashSet<>(Collections.singleton("main.existing"));
+        DuckMigrationFootprint.collectViews("CREATE OR REPLACE VIEW IF NOT EXISTS recent AS SELECT 1;", "main", views);
+
+        assertEquals(new HashSet<>(Arrays.asList("main.existing", "main.recent")), views);
+        assertTrue(DuckMigrationFootprint.analyze("INSERT INTO report SELECT * FROM recent;", "main", views).isBarrier());
+        assertTrue(DuckMigrationFootprint.analyze("SELECT existing(1);", "main", views).isBarrier());
+        assertFalse(DuckMigrationFootprint.analyze("INSERT INTO report SELECT * FROM orders;", "main", views).isBarrier());
+    }
+}
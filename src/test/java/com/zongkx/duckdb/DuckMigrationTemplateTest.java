@@ -0,0 +1,76 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckMigrationTemplateTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void clonesMigratedTemplate() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);\n"
+                + "INSERT INTO events VALUES (1), (2);");
+        Flyway flyway = configure(migrations, directory.resolve("unused.duckdb"));
+        DuckMigrationTemplate template = new DuckMigrationTemplate(flyway);
+
+        Path first = directory.resolve("first.duckdb");
+        template.cloneTo(first);
+        Path second = directory.resolve("second.duckdb");
+        new DuckMigrationTemplate(flyway).cloneTo(second);
+
+        assertEquals(template.getTemplate(), new DuckMigrationTemplate(flyway).getTemplate());
+        assertEquals("2", DuckTestSupport.queryForString(second, "SELECT count(*) FROM events"));
+        assertEquals(0, configure(migrations, first).migrate().migrationsExecuted);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:duckdb:")) {
+            template.cloneInto(connection);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM events")) {
+                assertTrue(resultSet.next());
+                assertEquals(2, resultSet.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void rebuildsTemplateWhenCallbackChanges() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        DuckTestSupport.migration(migrations, "afterMigrate.sql", "INSERT INTO events VALUES (1);");
+        Flyway flyway = configure(migrations, directory.resolve("unused.duckdb"));
+        Path before = new DuckMigrationTemplate(flyway).getTemplate();
+
+        DuckTestSupport.migration(migrations, "afterMigrate.sql", "INSERT INTO events VALUES (1), (2);");
+        DuckMigrationTemplate template = new DuckMigrationTemplate(flyway);
+        Path after = template.getTemplate();
+        Path clone = directory.resolve("clone.duckdb");
+        template.cloneTo(clone);
+
+        assertNotEquals(before, after);
+        assertFalse(Files.exists(before));
+        assertEquals("2", DuckTestSupport.queryForString(clone, "SELECT count(*) FROM events"));
+    }
+
+    private Flyway configure(Path migrations, Path database) {
+        return DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.templateDirectory",
+                        directory.resolve("templates").toString()))
+                .load();
+    }
+}
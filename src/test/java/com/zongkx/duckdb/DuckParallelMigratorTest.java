@@ -0,0 +1,84 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DuckParallelMigratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsHistoryInRankOrder() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("parallel.duckdb");
+        DuckTestSupport.migration(migrations, "V1__init.sql", "CREATE TABLE base (id INTEGER);");
+        for (int i = 2; i <= 8; i++) {
+            DuckTestSupport.migration(migrations, "V" + i + "__table.sql",
+                    "CREATE TABLE t" + i + " AS SELECT range AS id FROM range(" + i + ");");
+        }
+        DuckTestSupport.migration(migrations, "V9__view.sql", "CREATE VIEW total AS SELECT count(*) AS n FROM t8;");
+        DuckTestSupport.migration(migrations, "V10__truncate.sql", "TRUNCATE t2;");
+
+        assertEquals(10, new DuckParallelMigrator(parallel(migrations, database).load()).migrate());
+
+        assertEquals("1,2,3,4,5,6,7,8,9,10", DuckTestSupport.queryForString(database,
+                "SELECT string_agg(version, ',' ORDER BY installed_rank) FROM flyway_schema_history"));
+        assertEquals("8", DuckTestSupport.queryForString(database, "SELECT n FROM total"));
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM t2"));
+    }
+
+    @Test
+    void validatesAppliedMigrations() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("validate.duckdb");
+        DuckTestSupport.migration(migrations, "V1__init.sql", "CREATE TABLE base (id INTEGER);");
+        DuckTestSupport.migration(migrations, "V2__other.sql", "CREATE TABLE other (id INTEGER);");
+        new DuckParallelMigrator(parallel(migrations, database).load()).migrate();
+
+        DuckTestSupport.migration(migrations, "V1__init.sql", "CREATE TABLE base (id BIGINT);");
+        DuckTestSupport.migration(migrations, "V3__more.sql", "CREATE TABLE more (id INTEGER);");
+        Flyway flyway = parallel(migrations, database).load();
+        assertThrows(FlywayException.class, () -> new DuckParallelMigrator(flyway).migrate());
+        assertEquals("0", DuckTestSupport.queryForString(database,
+                "SELECT count(*) FROM duckdb_tables() WHERE table_name = 'more'"));
+
+        assertEquals(1, new DuckParallelMigrator(parallel(migrations, database).validateOnMigrate(false).load()).migrate());
+    }
+
+    @Test
+    void migratesIntoDefaultSchema() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("schema.duckdb");
+        DuckTestSupport.migration(migrations, "V1__a.sql", "CREATE TABLE a (id INTEGER);");
+        DuckTestSupport.migration(migrations, "V2__b.sql", "CREATE TABLE b (id INTEGER);");
+        DuckTestSupport.migration(migrations, "V3__c.sql", "CREATE TABLE c (id INTEGER);");
+        // The plugin does not create schemas
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(database));
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA app");
+        }
+
+        assertEquals(3, new DuckParallelMigrator(parallel(migrations, database).defaultSchema("app").load()).migrate());
+
+        assertEquals("app.a,app.b,app.c", DuckTestSupport.queryForString(database,
+                "SELECT string_agg(schema_name || '.' || table_name, ',' ORDER BY table_name) FROM duckdb_tables()"
+                        + " WHERE table_name IN ('a', 'b', 'c')"));
+    }
+
+    private static FluentConfiguration parallel(Path migrations, Path database) {
+        return DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.parallelism", "3"));
+    }
+}
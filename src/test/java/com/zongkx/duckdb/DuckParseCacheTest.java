@@ -0,0 +1,106 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.internal.resource.filesystem.FileSystemResource;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckParseCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysStatementsOfParsedScripts() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path cache = directory.resolve("cache");
+        Path script = DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER, name VARCHAR);\n"
+                + "COPY events FROM STDIN;\n"
+                + "1\tone\n"
+                + "\\.\n"
+                + "INSERT INTO events VALUES (2, 'two');\n");
+        DuckParseCache parseCache = DuckParseCache.forConfiguration(configure(migrations, directory.resolve("first.duckdb"), cache)
+                .load().getConfiguration());
+        assertFalse(parseCache.open(resource(migrations, script)).isCached());
+
+        configure(migrations, directory.resolve("first.duckdb"), cache).load().migrate();
+
+        DuckParseCache.Entry entry = parseCache.open(resource(migrations, script));
+        assertTrue(entry.isCached());
+        List<String> statements = new ArrayList<>();
+        for (SqlStatement statement = entry.next(null); statement != null; statement = entry.next(null)) {
+            statements.add(statement.getSql());
+        }
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(1).startsWith("COPY events FROM STDIN"));
+
+        Path second = directory.resolve("second.duckdb");
+        assertEquals(1, configure(migrations, second, cache).load().migrate().migrationsExecuted);
+        assertEquals("2", DuckTestSupport.queryForString(second, "SELECT count(*) FROM events"));
+        assertEquals("one", DuckTestSupport.queryForString(second, "SELECT name FROM events WHERE id = 1"));
+    }
+
+    @Test
+    void parsesAgainWhenEntryIsUnreadable() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path cache = directory.resolve("cache");
+        Path script = DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);\n"
+                + "INSERT INTO events VALUES (1);");
+        configure(migrations, directory.resolve("first.duckdb"), cache).load().migrate();
+        List<Path> entries = entries(cache);
+        assertFalse(entries.isEmpty());
+        for (Path entry : entries) {
+            Files.write(entry, "not an entry".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Path second = directory.resolve("second.duckdb");
+        Flyway flyway = configure(migrations, second, cache).load();
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+        assertEquals("1", DuckTestSupport.queryForString(second, "SELECT count(*) FROM events"));
+        assertTrue(DuckParseCache.forConfiguration(flyway.getConfiguration()).open(resource(migrations, script)).isCached());
+    }
+
+    @Test
+    void skipsScriptsWithBuiltInPlaceholders() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path cache = directory.resolve("cache");
+        Path script = DuckTestSupport.migration(migrations, "V1__create.sql",
+                "CREATE TABLE events AS SELECT '${flyway:timestamp}' AS created;");
+        Flyway flyway = configure(migrations, directory.resolve("placeholder.duckdb"), cache).load();
+        flyway.migrate();
+
+        assertNull(DuckParseCache.forConfiguration(flyway.getConfiguration()).open(resource(migrations, script)));
+    }
+
+    private static FluentConfiguration configure(Path migrations, Path database, Path cache) {
+        return DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.parseCache", cache.toString()));
+    }
+
+    private static FileSystemResource resource(Path migrations, Path script) {
+        return new FileSystemResource(new Location("filesystem:" + migrations), script.toString(),
+                StandardCharsets.UTF_8, false);
+    }
+
+    private static List<Path> entries(Path cache) throws Exception {
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.filter(file -> file.toString().endsWith(".parsed")).collect(Collectors.toList());
+        }
+    }
+}
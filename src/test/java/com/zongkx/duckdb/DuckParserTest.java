@@ -0,0 +1,47 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckParserTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void executesAlterStatements() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("alter.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);\n"
+                + "INSERT INTO events VALUES (1), (2);");
+        DuckTestSupport.migration(migrations, "V2__alter.sql", "ALTER TABLE events ADD COLUMN name VARCHAR DEFAULT 'x';\n"
+                + "alter table events rename column id to event_id;\n"
+                + "ALTER TABLE events ALTER COLUMN event_id TYPE BIGINT;\n"
+                + "ALTER TABLE events RENAME TO event_log;");
+
+        assertEquals(2, DuckTestSupport.configure(migrations, database).load().migrate().migrationsExecuted);
+
+        assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM event_log WHERE name = 'x'"));
+        assertEquals("BIGINT", DuckTestSupport.queryForString(database,
+                "SELECT data_type FROM duckdb_columns() WHERE table_name = 'event_log' AND column_name = 'event_id'"));
+    }
+
+    @Test
+    void keepsStatementsAfterCopyFromStdin() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("copy.duckdb");
+        DuckTestSupport.migration(migrations, "V1__copy.sql", "CREATE TABLE events (id INTEGER, name VARCHAR);\n"
+                + "COPY events FROM STDIN;\n"
+                + "1\tone\n"
+                + "2\ttwo\n"
+                + "\\.\n"
+                + "INSERT INTO events VALUES (3, 'three');\n");
+
+        DuckTestSupport.configure(migrations, database).load().migrate();
+
+        assertEquals("3", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.CleanResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckRecreateCleanerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replacesFileKeepingManagedSchemas() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("recreate.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE SCHEMA IF NOT EXISTS staging;\n"
+                + "CREATE TABLE main.events AS SELECT range AS id FROM range(200000);\n"
+                + "CREATE TABLE staging.events (id INTEGER);");
+        Flyway flyway = configure(migrations, database).schemas("main", "staging").load();
+        flyway.migrate();
+        long size = Files.size(database);
+
+        CleanResult result = new DuckRecreateCleaner(flyway).clean();
+
+        assertEquals(Arrays.asList("main", "staging"), result.schemasCleaned);
+        assertFalse(Files.exists(Paths.get(database + ".recreate")));
+        assertFalse(Files.exists(Paths.get(database + ".wal.aside")));
+        assertTrue(Files.size(database) < size);
+        assertEquals("0", DuckTestSupport.queryForString(database,
+                "SELECT count(*) FROM duckdb_tables() WHERE database_name = current_database()"));
+        assertEquals("1", DuckTestSupport.queryForString(database,
+                "SELECT count(*) FROM duckdb_schemas() WHERE database_name = current_database()"
+                        + " AND schema_name = 'staging'"));
+        assertEquals(1, flyway.migrate().migrationsExecuted);
+    }
+
+    @Test
+    void dropsObjectsWhenSchemaIsNotManaged() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("unmanaged.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(database));
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA other");
+            statement.execute("CREATE TABLE other.kept (id INTEGER)");
+        }
+        Flyway flyway = configure(migrations, database).load();
+        flyway.migrate();
+
+        new DuckRecreateCleaner(flyway).clean();
+
+        assertEquals("1", DuckTestSupport.queryForString(database,
+                "SELECT count(*) FROM duckdb_tables() WHERE database_name = current_database()"));
+        assertEquals("kept", DuckTestSupport.queryForString(database,
+                "SELECT table_name FROM duckdb_tables() WHERE database_name = current_database()"));
+    }
+
+    @Test
+    void dropsObjectsOfInMemoryDatabase() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);");
+        Flyway flyway = Flyway.configure()
+                .dataSource("jdbc:duckdb:", null, null)
+                .locations("filesystem:" + migrations)
+                .cleanDisabled(false)
+                .configuration(Collections.singletonMap("flyway.duckdb.cleanMode", "RECREATE"))
+                .load();
+        flyway.migrate();
+
+        CleanResult result = new DuckRecreateCleaner(flyway).clean();
+
+        assertEquals(Collections.singletonList("main"), result.schemasCleaned);
+    }
+
+    private static FluentConfiguration configure(Path migrations, Path database) {
+        return DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.cleanMode", "RECREATE"));
+    }
+}
@@ -0,0 +1,44 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckResourceProviderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsChecksumsOfFlywaysOwnProvider() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("provided.duckdb");
+        // A byte order mark, CRLF line endings and characters of up to four bytes
+        DuckTestSupport.migration(migrations, "V1__create.sql",
+                "﻿CREATE TABLE café (id INTEGER);\r\n-- 😀\r\nINSERT INTO café VALUES (1);\n");
+        DuckTestSupport.migration(migrations, "R__view.sql", "CREATE OR REPLACE VIEW ids AS SELECT id FROM café;");
+        FluentConfiguration configuration = DuckTestSupport.configure(migrations, database);
+        List<Integer> checksums = checksums(configuration);
+
+        DuckResourceProvider resourceProvider = DuckResourceProvider.create(configuration);
+        configuration.resourceProvider(resourceProvider);
+
+        assertTrue(resourceProvider.getResource("V1__create.sql") instanceof DuckMappedResource);
+        assertEquals(2, checksums.size());
+        assertEquals(checksums, checksums(configuration));
+    }
+
+    private static List<Integer> checksums(FluentConfiguration configuration) {
+        return Arrays.stream(configuration.load().info().all())
+                .map(MigrationInfo::getChecksum)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,43 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckSessionSettingsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresDefaultsAndPreviousValues() throws Exception {
+        try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(directory.resolve("settings.duckdb")))) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(connection, new DuckDatabaseType());
+            jdbcTemplate.execute("SET threads = 2");
+            String memoryLimit = setting(jdbcTemplate, "memory_limit");
+            String maxTempDirectorySize = setting(jdbcTemplate, "max_temp_directory_size");
+
+            DuckDBConfigurationExtension duckConfiguration = new DuckDBConfigurationExtension();
+            duckConfiguration.setThreads(3);
+            duckConfiguration.setMemoryLimit("100MB");
+            duckConfiguration.setMaxTempDirectorySize("1GB");
+            DuckSessionSettings sessionSettings = DuckSessionSettings.apply(jdbcTemplate, duckConfiguration);
+            assertEquals("3", setting(jdbcTemplate, "threads"));
+            assertEquals("953.6 MiB", setting(jdbcTemplate, "max_temp_directory_size"));
+
+            sessionSettings.restore();
+            assertEquals("2", setting(jdbcTemplate, "threads"));
+            assertEquals(memoryLimit, setting(jdbcTemplate, "memory_limit"));
+            assertEquals(maxTempDirectorySize, setting(jdbcTemplate, "max_temp_directory_size"));
+        }
+    }
+
+    private static String setting(JdbcTemplate jdbcTemplate, String name) throws Exception {
+        return jdbcTemplate.queryForString("SELECT current_setting('" + name + "')");
+    }
+}
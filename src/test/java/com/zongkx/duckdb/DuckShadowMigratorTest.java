@@ -0,0 +1,120 @@
+package com.zongkx.duckdb;
+
+import org.duckdb.DuckDBDriver;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckShadowMigratorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void derivesShadowUrlFromOriginalUrl() {
+        Path shadow = Paths.get("/data/app.duckdb.shadow");
+        assertEquals("jdbc:duckdb:/data/app.duckdb.shadow;threads=4",
+                DuckShadowMigrator.getShadowUrl("jdbc:duckdb:/data/app.duckdb;threads=4", "/data/app.duckdb", shadow));
+        assertEquals("jdbc:duckdb:/data/app.duckdb.shadow?threads=4",
+                DuckShadowMigrator.getShadowUrl("jdbc:duckdb:/data/app.duckdb?threads=4", "/data/app.duckdb", shadow));
+        assertEquals("jdbc:duckdb:/data/app.duckdb.shadow",
+                DuckShadowMigrator.getShadowUrl(null, "/data/app.duckdb", shadow));
+    }
+
+    @Test
+    void migratesWhileReaderIsAttached() throws Exception {
+        migrateWhileReaderIsAttached("DATABASE");
+    }
+
+    @Test
+    void copiesFileWhileReaderIsAttached() throws Exception {
+        migrateWhileReaderIsAttached("FILE");
+    }
+
+    private void migrateWhileReaderIsAttached(String shadowCopy) throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("shadow.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER);\n"
+                + "INSERT INTO events VALUES (1);");
+        DuckTestSupport.configure(migrations, database).load().migrate();
+        DuckTestSupport.migration(migrations, "V2__add.sql", "CREATE TABLE users (id INTEGER);");
+
+        Process reader = DuckTestSupport.startJvm(ReadOnly.class, database.toString());
+        try {
+            Flyway flyway = DuckTestSupport.configure(migrations, database)
+                    .configuration(Collections.singletonMap("flyway.duckdb.shadowCopy", shadowCopy))
+                    .load();
+            assertEquals(1, new DuckShadowMigrator(flyway).migrate());
+        } finally {
+            reader.destroyForcibly().waitFor();
+        }
+
+        assertEquals("2", DuckTestSupport.queryForString(database, "SELECT count(*) FROM flyway_schema_history"));
+        assertEquals("1", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM users"));
+    }
+
+    @Test
+    void keepsWalOfOriginalWhenSwapFails() throws Exception {
+        Path database = directory.resolve("failed.duckdb");
+        Process writer = DuckTestSupport.startJvm(Writer.class, database.toString());
+        writer.destroyForcibly().waitFor();
+        Path wal = Paths.get(database + ".wal");
+        assertTrue(Files.size(wal) > 0);
+
+        assertThrows(NoSuchFileException.class,
+                () -> DuckShadowMigrator.swap(directory.resolve("missing.duckdb.shadow"), database));
+
+        assertTrue(Files.size(wal) > 0);
+        assertFalse(Files.exists(Paths.get(database + ".wal.aside")));
+        assertEquals("1", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+    }
+
+    /**
+     * Commits a row that is only in the WAL of the database and keeps it open until it is killed.
+     */
+    static final class Writer {
+        public static void main(String[] args) throws Exception {
+            try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(Paths.get(args[0])));
+                 Statement statement = connection.createStatement()) {
+                statement.execute("SET checkpoint_threshold = '1GB'");
+                statement.execute("CREATE TABLE events (id INTEGER)");
+                statement.execute("INSERT INTO events VALUES (1)");
+                System.out.println("ready");
+                Thread.sleep(60_000);
+            }
+        }
+    }
+
+    /**
+     * Reads the database read-only and keeps it open until it is killed.
+     */
+    static final class ReadOnly {
+        public static void main(String[] args) throws Exception {
+            Properties properties = new Properties();
+            properties.setProperty(DuckDBDriver.DUCKDB_READONLY_PROPERTY, "true");
+            try (Connection connection = DriverManager.getConnection(DuckTestSupport.url(Paths.get(args[0])), properties);
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT count(*) FROM events")) {
+                resultSet.next();
+                System.out.println("ready");
+                Thread.sleep(60_000);
+            }
+        }
+    }
+}
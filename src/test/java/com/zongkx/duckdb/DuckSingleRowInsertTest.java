@@ -0,0 +1,36 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DuckSingleRowInsertTest {
+    @Test
+    void parsesLiterals() {
+        DuckSingleRowInsert insert = DuckSingleRowInsert.parse(
+                "insert into analytics.\"Events\" values (1, -2.5e3, +.5, 'it''s', NULL, TRUE);");
+
+        assertEquals("analytics", insert.getSchema());
+        assertEquals("Events", insert.getTable());
+        assertEquals(Arrays.asList("1", "-2.5e3", "+.5", "it's", null, "true"), insert.getValues());
+    }
+
+    @Test
+    void rejectsSignsWithoutDigits() {
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (-)"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (+, 1)"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (-.)"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (1e)"));
+    }
+
+    @Test
+    void rejectsExpressions() {
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (1 + 2)"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (now())"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events (id) VALUES (1)"));
+        assertNull(DuckSingleRowInsert.parse("INSERT INTO events VALUES (1), (2)"));
+    }
+}
@@ -0,0 +1,60 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DuckSqlScriptExecutorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void executesStatementsInBatches() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("batch.duckdb");
+        StringBuilder script = new StringBuilder("CREATE TABLE events (id INTEGER, name VARCHAR);\n");
+        for (int i = 0; i < 10; i++) {
+            script.append("INSERT INTO events VALUES (").append(i).append(", 'event ").append(i).append("');\n");
+        }
+        script.append("UPDATE events SET name = 'updated' WHERE id < 5;\n")
+                .append("DELETE FROM events WHERE id = 9;\n")
+                .append("CREATE VIEW updated AS SELECT * FROM events WHERE name = 'updated';\n")
+                .append("INSERT INTO events SELECT id + 100, name FROM updated;\n");
+        DuckTestSupport.migration(migrations, "V1__batch.sql", script.toString());
+
+        DuckTestSupport.configure(migrations, database).configuration(batchOf(3)).load().migrate();
+
+        assertEquals("14", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+        assertEquals("10", DuckTestSupport.queryForString(database,
+                "SELECT count(*) FROM events WHERE name = 'updated'"));
+    }
+
+    @Test
+    void rollsBackFailedBatch() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("failed.duckdb");
+        DuckTestSupport.migration(migrations, "V1__create.sql", "CREATE TABLE events (id INTEGER PRIMARY KEY);");
+        DuckTestSupport.migration(migrations, "V2__insert.sql", "INSERT INTO events VALUES (1);\n"
+                + "INSERT INTO events VALUES (2);\n"
+                + "INSERT INTO events VALUES (1);\n");
+
+        assertThrows(FlywayException.class,
+                () -> DuckTestSupport.configure(migrations, database).configuration(batchOf(2)).load().migrate());
+
+        assertEquals("0", DuckTestSupport.queryForString(database, "SELECT count(*) FROM events"));
+    }
+
+    private static Map<String, String> batchOf(int size) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("flyway.duckdb.batch", "true");
+        properties.put("flyway.duckdb.batchSize", String.valueOf(size));
+        return properties;
+    }
+}
@@ -0,0 +1,85 @@
+package com.zongkx.duckdb;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@link DuckStatementClassifier} against the list of regexes {@code DuckParser} matched every statement with before,
+ * on the leading keywords of typical statements, in classified statements per microsecond. It lives in the package of
+ * the classifier, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DuckStatementClassifierBenchmark {
+    private static final Pattern COPY_FROM_STDIN_REGEX = Pattern.compile("^COPY( .*)? FROM STDIN");
+    private static final Pattern CREATE_DATABASE_TABLESPACE_SUBSCRIPTION_REGEX = Pattern.compile("^(CREATE|DROP) (DATABASE|TABLESPACE|SUBSCRIPTION)");
+    private static final Pattern ALTER_SYSTEM_REGEX = Pattern.compile("^ALTER SYSTEM");
+    private static final Pattern CREATE_INDEX_CONCURRENTLY_REGEX = Pattern.compile("^(CREATE|DROP)( UNIQUE)? INDEX CONCURRENTLY");
+    private static final Pattern REINDEX_REGEX = Pattern.compile("^REINDEX( VERBOSE)? (SCHEMA|DATABASE|SYSTEM)");
+    private static final Pattern VACUUM_REGEX = Pattern.compile("^VACUUM");
+    private static final Pattern DISCARD_ALL_REGEX = Pattern.compile("^DISCARD ALL");
+    private static final Pattern ALTER_TYPE_ADD_VALUE_REGEX = Pattern.compile("^ALTER TYPE( .*)? ADD VALUE");
+    private static final Set<String> DDL_KEYWORDS = new HashSet<>(Arrays.asList(
+            "CREATE", "DROP", "ALTER", "ATTACH", "DETACH", "IMPORT", "COMMENT"));
+
+    /**
+     * Simplified statements as the parser sees them, weighted towards the inserts and DDL of typical migrations.
+     */
+    private final String[] statements = {
+            "INSERT INTO", "INSERT INTO", "INSERT INTO", "UPDATE", "DELETE FROM",
+            "CREATE TABLE", "CREATE TABLE", "CREATE UNIQUE INDEX", "CREATE VIEW", "CREATE OR REPLACE MACRO",
+            "ALTER TABLE", "ALTER TYPE MOOD ADD VALUE", "DROP TABLE", "COMMENT ON TABLE", "ATTACH",
+            "COPY EVENTS FROM STDIN", "CREATE INDEX CONCURRENTLY", "VACUUM", "SELECT", "SET"
+    };
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String statement : statements) {
+            blackhole.consume(COPY_FROM_STDIN_REGEX.matcher(statement).matches());
+            boolean nonTransactional = CREATE_DATABASE_TABLESPACE_SUBSCRIPTION_REGEX.matcher(statement).matches()
+                    || ALTER_SYSTEM_REGEX.matcher(statement).matches()
+                    || CREATE_INDEX_CONCURRENTLY_REGEX.matcher(statement).matches()
+                    || REINDEX_REGEX.matcher(statement).matches()
+                    || VACUUM_REGEX.matcher(statement).matches()
+                    || DISCARD_ALL_REGEX.matcher(statement).matches()
+                    || ALTER_TYPE_ADD_VALUE_REGEX.matcher(statement).matches();
+            blackhole.consume(nonTransactional);
+            String firstKeyword = firstKeyword(statement);
+            blackhole.consume(DDL_KEYWORDS.contains(firstKeyword));
+        }
+    }
+
+    @Benchmark
+    public void keywordSwitch(Blackhole blackhole) {
+        for (String statement : statements) {
+            blackhole.consume(DuckStatementClassifier.isCopyFromStdin(statement));
+            blackhole.consume(DuckStatementClassifier.canExecuteInTransaction(statement));
+            String firstKeyword = firstKeyword(statement);
+            blackhole.consume(DuckStatementClassifier.isDdl(firstKeyword));
+            blackhole.consume(DuckStatementClassifier.isBatchable(firstKeyword));
+        }
+    }
+
+    private static String firstKeyword(String statement) {
+        int space = statement.indexOf(' ');
+        return space < 0 ? statement : statement.substring(0, space);
+    }
+}
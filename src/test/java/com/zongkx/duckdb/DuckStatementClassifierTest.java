@@ -0,0 +1,38 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckStatementClassifierTest {
+    @Test
+    void copyFromStdin() {
+        assertTrue(DuckStatementClassifier.isCopyFromStdin("COPY EVENTS FROM STDIN"));
+        assertFalse(DuckStatementClassifier.isCopyFromStdin("COPY EVENTS FROM 'EVENTS.CSV'"));
+    }
+
+    @Test
+    void statementsOutsideTransactions() {
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("CREATE DATABASE X"));
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("DROP UNIQUE INDEX CONCURRENTLY X"));
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("ALTER SYSTEM SET X"));
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("REINDEX VERBOSE SCHEMA X"));
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("VACUUM"));
+        assertEquals(false, DuckStatementClassifier.canExecuteInTransaction("DISCARD ALL"));
+        assertNull(DuckStatementClassifier.canExecuteInTransaction("ALTER TABLE X ADD COLUMN Y"));
+        assertNull(DuckStatementClassifier.canExecuteInTransaction("CREATE INDEX X"));
+        assertNull(DuckStatementClassifier.canExecuteInTransaction("REINDEX TABLE X"));
+    }
+
+    @Test
+    void ddlAndBatchable() {
+        assertTrue(DuckStatementClassifier.isDdl("ALTER"));
+        assertTrue(DuckStatementClassifier.isDdl("ATTACH"));
+        assertFalse(DuckStatementClassifier.isDdl("INSERT"));
+        assertTrue(DuckStatementClassifier.isBatchable("DELETE"));
+        assertFalse(DuckStatementClassifier.isBatchable("CREATE"));
+    }
+}
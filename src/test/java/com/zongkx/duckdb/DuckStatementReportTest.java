@@ -0,0 +1,73 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuckStatementReportTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsStatementsBatchesAndAppenderRuns() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("instrumented.duckdb");
+        DuckTestSupport.migration(migrations, "V1__seed.sql", "CREATE TABLE events (id INTEGER, name VARCHAR);\n"
+                + "INSERT INTO events VALUES (1, 'a');\n"
+                + "INSERT INTO events VALUES (2, 'b');\n"
+                + "INSERT INTO events VALUES (3, 'c');\n"
+                + "UPDATE events SET name = 'x' WHERE id = 1;\n"
+                + "UPDATE events SET name = 'y' WHERE id > 1;\n"
+                + "DELETE FROM events WHERE id = 3;\n"
+                + "CREATE VIEW named AS SELECT name FROM events;\n");
+        Map<String, String> properties = new HashMap<>();
+        properties.put("flyway.duckdb.instrument", "true");
+        properties.put("flyway.duckdb.slowStatements", "100");
+        properties.put("flyway.duckdb.appender", "true");
+        properties.put("flyway.duckdb.batch", "true");
+        Flyway flyway = DuckTestSupport.configure(migrations, database).configuration(properties).load();
+
+        flyway.migrate();
+
+        DuckStatementReport report = flyway.getConfiguration().getPluginRegister().getPlugin(DuckStatementReport.class);
+        List<DuckStatementRecord> records = report.getSlowest().stream()
+                .filter(record -> "V1__seed.sql".equals(record.getMigration()))
+                .sorted(Comparator.comparingInt(DuckStatementRecord::getLineNumber))
+                .collect(Collectors.toList());
+        assertEquals("1:1:0 2:3:3 5:3:4 8:1:0", records.stream()
+                .map(record -> record.getLineNumber() + ":" + record.getStatementCount() + ":" + record.getRowsAffected())
+                .collect(Collectors.joining(" ")));
+        assertTrue(records.get(1).getSql().startsWith("INSERT INTO events VALUES (1"));
+        assertTrue(records.get(2).getSql().startsWith("UPDATE events SET name = 'x'"));
+        assertFalse(records.get(2).isFailed());
+        assertTrue(report.getStatementCount() >= 8);
+        assertTrue(report.format().contains("V1__seed.sql:2 (3 statements)"), report.format());
+    }
+
+    @Test
+    void keepsOnlySlowestStatements() {
+        DuckStatementReport report = new DuckStatementReport();
+        report.reset(2);
+        for (int i = 1; i <= 5; i++) {
+            report.statementExecuted(new DuckStatementRecord("V1__seed.sql", i, "SELECT " + i, 1, 0,
+                    i * 1_000_000L, false, null));
+        }
+
+        assertEquals(5, report.getStatementCount());
+        assertEquals(15_000_000L, report.getTotalNanos());
+        assertEquals("5,4", report.getSlowest().stream()
+                .map(record -> String.valueOf(record.getLineNumber()))
+                .collect(Collectors.joining(",")));
+    }
+}
@@ -0,0 +1,102 @@
+package com.zongkx.duckdb;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DuckStreamingMigrationTest {
+    private static final int ROWS_PER_STATEMENT = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void migratesStreamedScript() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("stream.duckdb");
+        Files.createDirectories(migrations);
+        long rows = writeScript(migrations.resolve("V1__seed.sql"), 1 << 20);
+
+        migrate(migrations, database);
+
+        assertEquals(String.valueOf(rows), DuckTestSupport.queryForString(database, "SELECT count(*) FROM seed"));
+    }
+
+    /**
+     * Migrates a 2 GB script in a JVM with a 256 MB heap. The size can be changed with {@code -Dduckdb.streamTestSize}.
+     */
+    @Tag("large")
+    @Test
+    void migratesLargeScriptInBoundedHeap() throws Exception {
+        Path migrations = directory.resolve("migrations");
+        Path database = directory.resolve("large.duckdb");
+        Files.createDirectories(migrations);
+        long rows = writeScript(migrations.resolve("V1__seed.sql"), Long.getLong("duckdb.streamTestSize", 2L << 30));
+
+        Process process = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx256m",
+                "-cp", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")),
+                Migrate.class.getName(), migrations.toString(), database.toString())
+                .inheritIO()
+                .start();
+
+        assertEquals(0, process.waitFor());
+        assertEquals(String.valueOf(rows), DuckTestSupport.queryForString(database, "SELECT count(*) FROM seed"));
+    }
+
+    private static void migrate(Path migrations, Path database) {
+        DuckTestSupport.configure(migrations, database)
+                .configuration(Collections.singletonMap("flyway.duckdb.stream", "true"))
+                .load()
+                .migrate();
+    }
+
+    /**
+     * Writes multi-row inserts into {@code seed} until the script has reached the given size.
+     *
+     * @return The number of rows inserted by the script.
+     */
+    private static long writeScript(Path script, long size) throws IOException {
+        long rows = 0;
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(script, StandardCharsets.UTF_8)) {
+            String create = "CREATE TABLE seed (id BIGINT, payload VARCHAR);\n";
+            writer.write(create);
+            written += create.length();
+            StringBuilder statement = new StringBuilder();
+            while (written < size) {
+                statement.setLength(0);
+                statement.append("INSERT INTO seed VALUES ");
+                for (int i = 0; i < ROWS_PER_STATEMENT; i++) {
+                    statement.append(i == 0 ? "" : ", ").append('(').append(rows++)
+                            .append(", 'streamed row payload streamed row payload streamed row payload')");
+                }
+                statement.append(";\n");
+                writer.write(statement.toString());
+                written += statement.length();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Runs the migration in the JVM with the bounded heap. Any failure, including running out of memory, ends it
+     * with a non-zero exit code.
+     */
+    static final class Migrate {
+        public static void main(String[] args) {
+            migrate(Paths.get(args[0]), Paths.get(args[1]));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.zongkx.duckdb;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Writes migrations to a directory and configures Flyway to run them against a DuckDB database file.
+ */
+final class DuckTestSupport {
+    private DuckTestSupport() {
+    }
+
+    static Path migration(Path directory, String filename, String sql) throws IOException {
+        Files.createDirectories(directory);
+        return Files.write(directory.resolve(filename), sql.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String url(Path database) {
+        return "jdbc:duckdb:" + database;
+    }
+
+    static FluentConfiguration configure(Path migrations, Path database) {
+        return Flyway.configure()
+                .dataSource(url(database), null, null)
+                .locations("filesystem:" + migrations)
+                .cleanDisabled(false);
+    }
+
+    /**
+     * Starts the main method of a class in another JVM on the test class path and waits until it has printed a line.
+     */
+    static Process startJvm(Class<?> mainClass, String... args) throws IOException {
+        String[] command = new String[args.length + 4];
+        command[0] = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        command[1] = "-cp";
+        command[2] = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        command[3] = mainClass.getName();
+        System.arraycopy(args, 0, command, 4, args.length);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (!"ready".equals(line)) {
+            process.destroyForcibly();
+            throw new IllegalStateException(mainClass.getName() + " failed to start: " + line);
+        }
+        return process;
+    }
+
+    static String queryForString(Path database, String query) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(database));
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(query)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+}
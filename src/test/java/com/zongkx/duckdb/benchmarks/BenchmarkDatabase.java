@@ -0,0 +1,176 @@
+package com.zongkx.duckdb.benchmarks;
+
+import com.zongkx.duckdb.DuckDBConfigurationExtension;
+import com.zongkx.duckdb.DuckDBDatabase;
+import org.duckdb.DuckDBConnection;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.internal.jdbc.JdbcConnectionFactory;
+import org.flywaydb.core.internal.parser.Parser;
+import org.flywaydb.core.internal.parser.ParsingContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory or file-backed DuckDB database for the benchmarks. Every connection handed out by
+ * {@link #getDataSource()} is a duplicate of one root connection, so that an in-memory database outlives the
+ * connections Flyway opens and closes.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+    private final Path directory;
+    private final DuckDBConnection root;
+    private final DataSource dataSource;
+
+    private BenchmarkDatabase(Path directory) throws SQLException {
+        this.directory = directory;
+        String url = directory == null ? "jdbc:duckdb:" : "jdbc:duckdb:" + directory.resolve("benchmark.duckdb");
+        this.root = DriverManager.getConnection(url).unwrap(DuckDBConnection.class);
+        this.dataSource = new DuplicatingDataSource(root);
+    }
+
+    /**
+     * @param storage {@code memory} or {@code file}.
+     */
+    static BenchmarkDatabase create(String storage) throws SQLException, IOException {
+        return new BenchmarkDatabase("file".equals(storage) ? Files.createTempDirectory("duckdb-benchmark-") : null);
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Runs every statement on a connection of its own.
+     */
+    void execute(String... statements) throws SQLException {
+        try (Connection connection = root.duplicate(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    FluentConfiguration configure() {
+        return Flyway.configure().dataSource(dataSource).cleanDisabled(false);
+    }
+
+    /**
+     * @param duckConfiguration Applies the {@code flyway.duckdb.*} settings for the benchmark.
+     */
+    static void configure(Configuration configuration, Consumer<DuckDBConfigurationExtension> duckConfiguration) {
+        duckConfiguration.accept(configuration.getPluginRegister().getPlugin(DuckDBConfigurationExtension.class));
+    }
+
+    /**
+     * Opens the plugin's database object the way Flyway does at the start of a command.
+     */
+    Opened open(Configuration configuration) {
+        JdbcConnectionFactory connectionFactory = new JdbcConnectionFactory(dataSource, configuration, null);
+        DuckDBDatabase database = (DuckDBDatabase) connectionFactory.getDatabaseType()
+                .createDatabase(configuration, connectionFactory, null);
+        return new Opened(configuration, connectionFactory, database);
+    }
+
+    @Override
+    public void close() throws Exception {
+        root.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    static final class Opened implements AutoCloseable {
+        final Configuration configuration;
+        final JdbcConnectionFactory connectionFactory;
+        final DuckDBDatabase database;
+
+        private Opened(Configuration configuration, JdbcConnectionFactory connectionFactory, DuckDBDatabase database) {
+            this.configuration = configuration;
+            this.connectionFactory = connectionFactory;
+            this.database = database;
+        }
+
+        Parser createParser() {
+            ParsingContext parsingContext = new ParsingContext();
+            parsingContext.populate(database, configuration);
+            return connectionFactory.getDatabaseType().createParser(configuration, null, parsingContext);
+        }
+
+        @Override
+        public void close() {
+            database.close();
+            connectionFactory.close();
+        }
+    }
+
+    private static final class DuplicatingDataSource implements DataSource {
+        private final DuckDBConnection root;
+
+        DuplicatingDataSource(DuckDBConnection root) {
+            this.root = root;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            synchronized (root) {
+                return root.duplicate();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            throw new SQLException("Not a wrapper for " + iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.zongkx.duckdb.benchmarks;
+
+/**
+ * Synthetic migration scripts.
+ */
+final class BenchmarkScripts {
+    private BenchmarkScripts() {
+    }
+
+    /**
+     * @param kind       {@code ddl} (tables, views and macros), {@code dml} (single-row inserts and updates) or
+     *                   {@code mixed} (both, with comments and quoted identifiers in between).
+     * @param statements The number of statements.
+     */
+    static String generate(String kind, int statements) {
+        return generate(kind, statements, "");
+    }
+
+    /**
+     * @param prefix Prepended to the names of all objects, so that several scripts can be applied to one database.
+     */
+    static String generate(String kind, int statements, String prefix) {
+        StringBuilder sql = new StringBuilder();
+        if (!"ddl".equals(kind)) {
+            sql.append(createTable(prefix + "items")).append('\n');
+        }
+        for (int i = 0; i < statements; i++) {
+            switch (kind) {
+                case "ddl":
+                    sql.append(ddl(i, prefix));
+                    break;
+                case "dml":
+                    sql.append(dml(i, prefix));
+                    break;
+                default:
+                    sql.append(i % 10 == 0 ? "-- step " + i + "\n/* block comment; with a semicolon */\n" : "")
+                            .append(i % 2 == 0 ? ddl(i, prefix) : dml(i, prefix));
+                    break;
+            }
+            sql.append('\n');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * @return A script creating {@code table} and inserting {@code rows} rows with one statement each.
+     */
+    static String insertRows(String table, int rows) {
+        StringBuilder sql = new StringBuilder(createTable(table)).append('\n');
+        for (int i = 0; i < rows; i++) {
+            sql.append(insert(table, i)).append('\n');
+        }
+        return sql.toString();
+    }
+
+    static String createTable(String table) {
+        return "CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, name VARCHAR, amount DECIMAL(18, 2),"
+                + " created TIMESTAMP DEFAULT now());";
+    }
+
+    private static String ddl(int i, String prefix) {
+        switch (i % 3) {
+            case 0:
+                return createTable(prefix + "t_" + i);
+            case 1:
+                return "CREATE VIEW \"" + prefix + "v_" + i + "\" AS SELECT id, upper(name) AS name FROM " + prefix
+                        + "items WHERE name <> 'x;y';";
+            default:
+                return "CREATE MACRO " + prefix + "m_" + i + "(a, b) AS a * " + i + " + b;";
+        }
+    }
+
+    private static String dml(int i, String prefix) {
+        return i % 4 == 3
+                ? "UPDATE " + prefix + "items SET amount = amount + 1 WHERE id = " + (i - 1) + ";"
+                : insert(prefix + "items", i);
+    }
+
+    private static String insert(String table, int i) {
+        return "INSERT INTO " + table + " VALUES (" + i + ", 'name ''" + i + "''', " + i + ".50, NULL);";
+    }
+}
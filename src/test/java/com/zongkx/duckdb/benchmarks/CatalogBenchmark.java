@@ -0,0 +1,119 @@
+package com.zongkx.duckdb.benchmarks;
+
+import com.zongkx.duckdb.DuckMetadata;
+import org.flywaydb.core.internal.jdbc.JdbcTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metadata queries of {@code DuckSchema} and {@code DuckTable} on a schema of {@code objects} tables and views,
+ * read from DuckDB's {@code duckdb_*()} functions as they are now, or from the {@code pg_catalog} and
+ * {@code information_schema} views as they were before. The emptiness check runs against a second, empty schema, so
+ * that it has to look at every catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CatalogBenchmark {
+    @Param({"10000"})
+    public int objects;
+
+    @Param({"pg_catalog", "duckdb"})
+    public String catalog;
+
+    private BenchmarkDatabase database;
+    private BenchmarkDatabase.Opened opened;
+    private JdbcTemplate jdbcTemplate;
+    private DuckMetadata metadata;
+    private String databaseName;
+    private String table;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("memory");
+        String[] statements = new String[objects + 1];
+        statements[0] = "CREATE SCHEMA empty";
+        for (int i = 0; i < objects; i++) {
+            statements[i + 1] = i % 2 == 0
+                    ? BenchmarkScripts.createTable("t_" + i)
+                    : "CREATE VIEW v_" + i + " AS SELECT " + i + " AS id";
+        }
+        database.execute(statements);
+
+        opened = database.open(database.configure().load().getConfiguration());
+        jdbcTemplate = opened.database.getMainConnection().getJdbcTemplate();
+        metadata = new DuckMetadata(jdbcTemplate);
+        databaseName = jdbcTemplate.queryForString("SELECT current_database()");
+        table = "t_" + (objects / 4 * 2);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        opened.close();
+        database.close();
+    }
+
+    @Benchmark
+    public boolean tableExists() throws SQLException {
+        if ("duckdb".equals(catalog)) {
+            return metadata.tableExists(databaseName, "main", table);
+        }
+        return jdbcTemplate.queryForBoolean("SELECT EXISTS (\n" +
+                "  SELECT 1\n" +
+                "  FROM   pg_catalog.pg_class c\n" +
+                "  JOIN   pg_catalog.pg_namespace n ON n.oid = c.relnamespace\n" +
+                "  WHERE  n.nspname = ?\n" +
+                "  AND    c.relname = ?\n" +
+                "  AND    c.relkind = 'r'\n" +
+                ")", "main", table);
+    }
+
+    @Benchmark
+    public boolean schemaEmpty() throws SQLException {
+        if ("duckdb".equals(catalog)) {
+            return metadata.schemaEmpty(databaseName, "empty");
+        }
+        return !jdbcTemplate.queryForBoolean("SELECT EXISTS (\n" +
+                "    SELECT c.oid FROM pg_catalog.pg_class c\n" +
+                "    JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace\n" +
+                "    LEFT JOIN pg_catalog.pg_depend d ON d.objid = c.oid AND d.deptype = 'e'\n" +
+                "    WHERE  n.nspname = ? AND d.objid IS NULL AND c.relkind IN ('r', 'v', 'S', 't')\n" +
+                "  UNION ALL\n" +
+                "    SELECT t.oid FROM pg_catalog.pg_type t\n" +
+                "    JOIN pg_catalog.pg_namespace n ON n.oid = t.typnamespace\n" +
+                "    LEFT JOIN pg_catalog.pg_depend d ON d.objid = t.oid AND d.deptype = 'e'\n" +
+                "    WHERE n.nspname = ? AND d.objid IS NULL AND t.typcategory NOT IN ('A', 'C')\n" +
+                "  UNION ALL\n" +
+                "    SELECT p.oid FROM pg_catalog.pg_proc p\n" +
+                "    JOIN pg_catalog.pg_namespace n ON n.oid = p.pronamespace\n" +
+                "    LEFT JOIN pg_catalog.pg_depend d ON d.objid = p.oid AND d.deptype = 'e'\n" +
+                "    WHERE n.nspname = ? AND d.objid IS NULL\n" +
+                ")", "empty", "empty", "empty");
+    }
+
+    @Benchmark
+    public int allTables() throws SQLException {
+        List<String> tables = "duckdb".equals(catalog)
+                ? metadata.getTables(databaseName, "main")
+                : jdbcTemplate.queryForStringList("SELECT table_name FROM information_schema.tables"
+                + " WHERE table_type = 'BASE TABLE' AND table_schema = ?", "main");
+        return tables.size();
+    }
+}
@@ -0,0 +1,94 @@
+package com.zongkx.duckdb.benchmarks;
+
+import com.zongkx.duckdb.DuckDBConfigurationExtension.CleanMode;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.internal.database.base.Schema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cleaning a schema holding tables, views, sequences, types and macros in equal parts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CleanBenchmark {
+    @Param({"10", "100", "1000"})
+    public int objects;
+
+    @Param({"STATEMENT", "BATCH"})
+    public CleanMode cleanMode;
+
+    @Param({"memory", "file"})
+    public String storage;
+
+    private BenchmarkDatabase database;
+    private BenchmarkDatabase.Opened opened;
+    private Schema<?, ?> schema;
+    private String[] catalog;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create(storage);
+        Configuration configuration = database.configure().load().getConfiguration();
+        BenchmarkDatabase.configure(configuration, duck -> duck.setCleanMode(cleanMode));
+        opened = database.open(configuration);
+        schema = opened.database.getMainConnection().getSchema("main");
+
+        List<String> statements = new ArrayList<>();
+        for (int i = 0; i < objects; i++) {
+            switch (i % 5) {
+                case 0:
+                    statements.add(BenchmarkScripts.createTable("t_" + i));
+                    break;
+                case 1:
+                    statements.add("CREATE VIEW v_" + i + " AS SELECT * FROM t_" + (i - 1));
+                    break;
+                case 2:
+                    statements.add("CREATE SEQUENCE s_" + i);
+                    break;
+                case 3:
+                    statements.add("CREATE TYPE e_" + i + " AS ENUM ('a', 'b', 'c')");
+                    break;
+                default:
+                    statements.add("CREATE MACRO m_" + i + "(a) AS a + " + i);
+                    break;
+            }
+        }
+        catalog = statements.toArray(new String[0]);
+    }
+
+    @Setup(Level.Invocation)
+    public void populate() throws Exception {
+        database.execute(catalog);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        opened.close();
+        database.close();
+    }
+
+    @Benchmark
+    public void clean() {
+        schema.clean();
+    }
+}
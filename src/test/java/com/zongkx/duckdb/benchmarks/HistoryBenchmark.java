@@ -0,0 +1,109 @@
+package com.zongkx.duckdb.benchmarks;
+
+import org.flywaydb.core.internal.database.base.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and appending to a large schema history table, comparing the current layout (inline primary key, no
+ * index on {@code success}) with the previous one (no primary key, index on {@code success}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+    @Param({"50000", "200000"})
+    public int rows;
+
+    @Param({"lean", "legacy"})
+    public String layout;
+
+    private BenchmarkDatabase database;
+    private BenchmarkDatabase.Opened opened;
+    private Connection connection;
+    private PreparedStatement select;
+    private PreparedStatement insert;
+    private int nextRank;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("file");
+        opened = database.open(database.configure().load().getConfiguration());
+        Table<?, ?> table = opened.database.getMainConnection().getSchema("main").getTable("flyway_schema_history");
+
+        String createScript = opened.database.getRawCreateScript(table, false);
+        if ("legacy".equals(layout)) {
+            createScript = createScript.replace(" PRIMARY KEY", "")
+                    + "CREATE INDEX \"flyway_schema_history_s_idx\" ON " + table + " (\"success\");";
+        }
+        database.execute(createScript.split(";\n?"));
+        database.execute("INSERT INTO " + table + " SELECT i, CAST(i AS VARCHAR), 'migration ' || i, 'SQL',"
+                + " 'V' || i || '__migration.sql', i, 'benchmark', now(), 1, TRUE FROM range(1, " + (rows + 1) + ") t(i)");
+
+        connection = database.getDataSource().getConnection();
+        select = connection.prepareStatement(opened.database.getSelectStatement(table));
+        insert = connection.prepareStatement("INSERT INTO " + table + " VALUES (?, ?, 'appended', 'SQL',"
+                + " 'V__appended.sql', 0, 'benchmark', now(), 1, TRUE)");
+        nextRank = rows + 1;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        select.close();
+        insert.close();
+        connection.close();
+        opened.close();
+        database.close();
+    }
+
+    /**
+     * What Flyway reads once it has cached the history: the last few entries.
+     */
+    @Benchmark
+    public int incrementalRead() throws SQLException {
+        return read(nextRank - 10);
+    }
+
+    @Benchmark
+    public int fullRead() throws SQLException {
+        return read(0);
+    }
+
+    @Benchmark
+    public int appendEntry() throws SQLException {
+        insert.setInt(1, nextRank);
+        insert.setString(2, Integer.toString(nextRank));
+        nextRank++;
+        return insert.executeUpdate();
+    }
+
+    private int read(int afterRank) throws SQLException {
+        select.setInt(1, afterRank);
+        int count = 0;
+        try (ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
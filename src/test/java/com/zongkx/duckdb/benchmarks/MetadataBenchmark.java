@@ -0,0 +1,74 @@
+package com.zongkx.duckdb.benchmarks;
+
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.internal.database.base.Schema;
+import org.flywaydb.core.internal.database.base.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the metadata lookups Flyway makes on every command: {@code DuckTable.doExists} and
+ * {@code DuckSchema.doAllTables}, with and without {@code flyway.duckdb.metadataCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetadataBenchmark {
+    @Param({"10", "1000"})
+    public int tables;
+
+    @Param({"false", "true"})
+    public boolean metadataCache;
+
+    private BenchmarkDatabase database;
+    private BenchmarkDatabase.Opened opened;
+    private Schema<?, ?> schema;
+    private Table<?, ?> table;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("memory");
+        String[] statements = new String[tables];
+        for (int i = 0; i < tables; i++) {
+            statements[i] = BenchmarkScripts.createTable("t_" + i);
+        }
+        database.execute(statements);
+
+        Configuration configuration = database.configure().load().getConfiguration();
+        BenchmarkDatabase.configure(configuration, duck -> duck.setMetadataCache(metadataCache));
+        opened = database.open(configuration);
+        schema = opened.database.getMainConnection().getSchema("main");
+        table = schema.getTable("t_" + (tables / 2));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        opened.close();
+        database.close();
+    }
+
+    @Benchmark
+    public boolean tableExists() {
+        return table.exists();
+    }
+
+    @Benchmark
+    public int allTables() {
+        return schema.allTables().length;
+    }
+}
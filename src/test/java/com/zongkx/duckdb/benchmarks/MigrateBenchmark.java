@@ -0,0 +1,104 @@
+package com.zongkx.duckdb.benchmarks;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end {@code migrate} of {@code small} small migrations followed by {@code large} migrations of
+ * {@code largeRows} single-row inserts each, into an empty database, with the different ways of sending inserts. The
+ * largest run sends 100k inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MigrateBenchmark {
+    @Param({"memory", "file"})
+    public String storage;
+
+    @Param({"50"})
+    public int small;
+
+    @Param({"2"})
+    public int large;
+
+    @Param({"10000", "50000"})
+    public int largeRows;
+
+    /**
+     * {@code statement} sends every statement on its own, {@code batch} sets {@code flyway.duckdb.batch} and
+     * {@code appender} sets {@code flyway.duckdb.appender}.
+     */
+    @Param({"statement", "batch", "appender"})
+    public String inserts;
+
+    private Path migrations;
+    private BenchmarkDatabase database;
+    private Flyway flyway;
+
+    @Setup(Level.Trial)
+    public void writeMigrations() throws Exception {
+        migrations = Files.createTempDirectory("duckdb-benchmark-migrations-");
+        int version = 1;
+        for (int i = 0; i < small; i++, version++) {
+            write(version, "small_" + i, BenchmarkScripts.generate("mixed", 10, "s" + i + "_"));
+        }
+        for (int i = 0; i < large; i++, version++) {
+            write(version, "large_" + i, BenchmarkScripts.insertRows("large_" + i, largeRows));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create(storage);
+        flyway = database.configure().locations("filesystem:" + migrations).load();
+        BenchmarkDatabase.configure(flyway.getConfiguration(), duck -> {
+            duck.setBatch("batch".equals(inserts));
+            duck.setAppender("appender".equals(inserts));
+        });
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteMigrations() throws Exception {
+        try (Stream<Path> files = Files.list(migrations)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(migrations);
+    }
+
+    @Benchmark
+    public int migrate() {
+        return flyway.migrate().migrationsExecuted;
+    }
+
+    private void write(int version, String description, String sql) throws Exception {
+        Files.write(migrations.resolve("V" + version + "__" + description + ".sql"), sql.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,68 @@
+package com.zongkx.duckdb.benchmarks;
+
+import org.flywaydb.core.internal.parser.Parser;
+import org.flywaydb.core.internal.resource.StringResource;
+import org.flywaydb.core.internal.sqlscript.SqlStatement;
+import org.flywaydb.core.internal.sqlscript.SqlStatementIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code DuckParser} throughput on synthetic scripts, in parsed scripts per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"100", "10000"})
+    public int statements;
+
+    @Param({"ddl", "dml", "mixed"})
+    public String script;
+
+    private BenchmarkDatabase database;
+    private BenchmarkDatabase.Opened opened;
+    private Parser parser;
+    private StringResource resource;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = BenchmarkDatabase.create("memory");
+        opened = database.open(database.configure().load().getConfiguration());
+        parser = opened.createParser();
+        resource = new StringResource(BenchmarkScripts.generate(script, statements));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        opened.close();
+        database.close();
+    }
+
+    @Benchmark
+    public int parse() {
+        int count = 0;
+        try (SqlStatementIterator iterator = parser.parse(resource)) {
+            SqlStatement statement;
+            while ((statement = iterator.next()) != null) {
+                count += statement.getLineNumber() > 0 ? 1 : 0;
+            }
+        }
+        return count;
+    }
+}